@@ -162,6 +162,7 @@ CREATE TABLE IF NOT EXISTS `vector_storage` (
                                                 `collection` VARCHAR(100) NOT NULL COMMENT '集合名称',
     `content` TEXT NOT NULL COMMENT '文本内容',
     `embedding` LONGTEXT COMMENT '向量嵌入(JSON格式)',
+    `embedding_bin` MEDIUMBLOB COMMENT '向量嵌入(二进制格式: 1字节格式标识+小端序float32/float16)',
     `metadata` TEXT COMMENT '元数据(JSON格式)',
     `source_id` BIGINT COMMENT '源数据ID',
     `source_type` VARCHAR(50) COMMENT '源数据类型',
@@ -172,6 +173,20 @@ CREATE TABLE IF NOT EXISTS `vector_storage` (
     KEY `idx_source` (`source_id`, `source_type`)
     ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='向量存储表';
 
+-- 存量数据导入检查点表
+CREATE TABLE IF NOT EXISTS `rag_import_checkpoint` (
+                                                       `collection` VARCHAR(100) NOT NULL COMMENT '集合名称',
+    `source_type` VARCHAR(50) NOT NULL COMMENT '源数据表',
+    `last_id` BIGINT NOT NULL DEFAULT 0 COMMENT '最后导入的源数据ID',
+    `imported_docs` BIGINT NOT NULL DEFAULT 0 COMMENT '累计导入文档数',
+    `imported_chunks` BIGINT NOT NULL DEFAULT 0 COMMENT '累计写入块数',
+    `updated_at` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`collection`, `source_type`)
+    ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='存量数据导入检查点表';
+
+-- 已有库升级：为向量存储表增加二进制向量列，存量数据由 EmbeddingStorageMigrator 分批迁移
+-- ALTER TABLE `vector_storage` ADD COLUMN `embedding_bin` MEDIUMBLOB COMMENT '向量嵌入(二进制格式: 1字节格式标识+小端序float32/float16)' AFTER `embedding`;
+
 -- 添加外键约束
 ALTER TABLE `job_description` ADD CONSTRAINT `fk_job_company` FOREIGN KEY (`company_id`) REFERENCES `company` (`id`);
 ALTER TABLE `interview_experience` ADD CONSTRAINT `fk_interview_company` FOREIGN KEY (`company_id`) REFERENCES `company` (`id`);
@@ -0,0 +1,80 @@
+package com.interview.rag.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 基准测试数据生成，固定随机种子保证每次运行的数据一致
+ */
+final class BenchmarkData {
+
+    private static final String[] COMPANIES = {"字节跳动", "阿里巴巴", "腾讯", "美团", "百度", "京东"};
+
+    private static final String[] SENTENCES = {
+            "一面主要问了项目经历，面试官对分布式事务的实现细节追问得很深。",
+            "手写了一道LRU缓存，要求get和put都是O(1)复杂度，最后还问了线程安全怎么保证。",
+            "HashMap的扩容机制是什么？链表什么时候转成红黑树？",
+            "讲一下MySQL的索引结构，为什么用B+树而不是B树或者哈希表。",
+            "Redis的持久化方式有哪些，RDB和AOF各自的优缺点是什么？",
+            "二面是系统设计，设计一个短链接服务，要求支持每秒十万次的访问。",
+            "面试官问了JVM的垃圾回收器，G1和CMS的区别，以及线上遇到Full GC怎么排查。",
+            "最后反问环节问了团队的技术栈和新人培养机制。",
+            "Kafka如何保证消息不丢失？消费者重平衡的过程是怎样的？",
+            "整体感觉面试官人很好，会引导思路，但是算法题没有完全写出来。",
+            "Spring的循环依赖是怎么解决的？三级缓存分别存放什么？",
+            "聊了聊对微服务拆分的理解，服务之间的调用链路怎么做监控。",
+            "The interviewer asked about CAP theorem and how our system trades consistency for availability.",
+            "三面是交叉面，主要考察沟通能力和对业务的理解，问了为什么想换工作。",
+    };
+
+    private BenchmarkData() {
+    }
+
+    static float[] randomVector(Random random, int dimensions) {
+        float[] vector = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = random.nextFloat() * 2 - 1;
+        }
+        return vector;
+    }
+
+    /**
+     * 生成指定长度左右的中文面经，句子随机组合，每隔几句分段
+     */
+    static String interviewPost(Random random, int length) {
+        StringBuilder post = new StringBuilder(length + 128);
+        post.append("公司: ").append(COMPANIES[random.nextInt(COMPANIES.length)]).append('\n');
+        post.append("职位: Java后端开发工程师\n\n");
+        int sentencesInParagraph = 0;
+        while (post.length() < length) {
+            post.append(SENTENCES[random.nextInt(SENTENCES.length)]);
+            if (++sentencesInParagraph >= 3 + random.nextInt(4)) {
+                post.append("\n\n");
+                sentencesInParagraph = 0;
+            }
+        }
+        return post.toString();
+    }
+
+    /**
+     * 与分块写入时相同结构的块元数据
+     */
+    static Map<String, Object> chunkMetadata(Random random, int chunkIndex) {
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("sourceType", "interview_experience");
+        metadata.put("sourceId", 100000L + random.nextInt(100000));
+        metadata.put("source", "nowcoder");
+        metadata.put("company", COMPANIES[random.nextInt(COMPANIES.length)]);
+        metadata.put("position", "Java后端开发工程师");
+        metadata.put("difficulty", 3);
+        metadata.put("result", "通过");
+        metadata.put("interviewDate", "2024-03-15");
+        metadata.put("documentKey", "interview_experience:" + metadata.get("sourceId"));
+        metadata.put("chunkIndex", chunkIndex);
+        metadata.put("chunkCount", 6);
+        metadata.put("isChunk", true);
+        metadata.put("originalContent", SENTENCES[random.nextInt(SENTENCES.length)] + "...");
+        return metadata;
+    }
+}
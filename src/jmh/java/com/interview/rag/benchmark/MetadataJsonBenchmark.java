@@ -0,0 +1,118 @@
+package com.interview.rag.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.interview.rag.model.ChunkMetadata;
+import com.interview.rag.util.EmbeddingCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 检索结果映射基准测试
+ * 覆盖将 vector_storage 行映射为文档时的元数据 JSON 解析与序列化（完整 Map 与按需解码的 ChunkMetadata），
+ * 以及向量从 JSON 列解析与从二进制列解码的对比
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MetadataJsonBenchmark {
+
+    private static final int DIMENSIONS = 1536;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private Map<String, Object> metadata;
+    private ChunkMetadata chunkMetadata;
+    private String metadataJson;
+    private String embeddingJson;
+    private byte[] embeddingFloat32;
+    private byte[] embeddingFloat16;
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+        Random random = new Random(42);
+        metadata = BenchmarkData.chunkMetadata(random, 2);
+        metadataJson = objectMapper.writeValueAsString(metadata);
+        chunkMetadata = ChunkMetadata.copyOf(metadata);
+        float[] embedding = BenchmarkData.randomVector(random, DIMENSIONS);
+        embeddingJson = objectMapper.writeValueAsString(embedding);
+        embeddingFloat32 = EmbeddingCodec.encode(embedding, EmbeddingCodec.Format.FLOAT32);
+        embeddingFloat16 = EmbeddingCodec.encode(embedding, EmbeddingCodec.Format.FLOAT16);
+    }
+
+    @Benchmark
+    public String writeMetadata() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(metadata);
+    }
+
+    @Benchmark
+    public Map<?, ?> readMetadata() throws JsonProcessingException {
+        return objectMapper.readValue(metadataJson, Map.class);
+    }
+
+    @Benchmark
+    public Map<?, ?> roundTripMetadata() throws JsonProcessingException {
+        return objectMapper.readValue(objectMapper.writeValueAsString(metadata), Map.class);
+    }
+
+    @Benchmark
+    public String writeChunkMetadata() {
+        return chunkMetadata.toJson();
+    }
+
+    /**
+     * 检索命中后的典型读取：只读来源与父文档
+     */
+    @Benchmark
+    public void readChunkMetadataTyped(Blackhole blackhole) {
+        ChunkMetadata parsed = ChunkMetadata.parse(metadataJson);
+        blackhole.consume(parsed.getSource());
+        blackhole.consume(parsed.getDocumentKey());
+    }
+
+    @Benchmark
+    public int readChunkMetadataAll() {
+        return ChunkMetadata.parse(metadataJson).entrySet().size();
+    }
+
+    /**
+     * 读取后未修改直接写回，复用原始 JSON
+     */
+    @Benchmark
+    public String roundTripChunkMetadata() {
+        ChunkMetadata parsed = ChunkMetadata.parse(metadataJson);
+        parsed.getDocumentKey();
+        return parsed.toJson();
+    }
+
+    @Benchmark
+    public float[] readEmbeddingJson() throws JsonProcessingException {
+        return objectMapper.readValue(embeddingJson, float[].class);
+    }
+
+    @Benchmark
+    public float[] decodeEmbeddingFloat32() {
+        return EmbeddingCodec.decode(embeddingFloat32);
+    }
+
+    @Benchmark
+    public float[] decodeEmbeddingFloat16() {
+        return EmbeddingCodec.decode(embeddingFloat16);
+    }
+}
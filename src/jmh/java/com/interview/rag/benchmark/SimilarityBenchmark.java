@@ -0,0 +1,87 @@
+package com.interview.rag.benchmark;
+
+import com.interview.rag.util.ScalarVectorKernels;
+import com.interview.rag.util.VectorKernels;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 向量相似度内核基准测试
+ * 对比 SIMD 内核（jdk.incubator.vector 可用时）与标量内核在常见嵌入维度下的单次与批量计算耗时
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SimilarityBenchmark {
+
+    private static final int BATCH_ROWS = 1024;
+
+    @Param({"384", "768", "1536"})
+    private int dimensions;
+
+    /**
+     * default 为运行时选择的最优内核，scalar 为标量实现
+     */
+    @Param({"default", "scalar"})
+    private String kernel;
+
+    private VectorKernels kernels;
+    private float[] query;
+    private float[] vector;
+    private float[] batch;
+
+    @Setup
+    public void setup() {
+        kernels = "scalar".equals(kernel) ? new ScalarVectorKernels() : VectorKernels.getInstance();
+        Random random = new Random(42);
+        query = BenchmarkData.randomVector(random, dimensions);
+        vector = BenchmarkData.randomVector(random, dimensions);
+        batch = new float[BATCH_ROWS * dimensions];
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = random.nextFloat() * 2 - 1;
+        }
+    }
+
+    @Benchmark
+    public float cosine() {
+        return kernels.cosineSimilarity(query, 0, vector, 0, dimensions);
+    }
+
+    @Benchmark
+    public float dot() {
+        return kernels.dotProduct(query, 0, vector, 0, dimensions);
+    }
+
+    @Benchmark
+    public float euclidean() {
+        return (float) Math.sqrt(kernels.squaredDistance(query, 0, vector, 0, dimensions));
+    }
+
+    /**
+     * 连续存储的 1024 行向量逐行计算余弦相似度
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_ROWS)
+    public void cosineBatch(Blackhole blackhole) {
+        for (int row = 0, offset = 0; row < BATCH_ROWS; row++, offset += dimensions) {
+            blackhole.consume(kernels.cosineSimilarity(query, 0, batch, offset, dimensions));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.interview.rag.benchmark;
+
+import com.interview.rag.util.HeuristicTokenizer;
+import com.interview.rag.util.TextSplitter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文本分块基准测试
+ * 输入为按真实面经句式拼成的中文长文，长度覆盖普通面经到合集类长帖
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TextSplitterBenchmark {
+
+    @Param({"2000", "8000", "32000"})
+    private int length;
+
+    @Param({TextSplitter.MODE_CHARACTERS, TextSplitter.MODE_TOKENS})
+    private String mode;
+
+    private TextSplitter textSplitter;
+    private String post;
+
+    @Setup
+    public void setup() {
+        // 与 application.yaml 中的默认配置一致
+        textSplitter = new TextSplitter();
+        textSplitter.setChunkSize(1000);
+        textSplitter.setChunkOverlap(200);
+        textSplitter.setChunkTokens(512);
+        textSplitter.setChunkOverlapTokens(64);
+        textSplitter.setTokenizer(new HeuristicTokenizer());
+        textSplitter.setMode(mode);
+        post = BenchmarkData.interviewPost(new Random(42), length);
+    }
+
+    @Benchmark
+    public List<String> splitIntoChunks() {
+        return textSplitter.splitIntoChunks(post);
+    }
+
+    @Benchmark
+    public List<String> splitIntoSentences() {
+        return textSplitter.splitIntoSentences(post);
+    }
+}
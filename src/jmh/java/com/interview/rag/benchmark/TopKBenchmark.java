@@ -0,0 +1,152 @@
+package com.interview.rag.benchmark;
+
+import com.interview.rag.index.Int8QuantizedIndex;
+import com.interview.rag.index.ScoredId;
+import com.interview.rag.util.TopKSelector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * topK 选择基准测试
+ * heapSelect、fullSort、selectorSelect 只测从已算好的得分中选出 topK，
+ * 分别为基于 PriorityQueue 的装箱写法、全量排序后截取、基本类型数组的 {@link TopKSelector}；
+ * mergeRuns 与 mergeRunsEarlyStop 模拟合并多个已降序排列的分片结果，后者在候选无法进入前K时停止扫描该分片；
+ * int8Search 测 int8 量化索引的完整暴力检索（打分 + 选择，不含原始向量精排）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "--add-modules=jdk.incubator.vector"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TopKBenchmark {
+
+    private static final int DIMENSIONS = 384;
+    private static final Comparator<ScoredId> LOWEST_FIRST = Comparator.comparingDouble(ScoredId::getScore);
+    private static final int RUNS = 8;
+
+    @Param({"10000", "100000", "1000000"})
+    private int size;
+
+    @Param({"10", "100"})
+    private int topK;
+
+    private float[] scores;
+    /**
+     * 与 scores 相同的得分，切成 RUNS 段后每段降序排列
+     */
+    private float[] sortedRuns;
+    private Int8QuantizedIndex index;
+    private float[] query;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        scores = new float[size];
+        for (int i = 0; i < size; i++) {
+            scores[i] = random.nextFloat() * 2 - 1;
+        }
+        sortedRuns = Arrays.copyOf(scores, size);
+        for (int run = 0; run < RUNS; run++) {
+            int from = runStart(run);
+            int to = runStart(run + 1);
+            Arrays.sort(sortedRuns, from, to);
+            for (int i = from, j = to - 1; i < j; i++, j--) {
+                float tmp = sortedRuns[i];
+                sortedRuns[i] = sortedRuns[j];
+                sortedRuns[j] = tmp;
+            }
+        }
+
+        index = new Int8QuantizedIndex(DIMENSIONS, 1, null);
+        for (int i = 0; i < size; i++) {
+            index.add(i, BenchmarkData.randomVector(random, DIMENSIONS));
+        }
+        query = BenchmarkData.randomVector(random, DIMENSIONS);
+    }
+
+    @Benchmark
+    public List<ScoredId> heapSelect() {
+        PriorityQueue<ScoredId> heap = new PriorityQueue<>(topK + 1, LOWEST_FIRST);
+        for (int i = 0; i < scores.length; i++) {
+            float score = scores[i];
+            if (heap.size() < topK) {
+                heap.add(new ScoredId(i, score));
+            } else if (score > heap.peek().getScore()) {
+                heap.poll();
+                heap.add(new ScoredId(i, score));
+            }
+        }
+        List<ScoredId> results = new ArrayList<>(heap);
+        results.sort(LOWEST_FIRST.reversed());
+        return results;
+    }
+
+    @Benchmark
+    public List<ScoredId> fullSort() {
+        List<ScoredId> all = new ArrayList<>(scores.length);
+        for (int i = 0; i < scores.length; i++) {
+            all.add(new ScoredId(i, scores[i]));
+        }
+        all.sort(LOWEST_FIRST.reversed());
+        return new ArrayList<>(all.subList(0, Math.min(topK, all.size())));
+    }
+
+    @Benchmark
+    public List<ScoredId> selectorSelect() {
+        TopKSelector selector = new TopKSelector(topK);
+        for (int i = 0; i < scores.length; i++) {
+            selector.offer(i, scores[i]);
+        }
+        return ScoredId.ranked(selector);
+    }
+
+    @Benchmark
+    public List<ScoredId> mergeRuns() {
+        TopKSelector selector = new TopKSelector(topK);
+        for (int i = 0; i < sortedRuns.length; i++) {
+            selector.offer(i, sortedRuns[i]);
+        }
+        return ScoredId.ranked(selector);
+    }
+
+    @Benchmark
+    public List<ScoredId> mergeRunsEarlyStop() {
+        TopKSelector selector = new TopKSelector(topK);
+        for (int run = 0; run < RUNS; run++) {
+            int to = runStart(run + 1);
+            for (int i = runStart(run); i < to; i++) {
+                if (!selector.offer(i, sortedRuns[i])) {
+                    break;
+                }
+            }
+        }
+        return ScoredId.ranked(selector);
+    }
+
+    @Benchmark
+    public List<ScoredId> int8Search() {
+        return index.search(query, topK);
+    }
+
+    private int runStart(int run) {
+        return (int) ((long) size * run / RUNS);
+    }
+}
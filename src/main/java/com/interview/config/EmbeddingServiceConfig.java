@@ -0,0 +1,109 @@
+package com.interview.config;
+
+import com.interview.rag.cache.EmbeddingDiskCache;
+import com.interview.rag.service.EmbeddingService;
+import com.interview.rag.service.impl.CachingEmbeddingService;
+import com.interview.rag.service.impl.CoalescingEmbeddingService;
+import com.interview.rag.service.impl.DefiyEmbeddingServiceImpl;
+import com.interview.rag.service.impl.EmbeddingRequestCoalescer;
+import com.interview.rag.util.EmbeddingBatcher;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * 嵌入服务配置类
+ * 在 Defiy 嵌入服务前依次组装缓存与请求合并装饰器（缓存 → 合并 → Defiy），
+ * 注入 EmbeddingService 时优先使用装饰后的实例
+ */
+@Slf4j
+@Configuration
+public class EmbeddingServiceConfig {
+
+    @Value("${rag.embedding.model:text-embedding-ada-002}")
+    private String embeddingModel;
+
+    @Value("${rag.embedding.dimensions:1536}")
+    private int embeddingDimensions;
+
+    @Value("${rag.embedding.cache.memory-max-mb:256}")
+    private long memoryMaxMb;
+
+    @Value("${rag.embedding.cache.disk.enabled:false}")
+    private boolean diskEnabled;
+
+    @Value("${rag.embedding.cache.disk.dir:data/embedding-cache}")
+    private String diskDirectory;
+
+    @Value("${rag.embedding.cache.disk.max-mb:2048}")
+    private long diskMaxMb;
+
+    @Value("${rag.embedding.coalescing.max-batch-size:32}")
+    private int coalescingMaxBatchSize;
+
+    @Value("${rag.embedding.coalescing.max-wait-ms:5}")
+    private long coalescingMaxWaitMs;
+
+    @Value("${rag.embedding.coalescing.concurrency:4}")
+    private int coalescingConcurrency;
+
+    @Value("${rag.embedding.coalescing.timeout-ms:30000}")
+    private long coalescingTimeoutMs;
+
+    /**
+     * 配置单条嵌入请求合并器
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "rag.embedding.coalescing", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public EmbeddingRequestCoalescer embeddingRequestCoalescer(DefiyEmbeddingServiceImpl defiyEmbeddingService,
+                                                               EmbeddingBatcher embeddingBatcher) {
+        log.info("启用嵌入请求合并: maxBatchSize={}, maxWaitMs={}, concurrency={}",
+                coalescingMaxBatchSize, coalescingMaxWaitMs, coalescingConcurrency);
+        return new EmbeddingRequestCoalescer(defiyEmbeddingService, embeddingBatcher,
+                coalescingMaxBatchSize, coalescingMaxWaitMs, coalescingConcurrency);
+    }
+
+    /**
+     * 关闭缓存但启用请求合并时，直接使用合并后的嵌入服务
+     */
+    @Bean
+    @Primary
+    @ConditionalOnExpression("!${rag.embedding.cache.enabled:true} && ${rag.embedding.coalescing.enabled:true}")
+    public CoalescingEmbeddingService coalescingEmbeddingService(DefiyEmbeddingServiceImpl defiyEmbeddingService,
+                                                                 EmbeddingRequestCoalescer coalescer) {
+        return new CoalescingEmbeddingService(defiyEmbeddingService, coalescer, coalescingTimeoutMs);
+    }
+
+    /**
+     * 配置带两级缓存的嵌入服务
+     */
+    @Bean
+    @Primary
+    @ConditionalOnProperty(prefix = "rag.embedding.cache", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public CachingEmbeddingService cachingEmbeddingService(DefiyEmbeddingServiceImpl defiyEmbeddingService,
+                                                           ObjectProvider<EmbeddingRequestCoalescer> coalescer) {
+        EmbeddingDiskCache diskCache = null;
+        if (diskEnabled) {
+            try {
+                diskCache = new EmbeddingDiskCache(Paths.get(diskDirectory), diskMaxMb * 1024 * 1024);
+            } catch (IOException e) {
+                // 磁盘缓存不可用时仅使用内存缓存
+                log.warn("初始化嵌入磁盘缓存失败，仅使用内存缓存: {}", diskDirectory, e);
+            }
+        }
+        // 缓存未命中的单条请求再经过合并器，与并发的其他请求合成一次批量调用
+        EmbeddingRequestCoalescer requestCoalescer = coalescer.getIfAvailable();
+        EmbeddingService delegate = requestCoalescer == null ? defiyEmbeddingService
+                : new CoalescingEmbeddingService(defiyEmbeddingService, requestCoalescer, coalescingTimeoutMs);
+        return new CachingEmbeddingService(delegate, embeddingModel, embeddingDimensions,
+                memoryMaxMb * 1024 * 1024, diskCache);
+    }
+}
@@ -7,8 +7,11 @@ import dev.langchain4j.model.openai.OpenAiEmbeddingModel;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
 
 /**
  * LLM服务配置类
@@ -37,6 +40,15 @@ public class LLMConfig {
     @Value("${openai.temperature:0.7}")
     private double temperature;
 
+    @Value("${openai.executor.core-size:4}")
+    private int executorCoreSize;
+
+    @Value("${openai.executor.max-size:16}")
+    private int executorMaxSize;
+
+    @Value("${openai.executor.queue-capacity:200}")
+    private int executorQueueCapacity;
+
     /**
      * 配置OpenAI Chat模型
      */
@@ -64,4 +76,20 @@ public class LLMConfig {
                 .timeout(Duration.ofSeconds(timeout))
                 .build();
     }
-}
\ No newline at end of file
+
+    /**
+     * 异步接口调用大模型的线程池，与检索线程池分开，生成耗时长的调用不占用检索线程。
+     * 队列满时拒绝任务，返回的 future 以 RejectedExecutionException 失败
+     */
+    @Bean(name = "llmAsyncExecutor")
+    public Executor llmAsyncExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(executorCoreSize);
+        executor.setMaxPoolSize(executorMaxSize);
+        executor.setQueueCapacity(executorQueueCapacity);
+        executor.setThreadNamePrefix("llm-async-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,67 @@
+package com.interview.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * RAG 检索线程池配置
+ * 混合检索的关键词检索与向量检索并行执行，使用独立线程池，不占用公共 ForkJoinPool；
+ * 异步检索接口在另一个线程池中执行整个检索，与检索内部的并行子任务分开，避免互相占满。
+ * 异步线程池满时直接拒绝，不回退到调用线程执行，否则高负载下 Web 请求线程又会被整个检索阻塞
+ */
+@Configuration
+public class RagExecutorConfig {
+
+    @Value("${rag.executor.search.core-size:4}")
+    private int searchCoreSize;
+
+    @Value("${rag.executor.search.max-size:16}")
+    private int searchMaxSize;
+
+    @Value("${rag.executor.search.queue-capacity:200}")
+    private int searchQueueCapacity;
+
+    @Value("${rag.executor.async.core-size:8}")
+    private int asyncCoreSize;
+
+    @Value("${rag.executor.async.max-size:32}")
+    private int asyncMaxSize;
+
+    @Value("${rag.executor.async.queue-capacity:500}")
+    private int asyncQueueCapacity;
+
+    /**
+     * 检索线程池，队列满时由调用线程执行，保证检索不被拒绝
+     */
+    @Bean(name = "ragSearchExecutor")
+    public Executor ragSearchExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(searchCoreSize);
+        executor.setMaxPoolSize(searchMaxSize);
+        executor.setQueueCapacity(searchQueueCapacity);
+        executor.setThreadNamePrefix("rag-search-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 异步检索线程池，队列满时拒绝任务，异步接口返回以 RejectedExecutionException 失败的 future，由调用方决定如何降级
+     */
+    @Bean(name = "ragAsyncExecutor")
+    public Executor ragAsyncExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(asyncCoreSize);
+        executor.setMaxPoolSize(asyncMaxSize);
+        executor.setQueueCapacity(asyncQueueCapacity);
+        executor.setThreadNamePrefix("rag-async-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
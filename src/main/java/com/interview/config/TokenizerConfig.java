@@ -0,0 +1,48 @@
+package com.interview.config;
+
+import com.interview.rag.util.BpeTokenizer;
+import com.interview.rag.util.CachingTokenizer;
+import com.interview.rag.util.HeuristicTokenizer;
+import com.interview.rag.util.Tokenizer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * token 计数器配置类
+ * 配置了本地 BPE 词表时按词表精确计数，否则按字符估算；计数结果按句子缓存
+ */
+@Slf4j
+@Configuration
+public class TokenizerConfig {
+
+    @Value("${rag.tokenizer.vocabulary-path:}")
+    private String vocabularyPath;
+
+    @Value("${rag.tokenizer.cache.max-entries:100000}")
+    private long cacheMaxEntries;
+
+    @Value("${rag.tokenizer.cache.max-text-length:256}")
+    private int cacheMaxTextLength;
+
+    @Bean
+    public Tokenizer tokenizer() {
+        Tokenizer tokenizer = new HeuristicTokenizer();
+        if (StringUtils.isNotBlank(vocabularyPath)) {
+            try {
+                BpeTokenizer bpeTokenizer = BpeTokenizer.load(Paths.get(vocabularyPath));
+                log.info("加载BPE词表完成: {}, 词表大小: {}", vocabularyPath, bpeTokenizer.getVocabularySize());
+                tokenizer = bpeTokenizer;
+            } catch (IOException e) {
+                // 词表不可用时退回估算，不影响启动
+                log.warn("加载BPE词表失败，按字符估算token数: {}", vocabularyPath, e);
+            }
+        }
+        return new CachingTokenizer(tokenizer, cacheMaxEntries, cacheMaxTextLength);
+    }
+}
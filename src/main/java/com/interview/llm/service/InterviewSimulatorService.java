@@ -5,6 +5,7 @@ import com.interview.llm.model.InterviewFeedback;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 面试模拟服务接口
@@ -72,6 +73,16 @@ public interface InterviewSimulatorService {
      */
     Map<String, Object> evaluateAnswer(String question, String answer);
     
+    /**
+     * 异步评估面试答案，检索参考资料与调用大模型都不占用调用线程。
+     * 检索线程池已满时在调用线程上同步检索，检索或生成失败时返回的 future 以异常结束
+     *
+     * @param question 面试问题
+     * @param answer 用户回答
+     * @return 评估结果
+     */
+    CompletableFuture<Map<String, Object>> evaluateAnswerAsync(String question, String answer);
+    
     /**
      * 提供面试指导建议
      *
@@ -79,4 +90,12 @@ public interface InterviewSimulatorService {
      * @return 指导建议
      */
     String provideGuidance(Long userId);
+    
+    /**
+     * 异步提供面试指导建议，线程池与失败处理同 {@link #evaluateAnswerAsync(String, String)}
+     *
+     * @param userId 用户ID
+     * @return 指导建议
+     */
+    CompletableFuture<String> provideGuidanceAsync(Long userId);
 }
\ No newline at end of file
@@ -16,15 +16,22 @@ import com.interview.repository.InterviewExperienceRepository;
 import com.interview.repository.InterviewQuestionRepository;
 import com.interview.repository.InterviewSimulationRepository;
 import com.interview.repository.JobDescriptionRepository;
+import com.interview.rag.model.PackedContext;
 import com.interview.rag.model.RetrievalContext;
 import com.interview.rag.service.RagService;
-import lombok.RequiredArgsConstructor;
+import com.interview.rag.util.ContextPacker;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
 /**
@@ -32,22 +39,48 @@ import java.util.stream.Collectors;
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class InterviewSimulatorServiceImpl implements InterviewSimulatorService {
 
     private final LLMService llmService;
     private final PromptService promptService;
     private final RagService ragService;
     private final InterviewerPrompt interviewerPrompt;
+    private final ContextPacker contextPacker;
+    private final Executor llmExecutor;
 
     private final InterviewSimulationRepository simulationRepository;
     private final JobDescriptionRepository jobDescriptionRepository;
     private final InterviewQuestionRepository questionRepository;
     private final InterviewExperienceRepository experienceRepository;
 
+    private static final String GUIDANCE_QUERY = "面试技巧 简历优化 职业发展";
+
     // 模拟面试会话缓存
     private final Map<Long, Conversation> simulationCache = new HashMap<>();
 
+    public InterviewSimulatorServiceImpl(
+            LLMService llmService,
+            PromptService promptService,
+            RagService ragService,
+            InterviewerPrompt interviewerPrompt,
+            ContextPacker contextPacker,
+            @Qualifier("llmAsyncExecutor") Executor llmExecutor,
+            InterviewSimulationRepository simulationRepository,
+            JobDescriptionRepository jobDescriptionRepository,
+            InterviewQuestionRepository questionRepository,
+            InterviewExperienceRepository experienceRepository) {
+        this.llmService = llmService;
+        this.promptService = promptService;
+        this.ragService = ragService;
+        this.interviewerPrompt = interviewerPrompt;
+        this.contextPacker = contextPacker;
+        this.llmExecutor = llmExecutor;
+        this.simulationRepository = simulationRepository;
+        this.jobDescriptionRepository = jobDescriptionRepository;
+        this.questionRepository = questionRepository;
+        this.experienceRepository = experienceRepository;
+    }
+
     @Override
     @Transactional
     public Long createSimulation(Long userId, Long jobDescriptionId, String simulationType) {
@@ -272,10 +305,21 @@ public class InterviewSimulatorServiceImpl implements InterviewSimulatorService
 
     @Override
     public Map<String, Object> evaluateAnswer(String question, String answer) {
-        // 1. 使用RAG检索相关内容
-        RetrievalContext retrievalContext = ragService.searchWithContext(question, 3);
+        // 使用RAG检索相关内容，按参考资料生成评估
+        return evaluate(question, answer, retrieveReference(question, 3));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> evaluateAnswerAsync(String question, String answer) {
+        return retrieveReferenceAsync(question, 3)
+                .thenApplyAsync(reference -> evaluate(question, answer, reference), llmExecutor);
+    }
 
-        // 2. 准备评估提示词
+    /**
+     * 按检索到的参考资料生成答案评估
+     */
+    private Map<String, Object> evaluate(String question, String answer, String reference) {
+        // 1. 准备评估提示词
         String prompt = """
                 你是一位专业的技术面试评估专家。请评估候选人对以下问题的回答质量。
                 
@@ -304,20 +348,20 @@ public class InterviewSimulatorServiceImpl implements InterviewSimulatorService
                 请以JSON格式返回评估结果，包含上述所有字段。
                 """;
 
-        // 3. 替换变量
+        // 2. 替换变量
         Map<String, Object> variables = new HashMap<>();
         variables.put("question", question);
         variables.put("answer", answer);
-        variables.put("reference", retrievalContext.formatAsText());
+        variables.put("reference", reference);
 
         String formattedPrompt = promptService.formatPrompt(
                 PromptTemplate.builder().content(prompt).build(),
                 variables);
 
-        // 4. 生成评估
+        // 3. 生成评估
         String evaluationText = llmService.generateText(formattedPrompt);
 
-        // 5. 解析评估结果
+        // 4. 解析评估结果
         try {
             // TODO: 实现JSON解析逻辑
             // 这里简化处理，返回文本结果
@@ -334,10 +378,20 @@ public class InterviewSimulatorServiceImpl implements InterviewSimulatorService
 
     @Override
     public String provideGuidance(Long userId) {
-        // 1. 使用RAG检索相关内容
-        RetrievalContext retrievalContext = ragService.searchWithContext("面试技巧 简历优化 职业发展", 5);
+        // 使用RAG检索相关内容，按参考资料生成指导
+        return guide(retrieveReference(GUIDANCE_QUERY, 5));
+    }
 
-        // 2. 准备指导提示词
+    @Override
+    public CompletableFuture<String> provideGuidanceAsync(Long userId) {
+        return retrieveReferenceAsync(GUIDANCE_QUERY, 5).thenApplyAsync(this::guide, llmExecutor);
+    }
+
+    /**
+     * 按检索到的参考资料生成面试指导
+     */
+    private String guide(String reference) {
+        // 1. 准备指导提示词
         String prompt = """
                 你是一位职业发展顾问和面试教练。请根据以下内容，为求职者提供全面的面试准备和职业发展指导。
                 
@@ -355,15 +409,15 @@ public class InterviewSimulatorServiceImpl implements InterviewSimulatorService
                 请提供详细、实用且有针对性的建议，帮助求职者在面试和职业发展中取得成功。
                 """;
 
-        // 3. 替换变量
+        // 2. 替换变量
         Map<String, Object> variables = new HashMap<>();
-        variables.put("reference", retrievalContext.formatAsText());
+        variables.put("reference", reference);
 
         String formattedPrompt = promptService.formatPrompt(
                 PromptTemplate.builder().content(prompt).build(),
                 variables);
 
-        // 4. 生成指导
+        // 3. 生成指导
         return llmService.generateText(formattedPrompt);
     }
 
@@ -498,4 +552,55 @@ public class InterviewSimulatorServiceImpl implements InterviewSimulatorService
 
         return "";
     }
+
+    /**
+     * 同步检索参考资料
+     */
+    private String retrieveReference(String query, int topK) {
+        return packReference(ragService.searchWithContext(query, topK));
+    }
+
+    /**
+     * 异步检索参考资料
+     * 检索线程池已满时异步接口立即以拒绝异常失败，此时在调用线程上同步检索，不降级为没有参考资料的生成
+     */
+    private CompletableFuture<String> retrieveReferenceAsync(String query, int topK) {
+        CompletableFuture<RetrievalContext> retrieval = ragService.searchWithContextAsync(query, topK);
+        if (!isRejected(retrieval)) {
+            return retrieval.thenApply(this::packReference);
+        }
+        log.warn("异步检索线程池已满，在调用线程上同步检索参考资料");
+        try {
+            return CompletableFuture.completedFuture(retrieveReference(query, topK));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static boolean isRejected(CompletableFuture<?> future) {
+        if (!future.isCompletedExceptionally()) {
+            return false;
+        }
+        try {
+            future.getNow(null);
+            return false;
+        } catch (CompletionException e) {
+            return e.getCause() instanceof RejectedExecutionException;
+        } catch (CancellationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 按 token 预算装配参考资料，提示词长度不随检索结果数量增长
+     */
+    private String packReference(RetrievalContext retrievalContext) {
+        PackedContext packed = contextPacker.pack(retrievalContext);
+        if (packed.getTruncatedDocuments() > 0 || packed.getDroppedDocuments() > 0) {
+            log.debug("参考资料装配: 使用{}/{}个token, 截断{}个文档, 丢弃{}个文档({}个token), 去重{}个句子",
+                    packed.getUsedTokens(), packed.getBudgetTokens(), packed.getTruncatedDocuments(),
+                    packed.getDroppedDocuments(), packed.getDroppedTokens(), packed.getDuplicateSentences());
+        }
+        return packed.getText();
+    }
 }
@@ -0,0 +1,183 @@
+package com.interview.rag.cache;
+
+import com.interview.rag.util.EmbeddingCodec;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 嵌入向量磁盘缓存
+ * 每个缓存项一个文件，按键的前两位分目录存放，内容为 float32 二进制编码（无损）。
+ * 命中时刷新文件修改时间，总大小超过上限时按修改时间淘汰最旧的文件，近似LRU
+ */
+@Slf4j
+public class EmbeddingDiskCache {
+
+    private static final String FILE_SUFFIX = ".emb";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final AtomicLong currentBytes = new AtomicLong();
+    private final AtomicLong entryCount = new AtomicLong();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    /**
+     * @param directory 缓存目录
+     * @param maxBytes 缓存总大小上限（字节）
+     */
+    public EmbeddingDiskCache(Path directory, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory);
+        for (CachedFile file : listFiles()) {
+            currentBytes.addAndGet(file.size);
+            entryCount.incrementAndGet();
+        }
+        log.info("嵌入磁盘缓存已加载: 目录[{}], {}条, {}KB", directory, entryCount.get(), currentBytes.get() / 1024);
+    }
+
+    /**
+     * 读取缓存
+     *
+     * @param key 缓存键（十六进制哈希）
+     * @return 向量，不存在或损坏时返回 null
+     */
+    public float[] get(String key) {
+        Path path = pathOf(key);
+        try {
+            float[] vector = EmbeddingCodec.decode(Files.readAllBytes(path));
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+            return vector;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            log.warn("读取嵌入磁盘缓存失败，已删除该缓存项: {}", path, e);
+            delete(path);
+            return null;
+        }
+    }
+
+    /**
+     * 写入缓存
+     *
+     * @param key 缓存键（十六进制哈希）
+     * @param vector 向量
+     */
+    public void put(String key, float[] vector) {
+        Path path = pathOf(key);
+        byte[] data = EmbeddingCodec.encode(vector, EmbeddingCodec.Format.FLOAT32);
+        try {
+            Files.createDirectories(path.getParent());
+            boolean exists = Files.exists(path);
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            Files.write(temp, data);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (!exists) {
+                currentBytes.addAndGet(data.length);
+                entryCount.incrementAndGet();
+            }
+        } catch (IOException e) {
+            log.warn("写入嵌入磁盘缓存失败: {}", path, e);
+            return;
+        }
+
+        if (currentBytes.get() > maxBytes) {
+            evict();
+        }
+    }
+
+    /**
+     * 缓存项数量
+     */
+    public long size() {
+        return entryCount.get();
+    }
+
+    /**
+     * 缓存占用的磁盘空间（字节）
+     */
+    public long sizeInBytes() {
+        return currentBytes.get();
+    }
+
+    /**
+     * 按修改时间淘汰最旧的文件，直到总大小降到上限的90%
+     */
+    private void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            List<CachedFile> files = listFiles();
+            files.sort(Comparator.comparingLong(file -> file.lastModified));
+            long total = files.stream().mapToLong(file -> file.size).sum();
+            long target = maxBytes / 10 * 9;
+            int removed = 0;
+            for (CachedFile file : files) {
+                if (total <= target) {
+                    break;
+                }
+                if (delete(file.path)) {
+                    total -= file.size;
+                    removed++;
+                }
+            }
+            currentBytes.set(total);
+            entryCount.set(files.size() - removed);
+            log.debug("嵌入磁盘缓存淘汰{}条, 剩余{}KB", removed, total / 1024);
+        } catch (IOException e) {
+            log.warn("嵌入磁盘缓存淘汰失败: {}", directory, e);
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private List<CachedFile> listFiles() throws IOException {
+        List<CachedFile> files = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.filter(path -> path.getFileName().toString().endsWith(FILE_SUFFIX)).forEach(path -> {
+                try {
+                    files.add(new CachedFile(path, Files.size(path), Files.getLastModifiedTime(path).toMillis()));
+                } catch (IOException e) {
+                    // 文件可能已被并发淘汰
+                }
+            });
+        }
+        return files;
+    }
+
+    private boolean delete(Path path) {
+        try {
+            return Files.deleteIfExists(path);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private Path pathOf(String key) {
+        return directory.resolve(key.substring(0, 2)).resolve(key + FILE_SUFFIX);
+    }
+
+    private static final class CachedFile {
+        final Path path;
+        final long size;
+        final long lastModified;
+
+        CachedFile(Path path, long size, long lastModified) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.interview.rag.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.interview.rag.model.QueryCacheStats;
+import com.interview.rag.model.QueryResult;
+import com.interview.rag.util.TextNormalizer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 检索结果缓存
+ * <p>
+ * 键为 (规范化查询, topK, 元数据筛选条件)，条目同时记录写入时的集合版本号；
+ * 读取时版本号与当前不一致即视为失效，集合的任何写操作都会使已有结果失效。
+ * 容量按条目数限制，并设置写入后过期时间兜底
+ */
+@Slf4j
+@Component
+public class QueryResultCache {
+
+    private final boolean enabled;
+    private final Cache<String, CachedResult> cache;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder savedNanos = new LongAdder();
+
+    public QueryResultCache(
+            @Value("${rag.query-cache.enabled:true}") boolean enabled,
+            @Value("${rag.query-cache.max-entries:10000}") long maxEntries,
+            @Value("${rag.query-cache.ttl-seconds:600}") long ttlSeconds) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * 生成缓存键
+     *
+     * @param query 查询文本
+     * @param topK 返回的最大结果数
+     * @param metadataFilter 元数据筛选条件，可为 null
+     * @return 缓存键
+     */
+    public String key(String query, int topK, Map<String, Object> metadataFilter) {
+        StringBuilder key = new StringBuilder(TextNormalizer.normalize(query))
+                .append('\u0000').append(topK);
+        if (metadataFilter != null && !metadataFilter.isEmpty()) {
+            key.append('\u0000').append(new TreeMap<>(metadataFilter));
+        }
+        return key.toString();
+    }
+
+    /**
+     * 读取缓存
+     *
+     * @param key 缓存键
+     * @param collectionVersion 当前集合版本号
+     * @return 缓存结果的副本，未命中或已失效时返回 null
+     */
+    public QueryResult get(String key, long collectionVersion) {
+        if (!enabled) {
+            return null;
+        }
+        CachedResult cached = cache.getIfPresent(key);
+        if (cached == null) {
+            misses.increment();
+            return null;
+        }
+        if (cached.collectionVersion != collectionVersion) {
+            invalidations.increment();
+            misses.increment();
+            cache.invalidate(key);
+            return null;
+        }
+        hits.increment();
+        savedNanos.add(cached.computeNanos);
+        return QueryResult.builder()
+                .query(cached.result.getQuery())
+                .documents(new ArrayList<>(cached.result.getDocuments()))
+                .context(cached.result.getContext())
+                .executionTime(cached.result.getExecutionTime())
+                .build();
+    }
+
+    /**
+     * 写入缓存
+     *
+     * @param key 缓存键
+     * @param collectionVersion 检索开始时的集合版本号
+     * @param result 检索结果
+     * @param computeNanos 检索耗时（纳秒）
+     */
+    public void put(String key, long collectionVersion, QueryResult result, long computeNanos) {
+        if (!enabled) {
+            return;
+        }
+        QueryResult copy = QueryResult.builder()
+                .query(result.getQuery())
+                .documents(new ArrayList<>(result.getDocuments()))
+                .context(result.getContext())
+                .executionTime(result.getExecutionTime())
+                .build();
+        cache.put(key, new CachedResult(collectionVersion, copy, computeNanos));
+    }
+
+    /**
+     * 获取缓存统计
+     */
+    public QueryCacheStats getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long total = hitCount + missCount;
+        return QueryCacheStats.builder()
+                .hits(hitCount)
+                .misses(missCount)
+                .invalidations(invalidations.sum())
+                .hitRate(total == 0 ? 0.0 : (double) hitCount / total)
+                .savedMillis(TimeUnit.NANOSECONDS.toMillis(savedNanos.sum()))
+                .entries(cache.estimatedSize())
+                .build();
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * 定期输出缓存统计
+     */
+    @Scheduled(fixedDelayString = "${rag.query-cache.report-interval-ms:300000}")
+    public void reportStats() {
+        if (!enabled || hits.sum() + misses.sum() == 0) {
+            return;
+        }
+        QueryCacheStats stats = getStats();
+        log.info("检索结果缓存: 命中{}次, 未命中{}次, 失效{}次, 命中率{}, 累计节省{}ms, 条目{}",
+                stats.getHits(), stats.getMisses(), stats.getInvalidations(),
+                String.format("%.2f%%", stats.getHitRate() * 100), stats.getSavedMillis(), stats.getEntries());
+    }
+
+    private static final class CachedResult {
+        final long collectionVersion;
+        final QueryResult result;
+        final long computeNanos;
+
+        CachedResult(long collectionVersion, QueryResult result, long computeNanos) {
+            this.collectionVersion = collectionVersion;
+            this.result = result;
+            this.computeNanos = computeNanos;
+        }
+    }
+}
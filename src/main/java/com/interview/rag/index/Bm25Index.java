@@ -0,0 +1,275 @@
+package com.interview.rag.index;
+
+import com.interview.rag.util.LexicalTokenizer;
+import com.interview.rag.util.TopKSelector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 基于倒排索引的 BM25 关键词检索
+ * <p>
+ * 倒排表按词保存文档序号与词频两个整型数组，文档序号只增不减，数组天然有序。
+ * 删除采用标记删除，被删除的文档超过有效文档数时压缩倒排表并重新分配序号。
+ * 分词规则见 {@link LexicalTokenizer}
+ */
+public class Bm25Index {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int COMPACT_THRESHOLD = 1024;
+
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private int[] lengths = new int[INITIAL_CAPACITY];
+    private final BitSet deleted = new BitSet();
+    private int count;
+    private long totalLength;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 添加文档，ID 已存在时覆盖
+     *
+     * @param id 文档ID
+     * @param text 文档内容
+     */
+    public void add(long id, String text) {
+        List<String> tokens = LexicalTokenizer.tokenize(text);
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : tokens) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+                lengths = Arrays.copyOf(lengths, count * 2);
+            }
+            int ordinal = count++;
+            ids[ordinal] = id;
+            lengths[ordinal] = tokens.size();
+            totalLength += tokens.size();
+            ordinals.put(id, ordinal);
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), key -> new Postings()).add(ordinal, entry.getValue());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除文档
+     *
+     * @param id 文档ID
+     * @return 是否存在该ID
+     */
+    public boolean remove(long id) {
+        lock.writeLock().lock();
+        try {
+            boolean removed = removeInternal(id);
+            int deletedCount = deleted.cardinality();
+            if (deletedCount >= COMPACT_THRESHOLD && deletedCount > ordinals.size()) {
+                compact();
+            }
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * BM25 检索
+     *
+     * @param query 查询文本
+     * @param topK 返回的最大结果数
+     * @return 按得分降序排列的命中列表
+     */
+    public List<ScoredId> search(String query, int topK) {
+        List<ScoredId> results = new ArrayList<>();
+        if (topK <= 0) {
+            return results;
+        }
+        // 查询中的重复词只计一次
+        Set<String> terms = new LinkedHashSet<>(LexicalTokenizer.tokenize(query));
+        if (terms.isEmpty()) {
+            return results;
+        }
+
+        lock.readLock().lock();
+        try {
+            int liveCount = ordinals.size();
+            if (liveCount == 0) {
+                return results;
+            }
+            float averageLength = Math.max(1f, (float) totalLength / liveCount);
+            float[] scores = new float[count];
+            BitSet touched = new BitSet(count);
+
+            for (String term : terms) {
+                Postings list = postings.get(term);
+                if (list == null) {
+                    continue;
+                }
+                int documentFrequency = Math.min(list.size, liveCount);
+                float idf = (float) Math.log(1 + (liveCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+                for (int i = 0; i < list.size; i++) {
+                    int ordinal = list.docs[i];
+                    if (deleted.get(ordinal)) {
+                        continue;
+                    }
+                    float tf = list.freqs[i];
+                    float norm = K1 * (1 - B + B * lengths[ordinal] / averageLength);
+                    scores[ordinal] += idf * tf * (K1 + 1) / (tf + norm);
+                    touched.set(ordinal);
+                }
+            }
+
+            TopKSelector selector = new TopKSelector(topK);
+            for (int ordinal = touched.nextSetBit(0); ordinal >= 0; ordinal = touched.nextSetBit(ordinal + 1)) {
+                selector.offer(ids[ordinal], scores[ordinal]);
+            }
+            return ScoredId.ranked(selector);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(long id) {
+        lock.readLock().lock();
+        try {
+            return ordinals.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long[] ids() {
+        lock.readLock().lock();
+        try {
+            return ordinals.keySet().stream().mapToLong(Long::longValue).toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 词典大小
+     */
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            ordinals.clear();
+            deleted.clear();
+            ids = new long[INITIAL_CAPACITY];
+            lengths = new int[INITIAL_CAPACITY];
+            count = 0;
+            totalLength = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean removeInternal(long id) {
+        Integer ordinal = ordinals.remove(id);
+        if (ordinal == null) {
+            return false;
+        }
+        deleted.set(ordinal);
+        totalLength -= lengths[ordinal];
+        return true;
+    }
+
+    /**
+     * 压缩：去除已删除文档并重新分配连续序号
+     */
+    private void compact() {
+        int[] remap = new int[count];
+        int next = 0;
+        for (int ordinal = 0; ordinal < count; ordinal++) {
+            if (deleted.get(ordinal)) {
+                remap[ordinal] = -1;
+                continue;
+            }
+            remap[ordinal] = next;
+            ids[next] = ids[ordinal];
+            lengths[next] = lengths[ordinal];
+            ordinals.put(ids[next], next);
+            next++;
+        }
+        count = next;
+        deleted.clear();
+
+        postings.values().removeIf(list -> {
+            list.remap(remap);
+            return list.size == 0;
+        });
+    }
+
+    /**
+     * 单个词的倒排表
+     */
+    private static final class Postings {
+        int[] docs = new int[4];
+        int[] freqs = new int[4];
+        int size;
+
+        void add(int doc, int freq) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size] = freq;
+            size++;
+        }
+
+        void remap(int[] remap) {
+            int write = 0;
+            for (int read = 0; read < size; read++) {
+                int mapped = remap[docs[read]];
+                if (mapped >= 0) {
+                    docs[write] = mapped;
+                    freqs[write] = freqs[read];
+                    write++;
+                }
+            }
+            size = write;
+            if (docs.length > 4 && size < docs.length / 4) {
+                docs = Arrays.copyOf(docs, Math.max(4, size));
+                freqs = Arrays.copyOf(freqs, Math.max(4, size));
+            }
+        }
+    }
+}
@@ -0,0 +1,521 @@
+package com.interview.rag.index;
+
+import com.interview.rag.util.VectorKernels;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 基于内存映射段文件的向量存储
+ * <p>
+ * 每个集合一个目录，包含若干只追加的段文件、一个清单文件和一个删除标记文件。
+ * 段文件通过 {@link FileChannel#map} 映射，向量位于堆外，启动时只需映射文件而无需扫描数据表。
+ * <p>
+ * 段文件格式（小端序）：64字节文件头（魔数、版本、维度、容量）+ 定长记录，
+ * 每条记录为 8字节文档ID + 4字节向量范数 + dimensions 个 float32。
+ * 清单文件记录各段已提交的记录数，崩溃后未提交的记录会被丢弃，由调用方与数据库对账补齐。
+ * 文档ID视为不可复用（与 vector_storage 自增主键一致）。
+ */
+@Slf4j
+public class EmbeddingSegmentStore {
+
+    private static final int MAGIC = 0x52414753;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final String MANIFEST_FILE = "manifest.properties";
+    private static final String TOMBSTONE_FILE = "tombstones.bin";
+    private static final String SEGMENT_FILE_FORMAT = "segment-%06d.seg";
+    private static final int VISIT_BATCH_SIZE = 256;
+
+    private final Path directory;
+    private final int dimensions;
+    private final int segmentCapacity;
+    private final int recordSize;
+    private final int recordFloats;
+
+    private final List<Segment> segments = new ArrayList<>();
+    private final Map<Long, Long> locations = new HashMap<>();
+    private final Set<Long> tombstones = new HashSet<>();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 打开或创建段存储
+     *
+     * @param directory 集合目录
+     * @param dimensions 向量维度
+     * @param segmentCapacity 每个段文件的最大记录数
+     */
+    public EmbeddingSegmentStore(Path directory, int dimensions, int segmentCapacity) throws IOException {
+        if (dimensions <= 0 || segmentCapacity <= 0) {
+            throw new IllegalArgumentException("段存储参数不合法: dimensions=" + dimensions + ", capacity=" + segmentCapacity);
+        }
+        this.directory = directory;
+        this.dimensions = dimensions;
+        this.segmentCapacity = segmentCapacity;
+        this.recordFloats = 3 + dimensions;
+        this.recordSize = recordFloats * Float.BYTES;
+
+        Files.createDirectories(directory);
+        load();
+    }
+
+    /**
+     * 追加向量
+     *
+     * @param id 文档ID
+     * @param vector 向量
+     */
+    public void append(long id, float[] vector) {
+        if (vector == null || vector.length != dimensions) {
+            throw new IllegalArgumentException("向量维度不匹配: " + (vector == null ? 0 : vector.length) + " vs " + dimensions);
+        }
+
+        lock.writeLock().lock();
+        try {
+            Long previous = locations.remove(id);
+            if (previous != null) {
+                markDeleted(previous);
+            }
+            tombstones.remove(id);
+
+            Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if (segment == null || segment.count >= segmentCapacity) {
+                segment = createSegment(segments.size() + 1);
+                segments.add(segment);
+            }
+
+            float norm = 0f;
+            for (float value : vector) {
+                norm += value * value;
+            }
+
+            int slot = segment.count;
+            ByteBuffer buffer = segment.buffer;
+            int offset = HEADER_SIZE + slot * recordSize;
+            buffer.putLong(offset, id);
+            buffer.putFloat(offset + Long.BYTES, (float) Math.sqrt(norm));
+            int vectorOffset = offset + Long.BYTES + Float.BYTES;
+            for (int i = 0; i < dimensions; i++) {
+                buffer.putFloat(vectorOffset + i * Float.BYTES, vector[i]);
+            }
+            segment.count = slot + 1;
+            locations.put(id, location(segments.size() - 1, slot));
+        } catch (IOException e) {
+            throw new IllegalStateException("创建段文件失败: " + directory, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 标记删除向量
+     *
+     * @param id 文档ID
+     * @return 是否存在该ID
+     */
+    public boolean delete(long id) {
+        lock.writeLock().lock();
+        try {
+            Long location = locations.remove(id);
+            if (location == null) {
+                return false;
+            }
+            markDeleted(location);
+            tombstones.add(id);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 读取向量到目标数组
+     *
+     * @param id 文档ID
+     * @param target 目标数组，长度不小于维度
+     * @return 是否存在该ID
+     */
+    public boolean read(long id, float[] target) {
+        lock.readLock().lock();
+        try {
+            Long location = locations.get(id);
+            if (location == null) {
+                return false;
+            }
+            FloatBuffer floats = segments.get(segmentOf(location)).floats();
+            floats.position(slotOf(location) * recordFloats + 3);
+            floats.get(target, 0, dimensions);
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(long id) {
+        lock.readLock().lock();
+        try {
+            return locations.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 遍历所有有效向量，回调中的数组会被复用，需要保留时请自行复制
+     * 按批持有读锁复制向量，回调执行期间不持有锁，遍历过程中可以并发写入
+     */
+    public void forEach(VectorVisitor visitor) {
+        long[] ids = new long[VISIT_BATCH_SIZE];
+        float[] batch = new float[VISIT_BATCH_SIZE * dimensions];
+        float[] vector = new float[dimensions];
+        int segmentIndex = 0;
+        int slot = 0;
+        while (true) {
+            int copied = 0;
+            FloatBuffer floats = null;
+            lock.readLock().lock();
+            try {
+                while (copied < VISIT_BATCH_SIZE && segmentIndex < segments.size()) {
+                    Segment segment = segments.get(segmentIndex);
+                    if (slot >= segment.count) {
+                        segmentIndex++;
+                        slot = 0;
+                        floats = null;
+                        continue;
+                    }
+                    if (!segment.deleted.get(slot)) {
+                        if (floats == null) {
+                            floats = segment.floats();
+                        }
+                        floats.position(slot * recordFloats + 3);
+                        floats.get(batch, copied * dimensions, dimensions);
+                        ids[copied++] = segment.buffer.getLong(HEADER_SIZE + slot * recordSize);
+                    }
+                    slot++;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (copied == 0) {
+                return;
+            }
+            for (int i = 0; i < copied; i++) {
+                System.arraycopy(batch, i * dimensions, vector, 0, dimensions);
+                visitor.visit(ids[i], vector);
+            }
+        }
+    }
+
+    /**
+     * 计算查询向量与指定段内所有有效向量的余弦相似度
+     *
+     * @param segmentIndex 段序号
+     * @param query 查询向量
+     * @param queryNorm 查询向量的范数
+     * @param kernel 点积内核
+     * @param consumer 结果回调
+     */
+    public void scoreSegment(int segmentIndex, float[] query, float queryNorm,
+                             VectorKernels kernel, ScoreConsumer consumer) {
+        float[] scratch = new float[dimensions];
+        lock.readLock().lock();
+        try {
+            if (segmentIndex >= segments.size()) {
+                return;
+            }
+            Segment segment = segments.get(segmentIndex);
+            FloatBuffer floats = segment.floats();
+            for (int slot = 0; slot < segment.count; slot++) {
+                if (segment.deleted.get(slot)) {
+                    continue;
+                }
+                int base = slot * recordFloats;
+                float norm = floats.get(base + 2);
+                floats.position(base + 3);
+                floats.get(scratch);
+                float dot = kernel.dotProduct(query, 0, scratch, 0, dimensions);
+                float score = norm > 0 && queryNorm > 0 ? dot / (norm * queryNorm) : 0f;
+                consumer.accept(segment.buffer.getLong(HEADER_SIZE + slot * recordSize), score);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int segmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long[] ids() {
+        lock.readLock().lock();
+        try {
+            return locations.keySet().stream().mapToLong(Long::longValue).toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return locations.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    /**
+     * 清空存储并删除所有段文件
+     */
+    public void clear() throws IOException {
+        lock.writeLock().lock();
+        try {
+            for (Segment segment : segments) {
+                segment.channel.close();
+                Files.deleteIfExists(segment.path);
+            }
+            segments.clear();
+            locations.clear();
+            tombstones.clear();
+            writeMetadata(new ArrayList<>());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 将映射内容刷盘并提交清单，清单提交前的追加在崩溃后会丢失
+     */
+    public void flush() throws IOException {
+        List<int[]> committed = new ArrayList<>();
+        List<MappedByteBuffer> buffers = new ArrayList<>();
+        Set<Long> deleted;
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < segments.size(); i++) {
+                committed.add(new int[]{i + 1, segments.get(i).count});
+                buffers.add(segments.get(i).buffer);
+            }
+            deleted = new HashSet<>(tombstones);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        for (MappedByteBuffer buffer : buffers) {
+            buffer.force();
+        }
+        writeTombstones(deleted);
+        writeMetadata(committed);
+    }
+
+    /**
+     * 刷盘并释放文件句柄
+     */
+    public void close() throws IOException {
+        flush();
+        lock.writeLock().lock();
+        try {
+            for (Segment segment : segments) {
+                segment.channel.close();
+            }
+            segments.clear();
+            locations.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void load() throws IOException {
+        Path manifestPath = directory.resolve(MANIFEST_FILE);
+        if (!Files.exists(manifestPath)) {
+            return;
+        }
+
+        Properties manifest = new Properties();
+        try (InputStream in = Files.newInputStream(manifestPath)) {
+            manifest.load(in);
+        }
+        int storedDimensions = Integer.parseInt(manifest.getProperty("dimensions"));
+        int storedCapacity = Integer.parseInt(manifest.getProperty("segmentCapacity"));
+        if (storedDimensions != dimensions || storedCapacity != segmentCapacity) {
+            throw new IllegalStateException("段存储配置与磁盘文件不一致: " + directory
+                    + ", dimensions=" + storedDimensions + ", capacity=" + storedCapacity);
+        }
+
+        Path tombstonePath = directory.resolve(TOMBSTONE_FILE);
+        if (Files.exists(tombstonePath)) {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(tombstonePath)).order(ByteOrder.LITTLE_ENDIAN);
+            while (buffer.remaining() >= Long.BYTES) {
+                tombstones.add(buffer.getLong());
+            }
+        }
+
+        int segmentTotal = Integer.parseInt(manifest.getProperty("segments", "0"));
+        for (int number = 1; number <= segmentTotal; number++) {
+            Segment segment = openSegment(number);
+            segment.count = Integer.parseInt(manifest.getProperty("segment." + number + ".count", "0"));
+            segments.add(segment);
+
+            int segmentIndex = segments.size() - 1;
+            for (int slot = 0; slot < segment.count; slot++) {
+                long id = segment.buffer.getLong(HEADER_SIZE + slot * recordSize);
+                if (tombstones.contains(id)) {
+                    segment.deleted.set(slot);
+                    continue;
+                }
+                Long previous = locations.put(id, location(segmentIndex, slot));
+                if (previous != null) {
+                    markDeleted(previous);
+                }
+            }
+        }
+        log.info("已加载向量段存储: 目录[{}], 段数{}, 有效向量{}条", directory, segments.size(), locations.size());
+    }
+
+    private Segment createSegment(int number) throws IOException {
+        Segment segment = openSegment(number);
+        ByteBuffer header = segment.buffer;
+        header.putInt(0, MAGIC);
+        header.putInt(4, VERSION);
+        header.putInt(8, dimensions);
+        header.putInt(12, segmentCapacity);
+        return segment;
+    }
+
+    private Segment openSegment(int number) throws IOException {
+        Path path = directory.resolve(String.format(SEGMENT_FILE_FORMAT, number));
+        boolean exists = Files.exists(path);
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = HEADER_SIZE + (long) segmentCapacity * recordSize;
+        if (size > Integer.MAX_VALUE) {
+            channel.close();
+            throw new IllegalArgumentException("段文件过大，请减小段容量: " + size + " 字节");
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (exists && (buffer.getInt(0) != MAGIC || buffer.getInt(8) != dimensions)) {
+            channel.close();
+            throw new IllegalStateException("段文件格式不正确: " + path);
+        }
+        return new Segment(path, channel, buffer, segmentCapacity);
+    }
+
+    private void writeTombstones(Set<Long> deleted) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(deleted.size() * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (long id : deleted) {
+            buffer.putLong(id);
+        }
+        writeAtomically(directory.resolve(TOMBSTONE_FILE), buffer.array());
+    }
+
+    private void writeMetadata(List<int[]> committed) throws IOException {
+        Properties manifest = new Properties();
+        manifest.setProperty("version", String.valueOf(VERSION));
+        manifest.setProperty("dimensions", String.valueOf(dimensions));
+        manifest.setProperty("segmentCapacity", String.valueOf(segmentCapacity));
+        manifest.setProperty("segments", String.valueOf(committed.size()));
+        for (int[] segment : committed) {
+            manifest.setProperty("segment." + segment[0] + ".count", String.valueOf(segment[1]));
+        }
+
+        Path temp = directory.resolve(MANIFEST_FILE + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            manifest.store(out, "vector segment manifest");
+        }
+        Files.move(temp, directory.resolve(MANIFEST_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void writeAtomically(Path target, byte[] content) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.write(temp, content);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void markDeleted(long location) {
+        segments.get(segmentOf(location)).deleted.set(slotOf(location));
+    }
+
+    private static long location(int segmentIndex, int slot) {
+        return ((long) segmentIndex << 32) | slot;
+    }
+
+    private static int segmentOf(long location) {
+        return (int) (location >>> 32);
+    }
+
+    private static int slotOf(long location) {
+        return (int) location;
+    }
+
+    /**
+     * 向量遍历回调
+     */
+    @FunctionalInterface
+    public interface VectorVisitor {
+        void visit(long id, float[] vector);
+    }
+
+    /**
+     * 相似度结果回调
+     */
+    @FunctionalInterface
+    public interface ScoreConsumer {
+        void accept(long id, float score);
+    }
+
+    private final class Segment {
+        final Path path;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        final BitSet deleted;
+        volatile int count;
+
+        Segment(Path path, FileChannel channel, MappedByteBuffer buffer, int capacity) {
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.deleted = new BitSet(capacity);
+        }
+
+        /**
+         * 获取记录区的 float 视图，每次调用返回独立的位置游标，可在并发读取中使用
+         */
+        FloatBuffer floats() {
+            ByteBuffer records = buffer.duplicate();
+            records.position(HEADER_SIZE);
+            return records.slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+        }
+    }
+}
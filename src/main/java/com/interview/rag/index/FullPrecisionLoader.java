@@ -0,0 +1,20 @@
+package com.interview.rag.index;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 全精度向量加载器
+ * 量化索引用它读取候选文档的原始向量进行精排
+ */
+@FunctionalInterface
+public interface FullPrecisionLoader {
+
+    /**
+     * 按ID批量加载原始向量
+     *
+     * @param ids 文档ID
+     * @return 文档ID到向量的映射，不存在的ID不出现在结果中
+     */
+    Map<Long, float[]> load(Collection<Long> ids);
+}
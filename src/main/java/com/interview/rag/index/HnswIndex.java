@@ -0,0 +1,506 @@
+package com.interview.rag.index;
+
+import com.interview.rag.util.TopKSelector;
+import com.interview.rag.util.VectorKernels;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+
+/**
+ * HNSW（Hierarchical Navigable Small World）近似最近邻索引
+ * 使用余弦相似度：向量写入时归一化，检索时以点积作为相似度
+ * 删除采用标记删除，被删除的节点仍参与图遍历，但不会进入检索的候选结果，
+ * 已删除节点累积到一定数量后用存活节点重建整张图，回收空间并恢复图的连通质量。
+ * 带筛选条件的检索中，不满足条件的节点同样只参与遍历、不进入候选结果
+ */
+public class HnswIndex implements VectorIndex {
+
+    private static final Comparator<Candidate> NEAREST_FIRST = (a, b) -> Float.compare(b.score, a.score);
+    private static final Comparator<Candidate> FARTHEST_FIRST = (a, b) -> Float.compare(a.score, b.score);
+    private static final VectorKernels KERNELS = VectorKernels.getInstance();
+    private static final int COMPACT_THRESHOLD = 1024;
+
+    private final int dimensions;
+
+    /**
+     * 每个节点在上层的最大连接数
+     */
+    private final int m;
+
+    /**
+     * 每个节点在第0层的最大连接数
+     */
+    private final int maxM0;
+
+    private final int efConstruction;
+
+    private volatile int efSearch;
+
+    private final double levelMultiplier;
+
+    private final Random random = new Random(42);
+
+    private final List<Node> nodes = new ArrayList<>();
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * @param dimensions 向量维度
+     * @param m 每层最大连接数
+     * @param efConstruction 构建时的候选集大小
+     * @param efSearch 检索时的候选集大小
+     */
+    public HnswIndex(int dimensions, int m, int efConstruction, int efSearch) {
+        if (dimensions <= 0 || m < 2 || efConstruction <= 0 || efSearch <= 0) {
+            throw new IllegalArgumentException("HNSW参数不合法: dimensions=" + dimensions + ", m=" + m
+                    + ", efConstruction=" + efConstruction + ", efSearch=" + efSearch);
+        }
+        this.dimensions = dimensions;
+        this.m = m;
+        this.maxM0 = m * 2;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.levelMultiplier = 1.0 / Math.log(m);
+    }
+
+    @Override
+    public void add(long id, float[] vector) {
+        float[] normalized = normalizedCopy(vector);
+
+        lock.writeLock().lock();
+        try {
+            Integer existing = ordinals.remove(id);
+            if (existing != null) {
+                nodes.get(existing).deleted = true;
+                compactIfNeeded();
+            }
+            insert(id, normalized);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinals.remove(id);
+            if (ordinal == null) {
+                return false;
+            }
+            nodes.get(ordinal).deleted = true;
+            compactIfNeeded();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(long id) {
+        lock.readLock().lock();
+        try {
+            return ordinals.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<ScoredId> search(float[] query, int topK) {
+        return search(query, topK, null);
+    }
+
+    @Override
+    public List<ScoredId> search(float[] query, int topK, LongPredicate filter) {
+        if (topK <= 0) {
+            return new ArrayList<>();
+        }
+        float[] normalized = normalizedCopy(query);
+
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0) {
+                return new ArrayList<>();
+            }
+
+            int current = entryPoint;
+            for (int l = maxLevel; l > 0; l--) {
+                current = greedySearch(normalized, current, l);
+            }
+
+            // 已删除节点不进入结果集，束搜索会继续扩展直到凑满 ef 个存活节点或图已遍历完
+            List<Candidate> candidates = searchLayer(normalized, current, Math.max(efSearch, topK), 0, filter, true);
+            List<ScoredId> results = new ArrayList<>(Math.min(topK, candidates.size()));
+            for (Candidate candidate : candidates) {
+                results.add(new ScoredId(nodes.get(candidate.node).id, candidate.score));
+                if (results.size() >= topK) {
+                    break;
+                }
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<ScoredId> searchAmong(float[] query, long[] candidateIds, int topK) {
+        if (topK <= 0) {
+            return new ArrayList<>();
+        }
+        float[] normalized = normalizedCopy(query);
+
+        TopKSelector selector = new TopKSelector(topK);
+        lock.readLock().lock();
+        try {
+            for (long id : candidateIds) {
+                Integer ordinal = ordinals.get(id);
+                if (ordinal == null) {
+                    continue;
+                }
+                selector.offer(id, dot(normalized, nodes.get(ordinal).vector));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return ScoredId.ranked(selector);
+    }
+
+    @Override
+    public long[] ids() {
+        lock.readLock().lock();
+        try {
+            return ordinals.keySet().stream().mapToLong(Long::longValue).toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            nodes.clear();
+            ordinals.clear();
+            entryPoint = -1;
+            maxLevel = -1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 已标记删除但仍占用图节点的数量
+     */
+    public int deletedCount() {
+        lock.readLock().lock();
+        try {
+            return nodes.size() - ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getEfSearch() {
+        return efSearch;
+    }
+
+    /**
+     * 调整检索时的候选集大小，越大召回率越高、延迟越高
+     */
+    public void setEfSearch(int efSearch) {
+        if (efSearch <= 0) {
+            throw new IllegalArgumentException("efSearch必须大于0: " + efSearch);
+        }
+        this.efSearch = efSearch;
+    }
+
+    /**
+     * 插入新节点并在所在的每一层建立连接，调用方需持有写锁
+     */
+    private void insert(long id, float[] normalized) {
+        int level = randomLevel();
+        int ordinal = nodes.size();
+        nodes.add(new Node(id, normalized, level, m, maxM0));
+        ordinals.put(id, ordinal);
+
+        if (entryPoint < 0) {
+            entryPoint = ordinal;
+            maxLevel = level;
+            return;
+        }
+
+        // 自顶向下贪心定位到新节点所在的最高层
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = greedySearch(normalized, current, l);
+        }
+
+        // 在新节点所在的每一层建立双向连接
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            List<Candidate> candidates = searchLayer(normalized, current, efConstruction, l);
+            List<Integer> selected = selectNeighbors(candidates, m);
+            for (int neighbor : selected) {
+                connect(ordinal, neighbor, l);
+                connect(neighbor, ordinal, l);
+            }
+            current = candidates.get(0).node;
+        }
+
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = ordinal;
+        }
+    }
+
+    /**
+     * 已删除节点达到阈值且不少于节点总数的一半时重建，调用方需持有写锁
+     */
+    private void compactIfNeeded() {
+        int deleted = nodes.size() - ordinals.size();
+        if (deleted >= COMPACT_THRESHOLD && deleted * 2 >= nodes.size()) {
+            compact();
+        }
+    }
+
+    /**
+     * 按原写入顺序用存活节点重建整张图，移除已删除的节点
+     */
+    private void compact() {
+        List<Node> live = new ArrayList<>(ordinals.size());
+        for (Node node : nodes) {
+            if (!node.deleted) {
+                live.add(node);
+            }
+        }
+        nodes.clear();
+        ordinals.clear();
+        entryPoint = -1;
+        maxLevel = -1;
+        for (Node node : live) {
+            insert(node.id, node.vector);
+        }
+    }
+
+    /**
+     * 在指定层内从入口节点出发贪心地走向最相似的节点
+     */
+    private int greedySearch(float[] query, int entry, int level) {
+        int current = entry;
+        float currentScore = dot(query, nodes.get(current).vector);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            Node node = nodes.get(current);
+            int[] neighbors = node.neighbors[level];
+            int count = node.neighborCounts[level];
+            for (int i = 0; i < count; i++) {
+                float score = dot(query, nodes.get(neighbors[i]).vector);
+                if (score > currentScore) {
+                    currentScore = score;
+                    current = neighbors[i];
+                    changed = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    private List<Candidate> searchLayer(float[] query, int entry, int ef, int level) {
+        return searchLayer(query, entry, ef, level, null, false);
+    }
+
+    /**
+     * 在指定层内做束搜索
+     * 所有节点都参与扩展，只有满足筛选条件的节点进入结果集
+     *
+     * @param filter 文档ID筛选条件，为 null 时不筛选
+     * @param liveOnly 为 true 时已删除的节点不进入结果集
+     * @return 按相似度降序排列的候选列表，至多 ef 个
+     */
+    private List<Candidate> searchLayer(float[] query, int entry, int ef, int level, LongPredicate filter,
+                                        boolean liveOnly) {
+        BitSet visited = new BitSet(nodes.size());
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(NEAREST_FIRST);
+        PriorityQueue<Candidate> results = new PriorityQueue<>(FARTHEST_FIRST);
+
+        Candidate start = new Candidate(entry, dot(query, nodes.get(entry).vector));
+        visited.set(entry);
+        candidates.add(start);
+        if (accepts(filter, liveOnly, entry)) {
+            results.add(start);
+        }
+
+        while (!candidates.isEmpty()) {
+            Candidate closest = candidates.poll();
+            if (results.size() >= ef && closest.score < results.peek().score) {
+                break;
+            }
+
+            Node node = nodes.get(closest.node);
+            int[] neighbors = node.neighbors[level];
+            int count = node.neighborCounts[level];
+            for (int i = 0; i < count; i++) {
+                int neighbor = neighbors[i];
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+
+                float score = dot(query, nodes.get(neighbor).vector);
+                if (results.size() < ef || score > results.peek().score) {
+                    Candidate candidate = new Candidate(neighbor, score);
+                    candidates.add(candidate);
+                    if (accepts(filter, liveOnly, neighbor)) {
+                        results.add(candidate);
+                        if (results.size() > ef) {
+                            results.poll();
+                        }
+                    }
+                }
+            }
+        }
+
+        List<Candidate> sorted = new ArrayList<>(results);
+        sorted.sort(NEAREST_FIRST);
+        return sorted;
+    }
+
+    /**
+     * 启发式邻居选择：候选节点只有在比已选邻居更接近目标时才会被选中，
+     * 以保留不同方向上的连接，避免邻居全部聚集在同一簇内
+     *
+     * @param candidates 按相似度降序排列的候选列表
+     */
+    private List<Integer> selectNeighbors(List<Candidate> candidates, int limit) {
+        List<Integer> selected = new ArrayList<>(limit);
+        for (Candidate candidate : candidates) {
+            if (selected.size() >= limit) {
+                break;
+            }
+            float[] vector = nodes.get(candidate.node).vector;
+            boolean keep = true;
+            for (int chosen : selected) {
+                if (dot(vector, nodes.get(chosen).vector) > candidate.score) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) {
+                selected.add(candidate.node);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * 添加单向连接，连接数超过上限时重新做邻居选择
+     */
+    private void connect(int from, int to, int level) {
+        Node node = nodes.get(from);
+        int[] neighbors = node.neighbors[level];
+        int count = node.neighborCounts[level];
+        if (count < neighbors.length) {
+            neighbors[count] = to;
+            node.neighborCounts[level] = count + 1;
+            return;
+        }
+
+        List<Candidate> candidates = new ArrayList<>(count + 1);
+        for (int i = 0; i < count; i++) {
+            candidates.add(new Candidate(neighbors[i], dot(node.vector, nodes.get(neighbors[i]).vector)));
+        }
+        candidates.add(new Candidate(to, dot(node.vector, nodes.get(to).vector)));
+        candidates.sort(NEAREST_FIRST);
+
+        List<Integer> selected = selectNeighbors(candidates, neighbors.length);
+        for (int i = 0; i < selected.size(); i++) {
+            neighbors[i] = selected.get(i);
+        }
+        node.neighborCounts[level] = selected.size();
+    }
+
+    private boolean accepts(LongPredicate filter, boolean liveOnly, int ordinal) {
+        Node node = nodes.get(ordinal);
+        if (liveOnly && node.deleted) {
+            return false;
+        }
+        return filter == null || filter.test(node.id);
+    }
+
+    private int randomLevel() {
+        return (int) (-Math.log(1.0 - random.nextDouble()) * levelMultiplier);
+    }
+
+    private float[] normalizedCopy(float[] vector) {
+        if (vector == null || vector.length != dimensions) {
+            throw new IllegalArgumentException("向量维度不匹配: " + (vector == null ? 0 : vector.length) + " vs " + dimensions);
+        }
+        float norm = 0.0f;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        float[] copy = vector.clone();
+        if (norm > 0) {
+            float multiplier = 1.0f / (float) Math.sqrt(norm);
+            for (int i = 0; i < copy.length; i++) {
+                copy[i] *= multiplier;
+            }
+        }
+        return copy;
+    }
+
+    private static float dot(float[] a, float[] b) {
+        return KERNELS.dotProduct(a, 0, b, 0, a.length);
+    }
+
+    private static final class Node {
+        final long id;
+        final float[] vector;
+        final int[][] neighbors;
+        final int[] neighborCounts;
+        volatile boolean deleted;
+
+        Node(long id, float[] vector, int level, int m, int maxM0) {
+            this.id = id;
+            this.vector = vector;
+            this.neighbors = new int[level + 1][];
+            this.neighborCounts = new int[level + 1];
+            for (int l = 0; l <= level; l++) {
+                this.neighbors[l] = new int[l == 0 ? maxM0 : m];
+            }
+        }
+    }
+
+    private static final class Candidate {
+        final int node;
+        final float score;
+
+        Candidate(int node, float score) {
+            this.node = node;
+            this.score = score;
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package com.interview.rag.index;
+
+import com.interview.rag.util.TopKSelector;
+import com.interview.rag.util.VectorKernels;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+
+/**
+ * int8 标量量化索引
+ * <p>
+ * 向量写入时先归一化，再按每个向量自身的最小值与取值范围量化为 0-255，
+ * 只保存量化码与每个向量的 scale/offset，1536 维时每条约 1.5KB（float32 为 6KB）。
+ * 检索时在量化向量上计算近似相似度，取前 topK * rescoreMultiplier 个候选，
+ * 再通过 {@link FullPrecisionLoader} 读取原始向量精排。
+ * <p>
+ * 近似相似度：dot(q, x) ≈ offset * sum(q) + scale * Σ q[i] * code[i]
+ */
+public class Int8QuantizedIndex implements VectorIndex {
+
+    private static final VectorKernels KERNELS = VectorKernels.getInstance();
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int COMPACT_THRESHOLD = 1024;
+
+    private final int dimensions;
+    private final int rescoreMultiplier;
+    private final FullPrecisionLoader fullPrecisionLoader;
+
+    private byte[] codes;
+    private long[] ids;
+    private float[] scales;
+    private float[] offsets;
+    private final BitSet deleted = new BitSet();
+    private int count;
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * @param dimensions 向量维度
+     * @param rescoreMultiplier 精排候选倍数，候选数为 topK * rescoreMultiplier
+     * @param fullPrecisionLoader 原始向量加载器，为 null 时直接返回量化相似度
+     */
+    public Int8QuantizedIndex(int dimensions, int rescoreMultiplier, FullPrecisionLoader fullPrecisionLoader) {
+        if (dimensions <= 0 || rescoreMultiplier < 1) {
+            throw new IllegalArgumentException("量化索引参数不合法: dimensions=" + dimensions
+                    + ", rescoreMultiplier=" + rescoreMultiplier);
+        }
+        this.dimensions = dimensions;
+        this.rescoreMultiplier = rescoreMultiplier;
+        this.fullPrecisionLoader = fullPrecisionLoader;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    @Override
+    public void add(long id, float[] vector) {
+        float[] normalized = normalizedCopy(vector);
+        float min = Float.MAX_VALUE;
+        float max = -Float.MAX_VALUE;
+        for (float value : normalized) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        float scale = max > min ? (max - min) / 255f : 0f;
+
+        lock.writeLock().lock();
+        try {
+            Integer existing = ordinals.remove(id);
+            if (existing != null) {
+                deleted.set(existing);
+            }
+            if (count == ids.length) {
+                if (deleted.cardinality() >= COMPACT_THRESHOLD && deleted.cardinality() * 2 >= count) {
+                    compact();
+                } else {
+                    grow();
+                }
+            }
+
+            int ordinal = count;
+            int base = ordinal * dimensions;
+            for (int i = 0; i < dimensions; i++) {
+                int code = scale > 0 ? Math.round((normalized[i] - min) / scale) : 0;
+                codes[base + i] = (byte) Math.min(255, Math.max(0, code));
+            }
+            ids[ordinal] = id;
+            scales[ordinal] = scale;
+            offsets[ordinal] = min;
+            count++;
+            ordinals.put(id, ordinal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinals.remove(id);
+            if (ordinal == null) {
+                return false;
+            }
+            deleted.set(ordinal);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(long id) {
+        lock.readLock().lock();
+        try {
+            return ordinals.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<ScoredId> search(float[] query, int topK) {
+        return search(query, topK, null);
+    }
+
+    @Override
+    public List<ScoredId> search(float[] query, int topK, LongPredicate filter) {
+        if (topK <= 0) {
+            return new ArrayList<>();
+        }
+        float[] normalized = normalizedCopy(query);
+        float querySum = sum(normalized);
+
+        int candidateCount = fullPrecisionLoader == null ? topK : topK * rescoreMultiplier;
+        TopKSelector selector = new TopKSelector(candidateCount);
+        lock.readLock().lock();
+        try {
+            for (int ordinal = 0; ordinal < count; ordinal++) {
+                if (deleted.get(ordinal) || (filter != null && !filter.test(ids[ordinal]))) {
+                    continue;
+                }
+                offer(selector, ordinal, normalized, querySum);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return finish(normalized, selector, topK);
+    }
+
+    @Override
+    public List<ScoredId> searchAmong(float[] query, long[] candidateIds, int topK) {
+        if (topK <= 0) {
+            return new ArrayList<>();
+        }
+        float[] normalized = normalizedCopy(query);
+        float querySum = sum(normalized);
+
+        int candidateCount = fullPrecisionLoader == null ? topK : topK * rescoreMultiplier;
+        TopKSelector selector = new TopKSelector(candidateCount);
+        lock.readLock().lock();
+        try {
+            for (long id : candidateIds) {
+                Integer ordinal = ordinals.get(id);
+                if (ordinal != null) {
+                    offer(selector, ordinal, normalized, querySum);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return finish(normalized, selector, topK);
+    }
+
+    private void offer(TopKSelector selector, int ordinal, float[] normalized, float querySum) {
+        selector.offer(ids[ordinal], offsets[ordinal] * querySum + scales[ordinal] * quantizedDot(normalized, ordinal));
+    }
+
+    /**
+     * 对量化候选做原始向量精排并截取前 topK 个
+     */
+    private List<ScoredId> finish(float[] normalized, TopKSelector selector, int topK) {
+        List<ScoredId> candidates = ScoredId.ranked(selector);
+        if (fullPrecisionLoader == null || candidates.isEmpty()) {
+            return candidates;
+        }
+        TopKSelector rescored = new TopKSelector(topK);
+        for (ScoredId candidate : rescore(normalized, candidates)) {
+            rescored.offer(candidate.getId(), candidate.getScore());
+        }
+        return ScoredId.ranked(rescored);
+    }
+
+    @Override
+    public long[] ids() {
+        lock.readLock().lock();
+        try {
+            return ordinals.keySet().stream().mapToLong(Long::longValue).toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            ordinals.clear();
+            deleted.clear();
+            count = 0;
+            allocate(INITIAL_CAPACITY);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 量化数据占用的堆内存（字节），不含ID映射表
+     */
+    public long memoryBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) codes.length + (long) ids.length * (Long.BYTES + Float.BYTES * 2);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<ScoredId> rescore(float[] normalizedQuery, List<ScoredId> candidates) {
+        List<Long> candidateIds = new ArrayList<>(candidates.size());
+        for (ScoredId candidate : candidates) {
+            candidateIds.add(candidate.getId());
+        }
+        Map<Long, float[]> vectors = fullPrecisionLoader.load(candidateIds);
+
+        List<ScoredId> rescored = new ArrayList<>(candidates.size());
+        for (ScoredId candidate : candidates) {
+            float[] vector = vectors.get(candidate.getId());
+            if (vector == null || vector.length != dimensions) {
+                // 原始向量不可用时保留量化相似度
+                rescored.add(candidate);
+            } else {
+                rescored.add(new ScoredId(candidate.getId(),
+                        KERNELS.cosineSimilarity(normalizedQuery, 0, vector, 0, dimensions)));
+            }
+        }
+        return rescored;
+    }
+
+    private static float sum(float[] vector) {
+        float total = 0f;
+        for (float value : vector) {
+            total += value;
+        }
+        return total;
+    }
+
+    private float quantizedDot(float[] query, int ordinal) {
+        int base = ordinal * dimensions;
+        float sum0 = 0f;
+        float sum1 = 0f;
+        int i = 0;
+        for (; i + 1 < dimensions; i += 2) {
+            sum0 += query[i] * (codes[base + i] & 0xFF);
+            sum1 += query[i + 1] * (codes[base + i + 1] & 0xFF);
+        }
+        for (; i < dimensions; i++) {
+            sum0 += query[i] * (codes[base + i] & 0xFF);
+        }
+        return sum0 + sum1;
+    }
+
+    /**
+     * 移除已删除的条目，回收空间
+     */
+    private void compact() {
+        int write = 0;
+        for (int read = 0; read < count; read++) {
+            if (deleted.get(read)) {
+                continue;
+            }
+            if (write != read) {
+                System.arraycopy(codes, read * dimensions, codes, write * dimensions, dimensions);
+                ids[write] = ids[read];
+                scales[write] = scales[read];
+                offsets[write] = offsets[read];
+                ordinals.put(ids[write], write);
+            }
+            write++;
+        }
+        count = write;
+        deleted.clear();
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        if ((long) capacity * dimensions > Integer.MAX_VALUE - 8) {
+            capacity = (Integer.MAX_VALUE - 8) / dimensions;
+            if (capacity <= ids.length) {
+                throw new IllegalStateException("量化索引容量已达上限: " + ids.length + " 条");
+            }
+        }
+        codes = Arrays.copyOf(codes, capacity * dimensions);
+        ids = Arrays.copyOf(ids, capacity);
+        scales = Arrays.copyOf(scales, capacity);
+        offsets = Arrays.copyOf(offsets, capacity);
+    }
+
+    private void allocate(int capacity) {
+        codes = new byte[capacity * dimensions];
+        ids = new long[capacity];
+        scales = new float[capacity];
+        offsets = new float[capacity];
+    }
+
+    private float[] normalizedCopy(float[] vector) {
+        if (vector == null || vector.length != dimensions) {
+            throw new IllegalArgumentException("向量维度不匹配: " + (vector == null ? 0 : vector.length) + " vs " + dimensions);
+        }
+        float norm = (float) Math.sqrt(KERNELS.dotProduct(vector, 0, vector, 0, dimensions));
+        float[] copy = Arrays.copyOf(vector, dimensions);
+        if (norm > 0) {
+            for (int i = 0; i < dimensions; i++) {
+                copy[i] /= norm;
+            }
+        }
+        return copy;
+    }
+}
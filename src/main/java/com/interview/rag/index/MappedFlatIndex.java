@@ -0,0 +1,129 @@
+package com.interview.rag.index;
+
+import com.interview.rag.util.TopKSelector;
+import com.interview.rag.util.VectorKernels;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongPredicate;
+
+/**
+ * 基于内存映射段文件的精确检索索引
+ * 向量全部位于堆外的段文件中，检索时顺序扫描并计算余弦相似度，
+ * 无需构建图结构，启动只需映射文件；适合中小规模集合或对召回率要求严格的场景
+ */
+public class MappedFlatIndex implements VectorIndex {
+
+    private static final VectorKernels KERNELS = VectorKernels.getInstance();
+
+    private final EmbeddingSegmentStore store;
+
+    public MappedFlatIndex(EmbeddingSegmentStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public void add(long id, float[] vector) {
+        store.append(id, vector);
+    }
+
+    @Override
+    public boolean remove(long id) {
+        return store.delete(id);
+    }
+
+    @Override
+    public boolean contains(long id) {
+        return store.contains(id);
+    }
+
+    @Override
+    public List<ScoredId> search(float[] query, int topK) {
+        return search(query, topK, null);
+    }
+
+    @Override
+    public List<ScoredId> search(float[] query, int topK, LongPredicate filter) {
+        checkDimensions(query);
+        if (topK <= 0) {
+            return new ArrayList<>();
+        }
+
+        float queryNorm = (float) Math.sqrt(KERNELS.dotProduct(query, 0, query, 0, query.length));
+        TopKSelector selector = new TopKSelector(topK);
+        int segmentCount = store.segmentCount();
+        for (int segment = 0; segment < segmentCount; segment++) {
+            store.scoreSegment(segment, query, queryNorm, KERNELS, (id, score) -> {
+                if (filter != null && !filter.test(id)) {
+                    return;
+                }
+                selector.offer(id, score);
+            });
+        }
+        return ScoredId.ranked(selector);
+    }
+
+    @Override
+    public List<ScoredId> searchAmong(float[] query, long[] candidateIds, int topK) {
+        checkDimensions(query);
+        if (topK <= 0) {
+            return new ArrayList<>();
+        }
+
+        float[] vector = new float[store.getDimensions()];
+        TopKSelector selector = new TopKSelector(topK);
+        for (long id : candidateIds) {
+            if (!store.read(id, vector)) {
+                continue;
+            }
+            selector.offer(id, KERNELS.cosineSimilarity(query, 0, vector, 0, vector.length));
+        }
+        return ScoredId.ranked(selector);
+    }
+
+    @Override
+    public long[] ids() {
+        return store.ids();
+    }
+
+    @Override
+    public int size() {
+        return store.size();
+    }
+
+    @Override
+    public void clear() {
+        try {
+            store.clear();
+        } catch (IOException e) {
+            throw new UncheckedIOException("清空向量段文件失败", e);
+        }
+    }
+
+    @Override
+    public void flush() {
+        try {
+            store.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("向量段文件刷盘失败", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            store.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("关闭向量段文件失败", e);
+        }
+    }
+
+    private void checkDimensions(float[] query) {
+        if (query == null || query.length != store.getDimensions()) {
+            throw new IllegalArgumentException("查询向量维度不匹配: "
+                    + (query == null ? 0 : query.length) + " vs " + store.getDimensions());
+        }
+    }
+}
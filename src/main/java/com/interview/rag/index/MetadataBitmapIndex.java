@@ -0,0 +1,205 @@
+package com.interview.rag.index;
+
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 元数据位图索引
+ * <p>
+ * 对配置的元数据字段，每个 (字段, 取值) 维护一个 Roaring 压缩位图，位图中存放文档ID。
+ * 等值筛选条件转换为位图求交集，在向量打分之前确定候选集合，不再逐条解析元数据JSON。
+ * 取值统一按字符串比较，整数类型的数值不区分 Integer / Long
+ */
+public class MetadataBitmapIndex {
+
+    private final Set<String> fields;
+    private final Map<String, Map<String, Roaring64Bitmap>> bitmaps = new HashMap<>();
+    private Roaring64Bitmap all = new Roaring64Bitmap();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * @param fields 建立位图的元数据字段
+     */
+    public MetadataBitmapIndex(Collection<String> fields) {
+        this.fields = new LinkedHashSet<>(fields);
+        for (String field : this.fields) {
+            bitmaps.put(field, new HashMap<>());
+        }
+    }
+
+    /**
+     * 添加文档，ID 已存在时覆盖旧的元数据
+     *
+     * @param id 文档ID
+     * @param metadata 文档元数据，可以为 null
+     */
+    public void add(long id, Map<String, Object> metadata) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+            all.addLong(id);
+            if (metadata == null) {
+                return;
+            }
+            for (String field : fields) {
+                String value = normalize(metadata.get(field));
+                if (value != null) {
+                    bitmaps.get(field).computeIfAbsent(value, key -> new Roaring64Bitmap()).addLong(id);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除文档
+     *
+     * @param id 文档ID
+     * @return 是否存在该ID
+     */
+    public boolean remove(long id) {
+        lock.writeLock().lock();
+        try {
+            return removeInternal(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 将筛选条件解析为候选文档集合
+     *
+     * @param filter 元数据等值筛选条件
+     * @return 满足全部条件的文档ID位图（独立副本）；条件中包含未建立索引的字段时返回 null
+     */
+    public Roaring64Bitmap resolve(Map<String, Object> filter) {
+        if (filter == null || !fields.containsAll(filter.keySet())) {
+            return null;
+        }
+
+        lock.readLock().lock();
+        try {
+            Roaring64Bitmap result = null;
+            for (Map.Entry<String, Object> entry : filter.entrySet()) {
+                String value = normalize(entry.getValue());
+                Roaring64Bitmap bitmap = value == null ? null : bitmaps.get(entry.getKey()).get(value);
+                if (bitmap == null) {
+                    return new Roaring64Bitmap();
+                }
+                if (result == null) {
+                    result = bitmap.clone();
+                } else {
+                    result.and(bitmap);
+                }
+                if (result.isEmpty()) {
+                    return result;
+                }
+            }
+            return result == null ? all.clone() : result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(long id) {
+        lock.readLock().lock();
+        try {
+            return all.contains(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long[] ids() {
+        lock.readLock().lock();
+        try {
+            return all.toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return all.getLongCardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 压缩位图中的连续区间，重建完成后调用
+     */
+    public void optimize() {
+        lock.writeLock().lock();
+        try {
+            all.runOptimize();
+            for (Map<String, Roaring64Bitmap> values : bitmaps.values()) {
+                for (Roaring64Bitmap bitmap : values.values()) {
+                    bitmap.runOptimize();
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            all = new Roaring64Bitmap();
+            for (Map<String, Roaring64Bitmap> values : bitmaps.values()) {
+                values.clear();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Set<String> getFields() {
+        return fields;
+    }
+
+    private boolean removeInternal(long id) {
+        if (!all.contains(id)) {
+            return false;
+        }
+        all.removeLong(id);
+        // 删除较少发生，直接遍历各取值的位图，不额外保存文档到取值的反向映射
+        for (Map<String, Roaring64Bitmap> values : bitmaps.values()) {
+            values.values().removeIf(bitmap -> {
+                bitmap.removeLong(id);
+                return bitmap.isEmpty();
+            });
+        }
+        return true;
+    }
+
+    /**
+     * 取值规范化：整数按十进制表示，其余按 toString
+     */
+    private static String normalize(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return Long.toString(((Number) value).longValue());
+        }
+        if (value instanceof Number) {
+            double number = ((Number) value).doubleValue();
+            if (number == Math.rint(number) && !Double.isInfinite(number)) {
+                return Long.toString((long) number);
+            }
+        }
+        return value.toString();
+    }
+}
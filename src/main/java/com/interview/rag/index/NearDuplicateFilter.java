@@ -0,0 +1,585 @@
+package com.interview.rag.index;
+
+import com.interview.rag.model.ChunkMetadata;
+import com.interview.rag.model.VectorDocument;
+import com.interview.rag.util.MmrReranker;
+import com.interview.rag.util.SimHash;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 写入前的近重复块过滤，默认关闭
+ * <p>
+ * 每个块计算 64 位 SimHash 指纹，与本进程已写入的块以及同一批中排在前面的块比较，
+ * 汉明距离不超过阈值的块不再嵌入和写入：skip 直接丢弃；merge 在同一批的保留块上记录被合并块的 documentKey，
+ * 与已写入的块重复时仍为丢弃（存储不支持更新元数据）。
+ * <p>
+ * 指纹按集合以及 scope-fields 中各元数据字段的取值分开保存，只有这些字段都相同的块才互相比较，
+ * 按这些字段筛选时不会因为内容落在其他公司、其他来源的块上而查不到。
+ * 命中已写入的块时先确认它仍在存储中，已不存在的块删除指纹后重新查找。
+ * 被跳过的块记在保留块的引用计数上，按ID删除保留块时先减少计数，计数为0时才真正删除；
+ * 按元数据删除与清空集合不看引用计数，会连同被合并文档的内容一起删除，同时丢弃相应的指纹。
+ * <p>
+ * 检查时先在集合的锁内预留本批的指纹，与其他写入中尚未登记的指纹近重复时等待对方登记或释放，
+ * 并发写入相同内容时只有一份会被保存。预留在 {@link #register} 或 {@link #abort} 时释放，
+ * 调用方必须在写入结束后调用其中之一。
+ * <p>
+ * 指纹与引用计数只保存在内存中，覆盖本进程启动后写入的块，重启后从空索引开始
+ */
+@Slf4j
+@Component
+public class NearDuplicateFilter {
+
+    public static final String ACTION_SKIP = "skip";
+    public static final String ACTION_MERGE = "merge";
+
+    /**
+     * 保留块上记录的被合并块所属文档
+     */
+    public static final String MERGED_DOCUMENT_KEYS = "mergedDocumentKeys";
+
+    /**
+     * 等待其他写入释放预留指纹的最长时间，超时后不再等待，只可能多写入一份重复内容
+     */
+    private static final long RESERVATION_WAIT_MILLIS = 60_000;
+
+    private final boolean enabled;
+    private final int maxDistance;
+    private final int minLength;
+    private final boolean merge;
+    private final List<String> scopeFields;
+
+    /**
+     * 集合名到该集合已写入块的指纹
+     */
+    private final Map<String, StoredChunks> collections = new ConcurrentHashMap<>();
+
+    private final LongAdder checked = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder merged = new LongAdder();
+    private final LongAdder stale = new LongAdder();
+    private final AtomicLong reservationIds = new AtomicLong();
+
+    public NearDuplicateFilter(@Value("${rag.dedup.enabled:false}") boolean enabled,
+                               @Value("${rag.dedup.max-distance:4}") int maxDistance,
+                               @Value("${rag.dedup.min-length:50}") int minLength,
+                               @Value("${rag.dedup.action:skip}") String action,
+                               @Value("${rag.dedup.scope-fields:sourceType,source,company,category}") String[] scopeFields) {
+        if (!ACTION_SKIP.equalsIgnoreCase(action) && !ACTION_MERGE.equalsIgnoreCase(action)) {
+            throw new IllegalArgumentException("不支持的近重复处理方式: " + action);
+        }
+        // 构造一次索引以便在启动时校验阈值
+        new SimHashIndex<String>(maxDistance);
+        this.enabled = enabled;
+        this.maxDistance = maxDistance;
+        this.minLength = minLength;
+        this.merge = ACTION_MERGE.equalsIgnoreCase(action);
+        List<String> fields = new ArrayList<>();
+        for (String field : scopeFields) {
+            if (!field.trim().isEmpty()) {
+                fields.add(field.trim());
+            }
+        }
+        this.scopeFields = fields;
+    }
+
+    /**
+     * 检查一批待写入的块并预留指纹，写入结束后需调用 {@link #register} 或 {@link #abort} 释放
+     *
+     * @param collection 集合名
+     * @param chunks 按写入顺序排列的块
+     * @param liveIds 返回给定块ID中仍在存储中的ID，用于确认命中的已写入块没有被删除
+     * @return 检查结果
+     */
+    public Batch check(String collection, List<VectorDocument> chunks,
+                       Function<Collection<String>, ? extends Collection<String>> liveIds) {
+        Batch batch = new Batch(chunks.size());
+        if (!enabled) {
+            return batch;
+        }
+
+        for (int i = 0; i < chunks.size(); i++) {
+            String content = chunks.get(i).getContent();
+            if (content == null || content.length() < minLength) {
+                // 过短的块特征太少，容易误判
+                continue;
+            }
+            batch.fingerprints[i] = SimHash.fingerprint(content);
+            batch.fingerprinted[i] = true;
+            batch.scopes.set(i, scopeOf(chunks.get(i)));
+            checked.increment();
+        }
+        if (!hasFingerprints(batch)) {
+            return batch;
+        }
+
+        StoredChunks stored = collections.computeIfAbsent(collection, name -> new StoredChunks());
+        reserve(stored, batch);
+        try {
+            findStored(stored, batch, liveIds);
+        } catch (RuntimeException e) {
+            releaseReservations(batch);
+            throw e;
+        }
+
+        // 同一批中已保留的块，值为块在批中的位置
+        Map<List<String>, SimHashIndex<Integer>> pending = new HashMap<>();
+        for (int i = 0; i < chunks.size(); i++) {
+            if (!batch.fingerprinted[i]) {
+                continue;
+            }
+            if (batch.storedIds[i] != null) {
+                batch.duplicates++;
+                skipped.increment();
+                continue;
+            }
+            SimHashIndex<Integer> scopePending = pending.computeIfAbsent(batch.scopes.get(i),
+                    scope -> new SimHashIndex<>(maxDistance));
+            Integer canonical = scopePending.findNearest(batch.fingerprints[i]);
+            if (canonical != null) {
+                batch.canonicals[i] = canonical;
+                batch.duplicates++;
+                if (merge && mergeInto(chunks.get(canonical), chunks.get(i))) {
+                    merged.increment();
+                } else {
+                    skipped.increment();
+                }
+                continue;
+            }
+            scopePending.add(batch.fingerprints[i], i);
+        }
+        return batch;
+    }
+
+    /**
+     * 块写入存储后登记指纹与引用计数，块需已设置ID，同时释放检查时的预留
+     *
+     * @param collection 集合名
+     * @param batch 写入前的检查结果
+     * @param chunks 与检查时相同的块列表
+     */
+    public void register(String collection, Batch batch, List<VectorDocument> chunks) {
+        register(collection, batch, chunks, true);
+    }
+
+    /**
+     * 写入中途失败时登记已写入（已设置ID）的块的指纹，不增加引用计数，同时释放检查时的预留
+     *
+     * @param collection 集合名
+     * @param batch 写入前的检查结果
+     * @param chunks 与检查时相同的块列表
+     */
+    public void abort(String collection, Batch batch, List<VectorDocument> chunks) {
+        register(collection, batch, chunks, false);
+    }
+
+    /**
+     * 释放一次对块的引用
+     *
+     * @param collection 集合名
+     * @param chunkId 块ID
+     * @return 块仍被其他近重复块引用、不应删除时返回 true
+     */
+    public boolean release(String collection, String chunkId) {
+        StoredChunks stored = collections.get(collection);
+        if (stored == null) {
+            return false;
+        }
+        synchronized (stored) {
+            Integer references = stored.references.get(chunkId);
+            if (references == null) {
+                return false;
+            }
+            if (references > 1) {
+                stored.references.put(chunkId, references - 1);
+            } else {
+                stored.references.remove(chunkId);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 删除块的指纹与引用计数
+     */
+    public void remove(String collection, String chunkId) {
+        StoredChunks stored = collections.get(collection);
+        if (stored != null) {
+            synchronized (stored) {
+                removeChunk(stored, chunkId);
+            }
+        }
+    }
+
+    /**
+     * 按元数据删除块后丢弃可能被删除的块的指纹
+     * <p>
+     * 筛选条件中属于 scope-fields 的字段与分组取值一致的分组整组丢弃；条件中的其他字段无法在内存中判断，不参与比较
+     *
+     * @param collection 集合名
+     * @param metadataFilter 删除时使用的元数据筛选条件
+     */
+    public void removeMatching(String collection, Map<String, Object> metadataFilter) {
+        StoredChunks stored = collections.get(collection);
+        if (stored == null) {
+            return;
+        }
+        synchronized (stored) {
+            Set<List<String>> removed = new HashSet<>();
+            for (List<String> scope : stored.scopes.keySet()) {
+                if (matches(scope, metadataFilter)) {
+                    removed.add(scope);
+                }
+            }
+            if (removed.isEmpty()) {
+                return;
+            }
+            stored.scopes.keySet().removeAll(removed);
+            stored.chunkScopes.entrySet().removeIf(entry -> {
+                if (removed.contains(entry.getValue())) {
+                    stored.references.remove(entry.getKey());
+                    return true;
+                }
+                return false;
+            });
+            log.debug("按元数据删除后丢弃近重复指纹分组: 集合[{}], {}组", collection, removed.size());
+        }
+    }
+
+    /**
+     * 清空集合的指纹与引用计数
+     */
+    public void clear(String collection) {
+        collections.remove(collection);
+    }
+
+    public long getCheckedCount() {
+        return checked.sum();
+    }
+
+    public long getSkippedCount() {
+        return skipped.sum();
+    }
+
+    public long getMergedCount() {
+        return merged.sum();
+    }
+
+    /**
+     * 命中后发现已不在存储中、被丢弃的指纹数量
+     */
+    public long getStaleCount() {
+        return stale.sum();
+    }
+
+    public int getIndexSize() {
+        int size = 0;
+        for (StoredChunks stored : collections.values()) {
+            size += stored.chunkScopes.size();
+        }
+        return size;
+    }
+
+    private void register(String collection, Batch batch, List<VectorDocument> chunks, boolean completed) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            StoredChunks stored = collections.computeIfAbsent(collection, name -> new StoredChunks());
+            synchronized (stored) {
+                addChunks(stored, batch, chunks, completed);
+            }
+        } finally {
+            releaseReservations(batch);
+        }
+    }
+
+    private void addChunks(StoredChunks stored, Batch batch, List<VectorDocument> chunks, boolean completed) {
+        for (int i = 0; i < chunks.size(); i++) {
+            if (!batch.fingerprinted[i]) {
+                continue;
+            }
+            if (batch.isDuplicate(i)) {
+                // 写入失败时调用方拿不到近重复块的ID，之后也不会按ID释放，不计引用
+                String canonicalId = completed ? batch.canonicalId(i, chunks) : null;
+                if (canonicalId != null) {
+                    stored.references.merge(canonicalId, 1, Integer::sum);
+                }
+            } else if (chunks.get(i).getId() != null) {
+                List<String> scope = batch.scopes.get(i);
+                stored.scopes.computeIfAbsent(scope, key -> new SimHashIndex<>(maxDistance))
+                        .add(batch.fingerprints[i], chunks.get(i).getId());
+                stored.chunkScopes.put(chunks.get(i).getId(), scope);
+            }
+        }
+    }
+
+    /**
+     * 在集合的锁内预留一批指纹，与其他写入预留的指纹近重复时等待对方释放
+     */
+    private void reserve(StoredChunks stored, Batch batch) {
+        long deadline = System.currentTimeMillis() + RESERVATION_WAIT_MILLIS;
+        synchronized (stored) {
+            while (conflictsWithReserved(stored, batch)) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    log.warn("等待其他写入释放近重复指纹超时({}ms)，不再等待", RESERVATION_WAIT_MILLIS);
+                    break;
+                }
+                try {
+                    stored.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("等待近重复指纹释放时被中断", e);
+                }
+            }
+            for (int i = 0; i < batch.fingerprints.length; i++) {
+                if (batch.fingerprinted[i]) {
+                    batch.reservations[i] = reservationIds.incrementAndGet();
+                    stored.reserved.computeIfAbsent(batch.scopes.get(i), key -> new SimHashIndex<>(maxDistance))
+                            .add(batch.fingerprints[i], batch.reservations[i]);
+                }
+            }
+            batch.reservedIn = stored;
+        }
+    }
+
+    private static boolean conflictsWithReserved(StoredChunks stored, Batch batch) {
+        for (int i = 0; i < batch.fingerprints.length; i++) {
+            if (!batch.fingerprinted[i]) {
+                continue;
+            }
+            SimHashIndex<Long> index = stored.reserved.get(batch.scopes.get(i));
+            if (index != null && index.findNearest(batch.fingerprints[i]) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 释放一批的预留指纹并唤醒等待的写入
+     */
+    private static void releaseReservations(Batch batch) {
+        StoredChunks stored = batch.reservedIn;
+        if (stored == null) {
+            return;
+        }
+        synchronized (stored) {
+            for (int i = 0; i < batch.reservations.length; i++) {
+                if (batch.reservations[i] == 0) {
+                    continue;
+                }
+                SimHashIndex<Long> index = stored.reserved.get(batch.scopes.get(i));
+                if (index != null) {
+                    index.remove(batch.reservations[i]);
+                    if (index.size() == 0) {
+                        stored.reserved.remove(batch.scopes.get(i));
+                    }
+                }
+                batch.reservations[i] = 0;
+            }
+            batch.reservedIn = null;
+            stored.notifyAll();
+        }
+    }
+
+    private static boolean hasFingerprints(Batch batch) {
+        for (boolean fingerprinted : batch.fingerprinted) {
+            if (fingerprinted) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 为批中每个块查找已写入的近重复块，命中的块不在存储中时删除其指纹并重新查找
+     */
+    private void findStored(StoredChunks stored, Batch batch,
+                            Function<Collection<String>, ? extends Collection<String>> liveIds) {
+        Set<String> verified = new HashSet<>();
+        while (true) {
+            Set<String> unverified = new HashSet<>();
+            for (int i = 0; i < batch.storedIds.length; i++) {
+                if (!batch.fingerprinted[i]) {
+                    continue;
+                }
+                SimHashIndex<String> index = stored.scopes.get(batch.scopes.get(i));
+                String storedId = index != null ? index.findNearest(batch.fingerprints[i]) : null;
+                batch.storedIds[i] = storedId;
+                if (storedId != null && !verified.contains(storedId)) {
+                    unverified.add(storedId);
+                }
+            }
+            if (unverified.isEmpty()) {
+                return;
+            }
+
+            Set<String> live = new HashSet<>(liveIds.apply(unverified));
+            boolean removed = false;
+            for (String storedId : unverified) {
+                if (live.contains(storedId)) {
+                    verified.add(storedId);
+                } else {
+                    synchronized (stored) {
+                        removeChunk(stored, storedId);
+                    }
+                    stale.increment();
+                    removed = true;
+                }
+            }
+            if (!removed) {
+                return;
+            }
+        }
+    }
+
+    private static void removeChunk(StoredChunks stored, String chunkId) {
+        List<String> scope = stored.chunkScopes.remove(chunkId);
+        if (scope != null) {
+            SimHashIndex<String> index = stored.scopes.get(scope);
+            if (index != null) {
+                index.remove(chunkId);
+            }
+        }
+        stored.references.remove(chunkId);
+    }
+
+    private List<String> scopeOf(VectorDocument chunk) {
+        Map<String, Object> metadata = chunk.getMetadata();
+        String[] values = new String[scopeFields.size()];
+        for (int i = 0; i < values.length; i++) {
+            String field = scopeFields.get(i);
+            Object value = metadata != null ? metadata.get(field) : null;
+            if (value == null && ChunkMetadata.SOURCE_TYPE.equals(field)) {
+                value = chunk.getSourceType();
+            }
+            values[i] = value != null ? value.toString() : null;
+        }
+        return Arrays.asList(values);
+    }
+
+    private boolean matches(List<String> scope, Map<String, Object> metadataFilter) {
+        if (metadataFilter == null) {
+            return true;
+        }
+        for (Map.Entry<String, Object> condition : metadataFilter.entrySet()) {
+            int position = scopeFields.indexOf(condition.getKey());
+            if (position < 0) {
+                continue;
+            }
+            Object value = condition.getValue();
+            if (!Objects.equals(value != null ? value.toString() : null, scope.get(position))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean mergeInto(VectorDocument canonical, VectorDocument duplicate) {
+        Map<String, Object> target = canonical.getMetadata();
+        Map<String, Object> source = duplicate.getMetadata();
+        if (target == null || source == null) {
+            return false;
+        }
+        Object key = source.get(MmrReranker.DOCUMENT_KEY);
+        if (key == null || key.equals(target.get(MmrReranker.DOCUMENT_KEY))) {
+            return false;
+        }
+        List<Object> keys = (List<Object>) target.computeIfAbsent(MERGED_DOCUMENT_KEYS, k -> new ArrayList<>());
+        if (!keys.contains(key)) {
+            keys.add(key);
+        }
+        return true;
+    }
+
+    /**
+     * 一个集合中已写入块的指纹
+     */
+    private static final class StoredChunks {
+        /**
+         * 分组取值到该组指纹
+         */
+        private final Map<List<String>, SimHashIndex<String>> scopes = new ConcurrentHashMap<>();
+        /**
+         * 块ID到所在分组
+         */
+        private final Map<String, List<String>> chunkScopes = new ConcurrentHashMap<>();
+        /**
+         * 保留块ID到被跳过的近重复块数量
+         */
+        private final Map<String, Integer> references = new ConcurrentHashMap<>();
+        /**
+         * 分组取值到写入中、尚未登记的块的预留指纹，值为预留编号，只在锁内访问
+         */
+        private final Map<List<String>, SimHashIndex<Long>> reserved = new HashMap<>();
+    }
+
+    /**
+     * 一批块的检查结果
+     */
+    public static final class Batch {
+        private final long[] fingerprints;
+        private final boolean[] fingerprinted;
+        private final List<List<String>> scopes;
+        private final int[] canonicals;
+        private final String[] storedIds;
+        private final long[] reservations;
+        private volatile StoredChunks reservedIn;
+        private int duplicates;
+
+        Batch(int size) {
+            this.fingerprints = new long[size];
+            this.fingerprinted = new boolean[size];
+            this.scopes = new ArrayList<>(Collections.nCopies(size, null));
+            this.canonicals = new int[size];
+            this.storedIds = new String[size];
+            this.reservations = new long[size];
+            Arrays.fill(canonicals, -1);
+        }
+
+        /**
+         * 第 i 个块是否为近重复块
+         */
+        public boolean isDuplicate(int i) {
+            return canonicals[i] >= 0 || storedIds[i] != null;
+        }
+
+        /**
+         * 与第 i 个块重复的块ID，同一批中的保留块需已写入
+         *
+         * @return 块ID，不是近重复块时返回 null
+         */
+        public String canonicalId(int i, List<VectorDocument> chunks) {
+            if (storedIds[i] != null) {
+                return storedIds[i];
+            }
+            return canonicals[i] >= 0 ? chunks.get(canonicals[i]).getId() : null;
+        }
+
+        /**
+         * 近重复块数量
+         */
+        public int getDuplicateCount() {
+            return duplicates;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.interview.rag.index;
+
+import com.interview.rag.model.RecallReport;
+import com.interview.rag.util.TopKSelector;
+import com.interview.rag.util.VectorKernels;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 索引召回率评估工具
+ * 以对语料的精确余弦检索为基准，计算近似索引（HNSW、量化索引等）的 Recall@K：
+ * 每个查询的召回率为近似结果与精确结果前K个的交集大小除以K，再对所有查询取平均
+ */
+public final class RecallEvaluator {
+
+    private static final VectorKernels KERNELS = VectorKernels.getInstance();
+
+    private RecallEvaluator() {
+    }
+
+    /**
+     * 可重复遍历的评估语料
+     */
+    @FunctionalInterface
+    public interface Corpus {
+        void scan(EmbeddingSegmentStore.VectorVisitor visitor);
+    }
+
+    /**
+     * 从语料中均匀抽样查询向量（蓄水池抽样）
+     *
+     * @param corpus 语料
+     * @param sampleSize 抽样数量
+     * @param seed 随机种子
+     * @return 查询向量
+     */
+    public static List<float[]> sampleQueries(Corpus corpus, int sampleSize, long seed) {
+        List<float[]> samples = new ArrayList<>(sampleSize);
+        Random random = new Random(seed);
+        long[] seen = {0};
+        corpus.scan((id, vector) -> {
+            long index = seen[0]++;
+            if (samples.size() < sampleSize) {
+                samples.add(Arrays.copyOf(vector, vector.length));
+            } else {
+                long slot = (long) (random.nextDouble() * (index + 1));
+                if (slot < sampleSize) {
+                    samples.set((int) slot, Arrays.copyOf(vector, vector.length));
+                }
+            }
+        });
+        return samples;
+    }
+
+    /**
+     * 评估索引的 Recall@K
+     *
+     * @param indexType 索引类型名称，仅用于报告
+     * @param index 被评估的索引
+     * @param corpus 与索引内容一致的语料
+     * @param queries 查询向量
+     * @param k K值
+     * @return 评估结果
+     */
+    public static RecallReport evaluate(String indexType, VectorIndex index, Corpus corpus, List<float[]> queries, int k) {
+        if (queries.isEmpty() || k <= 0) {
+            throw new IllegalArgumentException("评估参数不合法: queries=" + queries.size() + ", k=" + k);
+        }
+
+        long exactStart = System.nanoTime();
+        List<Set<Long>> expected = exactTopK(corpus, queries, k);
+        long exactNanos = System.nanoTime() - exactStart;
+        int corpusSize = index.size();
+
+        double recallSum = 0;
+        double minRecall = 1.0;
+        long searchNanos = 0;
+        for (int q = 0; q < queries.size(); q++) {
+            long start = System.nanoTime();
+            List<ScoredId> hits = index.search(queries.get(q), k);
+            searchNanos += System.nanoTime() - start;
+
+            Set<Long> truth = expected.get(q);
+            if (truth.isEmpty()) {
+                continue;
+            }
+            int matched = 0;
+            for (ScoredId hit : hits) {
+                if (truth.contains(hit.getId())) {
+                    matched++;
+                }
+            }
+            double recall = (double) matched / truth.size();
+            recallSum += recall;
+            minRecall = Math.min(minRecall, recall);
+        }
+
+        return RecallReport.builder()
+                .indexType(indexType)
+                .queryCount(queries.size())
+                .corpusSize(corpusSize)
+                .k(k)
+                .recall(recallSum / queries.size())
+                .minRecall(minRecall)
+                .meanLatencyMicros(searchNanos / 1000.0 / queries.size())
+                .exactLatencyMicros(exactNanos / 1000.0 / queries.size())
+                .build();
+    }
+
+    /**
+     * 遍历一次语料，同时计算所有查询的精确前K个结果
+     */
+    private static List<Set<Long>> exactTopK(Corpus corpus, List<float[]> queries, int k) {
+        List<float[]> normalizedQueries = new ArrayList<>(queries.size());
+        List<TopKSelector> selectors = new ArrayList<>(queries.size());
+        for (float[] query : queries) {
+            normalizedQueries.add(normalizedCopy(query));
+            selectors.add(new TopKSelector(k));
+        }
+
+        corpus.scan((id, vector) -> {
+            float[] normalized = normalizedCopy(vector);
+            for (int q = 0; q < normalizedQueries.size(); q++) {
+                float[] query = normalizedQueries.get(q);
+                if (query.length != normalized.length) {
+                    continue;
+                }
+                selectors.get(q).offer(id, KERNELS.dotProduct(query, 0, normalized, 0, query.length));
+            }
+        });
+
+        List<Set<Long>> results = new ArrayList<>(selectors.size());
+        for (TopKSelector selector : selectors) {
+            Set<Long> ids = new HashSet<>();
+            for (ScoredId hit : ScoredId.ranked(selector)) {
+                ids.add(hit.getId());
+            }
+            results.add(ids);
+        }
+        return results;
+    }
+
+    private static float[] normalizedCopy(float[] vector) {
+        float[] copy = Arrays.copyOf(vector, vector.length);
+        float norm = (float) Math.sqrt(KERNELS.dotProduct(copy, 0, copy, 0, copy.length));
+        if (norm > 0) {
+            for (int i = 0; i < copy.length; i++) {
+                copy[i] /= norm;
+            }
+        }
+        return copy;
+    }
+}
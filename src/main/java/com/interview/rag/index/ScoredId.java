@@ -0,0 +1,66 @@
+package com.interview.rag.index;
+
+import com.interview.rag.model.VectorDocument;
+import com.interview.rag.util.TopKSelector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 索引检索命中项
+ * 通常仅包含文档ID与相似度分数，文档内容由调用方按需加载；
+ * 第一阶段已经读到完整记录的存储（如 MySQL 向量存储）会附带不含向量的文档，第二阶段直接使用
+ */
+public final class ScoredId {
+
+    private final long id;
+
+    private final float score;
+
+    private final VectorDocument document;
+
+    public ScoredId(long id, float score) {
+        this(id, score, null);
+    }
+
+    public ScoredId(long id, float score, VectorDocument document) {
+        this.id = id;
+        this.score = score;
+        this.document = document;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public float getScore() {
+        return score;
+    }
+
+    /**
+     * 第一阶段随命中读到的文档，不含向量，没有时为 null
+     */
+    public VectorDocument getDocument() {
+        return document;
+    }
+
+    /**
+     * 将选择器中的结果转换为按得分降序排列的命中列表
+     *
+     * @param selector 前K个选择器
+     * @return 命中列表
+     */
+    public static List<ScoredId> ranked(TopKSelector selector) {
+        selector.sort();
+        List<ScoredId> results = new ArrayList<>(selector.size());
+        for (int rank = 0; rank < selector.size(); rank++) {
+            results.add(new ScoredId(selector.id(rank), selector.score(rank)));
+        }
+        return results;
+    }
+
+    @Override
+    public String toString() {
+        return "ScoredId{id=" + id + ", score=" + score + "}";
+    }
+}
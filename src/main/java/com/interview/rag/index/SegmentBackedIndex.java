@@ -0,0 +1,117 @@
+package com.interview.rag.index;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.function.LongPredicate;
+
+/**
+ * 为内存索引增加段文件持久化
+ * 写操作同时落到段文件与内存索引，{@link #load()} 时从段文件回放向量构建内存索引，
+ * 避免重启时全表扫描 vector_storage 并解析向量。
+ * 段文件只保存原始向量，被包装的 hnsw 与 int8 索引的图结构和量化编码不持久化，
+ * 加载时仍要逐条 add 重新建图或量化，省掉的只是读库与解析向量的开销，CPU 耗时与全量重建相同；
+ * 无需建图的精确检索见 {@link MappedFlatIndex}
+ */
+public class SegmentBackedIndex implements VectorIndex {
+
+    private final VectorIndex delegate;
+    private final EmbeddingSegmentStore store;
+
+    public SegmentBackedIndex(VectorIndex delegate, EmbeddingSegmentStore store) {
+        this.delegate = delegate;
+        this.store = store;
+    }
+
+    /**
+     * 从段文件回放向量，hnsw 与 int8 会在此重新建图或量化
+     */
+    @Override
+    public int load() {
+        store.forEach((id, vector) -> {
+            if (!delegate.contains(id)) {
+                delegate.add(id, vector);
+            }
+        });
+        return delegate.size();
+    }
+
+    @Override
+    public void add(long id, float[] vector) {
+        store.append(id, vector);
+        delegate.add(id, vector);
+    }
+
+    @Override
+    public boolean remove(long id) {
+        store.delete(id);
+        return delegate.remove(id);
+    }
+
+    @Override
+    public boolean contains(long id) {
+        return delegate.contains(id);
+    }
+
+    @Override
+    public List<ScoredId> search(float[] query, int topK) {
+        return delegate.search(query, topK);
+    }
+
+    @Override
+    public List<ScoredId> search(float[] query, int topK, LongPredicate filter) {
+        return delegate.search(query, topK, filter);
+    }
+
+    @Override
+    public List<ScoredId> searchAmong(float[] query, long[] candidateIds, int topK) {
+        return delegate.searchAmong(query, candidateIds, topK);
+    }
+
+    @Override
+    public long[] ids() {
+        return delegate.ids();
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public void clear() {
+        try {
+            store.clear();
+        } catch (IOException e) {
+            throw new UncheckedIOException("清空向量段文件失败", e);
+        }
+        delegate.clear();
+    }
+
+    @Override
+    public void flush() {
+        try {
+            store.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("向量段文件刷盘失败", e);
+        }
+        delegate.flush();
+    }
+
+    @Override
+    public void close() {
+        try {
+            store.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("关闭向量段文件失败", e);
+        }
+        delegate.close();
+    }
+
+    /**
+     * 获取被包装的内存索引
+     */
+    public VectorIndex getDelegate() {
+        return delegate;
+    }
+}
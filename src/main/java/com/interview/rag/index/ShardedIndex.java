@@ -0,0 +1,231 @@
+package com.interview.rag.index;
+
+import com.interview.rag.util.TopKSelector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.LongPredicate;
+
+/**
+ * 分片向量索引
+ * <p>
+ * 文档按 ID 取模分配到 N 个子索引，写操作只落到所属分片；
+ * 检索时在专用 ForkJoinPool 上并行查询所有分片（scatter），再合并各分片的 topK（gather）。
+ * 单次检索可以用满多个核，适合请求稀疏但单次检索量大的场景；
+ * 各分片的 topK 合并后即为全局 topK，不损失精确检索的结果
+ */
+public class ShardedIndex implements VectorIndex {
+
+    private final VectorIndex[] shards;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param shards 子索引，数量即分片数
+     * @param pool 执行分片检索的线程池，由调用方负责关闭
+     */
+    public ShardedIndex(List<VectorIndex> shards, ForkJoinPool pool) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("分片数必须大于0");
+        }
+        this.shards = shards.toArray(new VectorIndex[0]);
+        this.pool = pool;
+    }
+
+    @Override
+    public void add(long id, float[] vector) {
+        shardOf(id).add(id, vector);
+    }
+
+    @Override
+    public boolean remove(long id) {
+        return shardOf(id).remove(id);
+    }
+
+    @Override
+    public boolean contains(long id) {
+        return shardOf(id).contains(id);
+    }
+
+    @Override
+    public List<ScoredId> search(float[] query, int topK) {
+        return search(query, topK, null);
+    }
+
+    @Override
+    public List<ScoredId> search(float[] query, int topK, LongPredicate filter) {
+        if (topK <= 0) {
+            return new ArrayList<>();
+        }
+        List<Callable<List<ScoredId>>> tasks = new ArrayList<>(shards.length);
+        for (VectorIndex shard : shards) {
+            tasks.add(() -> filter == null ? shard.search(query, topK) : shard.search(query, topK, filter));
+        }
+        return merge(scatter(tasks), topK);
+    }
+
+    @Override
+    public List<ScoredId> searchAmong(float[] query, long[] candidateIds, int topK) {
+        if (topK <= 0 || candidateIds.length == 0) {
+            return new ArrayList<>();
+        }
+
+        // 候选ID按分片拆分，只查询有候选的分片
+        long[][] partitions = new long[shards.length][];
+        int[] counts = new int[shards.length];
+        for (long id : candidateIds) {
+            counts[shardIndex(id)]++;
+        }
+        for (int i = 0; i < shards.length; i++) {
+            partitions[i] = new long[counts[i]];
+            counts[i] = 0;
+        }
+        for (long id : candidateIds) {
+            int shard = shardIndex(id);
+            partitions[shard][counts[shard]++] = id;
+        }
+
+        List<Callable<List<ScoredId>>> tasks = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            if (partitions[i].length == 0) {
+                continue;
+            }
+            VectorIndex shard = shards[i];
+            long[] partition = partitions[i];
+            tasks.add(() -> shard.searchAmong(query, partition, topK));
+        }
+        return merge(scatter(tasks), topK);
+    }
+
+    @Override
+    public long[] ids() {
+        long[][] parts = new long[shards.length][];
+        int total = 0;
+        for (int i = 0; i < shards.length; i++) {
+            parts[i] = shards[i].ids();
+            total += parts[i].length;
+        }
+        long[] ids = new long[total];
+        int offset = 0;
+        for (long[] part : parts) {
+            System.arraycopy(part, 0, ids, offset, part.length);
+            offset += part.length;
+        }
+        return ids;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (VectorIndex shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (VectorIndex shard : shards) {
+            shard.clear();
+        }
+    }
+
+    /**
+     * 各分片并行加载
+     */
+    @Override
+    public int load() {
+        List<Callable<Integer>> tasks = new ArrayList<>(shards.length);
+        for (VectorIndex shard : shards) {
+            tasks.add(shard::load);
+        }
+        int loaded = 0;
+        for (Integer count : scatter(tasks)) {
+            loaded += count;
+        }
+        return loaded;
+    }
+
+    @Override
+    public void flush() {
+        for (VectorIndex shard : shards) {
+            shard.flush();
+        }
+    }
+
+    @Override
+    public void close() {
+        for (VectorIndex shard : shards) {
+            shard.close();
+        }
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * 各分片的文档数量
+     */
+    public int[] shardSizes() {
+        return Arrays.stream(shards).mapToInt(VectorIndex::size).toArray();
+    }
+
+    private VectorIndex shardOf(long id) {
+        return shards[shardIndex(id)];
+    }
+
+    private int shardIndex(long id) {
+        // 自增ID连续分配，取模即可均匀分布
+        return (int) Math.floorMod(id, (long) shards.length);
+    }
+
+    private <T> List<T> scatter(List<Callable<T>> tasks) {
+        if (tasks.size() == 1) {
+            try {
+                return List.of(tasks.get(0).call());
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException("分片执行失败", e);
+            }
+        }
+
+        List<T> results = new ArrayList<>(tasks.size());
+        for (Future<T> future : pool.invokeAll(tasks)) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("分片检索被中断", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new RuntimeException("分片执行失败", cause);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 合并各分片按得分降序排列的结果，保留全局前 topK 个
+     */
+    private static List<ScoredId> merge(List<List<ScoredId>> partials, int topK) {
+        TopKSelector selector = new TopKSelector(topK);
+        for (List<ScoredId> partial : partials) {
+            for (ScoredId hit : partial) {
+                if (!selector.offer(hit.getId(), hit.getScore())) {
+                    // 分片结果已降序排列，后面的得分只会更低
+                    break;
+                }
+            }
+        }
+        return ScoredId.ranked(selector);
+    }
+}
@@ -0,0 +1,174 @@
+package com.interview.rag.index;
+
+import com.interview.rag.util.SimHash;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * SimHash 指纹的分段汉明距离索引
+ * <p>
+ * 64 位指纹均分为 maxDistance + 1 段，每段一张哈希表。由抽屉原理，汉明距离不超过 maxDistance 的两个指纹
+ * 至少有一段完全相同，因此只需在各段的同值桶中取候选，再逐个计算完整距离，不必与全部指纹比较
+ *
+ * @param <T> 指纹对应的值，如文档块ID
+ */
+public class SimHashIndex<T> {
+
+    private static final int MAX_SUPPORTED_DISTANCE = 15;
+
+    private final int maxDistance;
+    private final int[] shifts;
+    private final long[] masks;
+    private final List<Map<Long, List<Entry<T>>>> bands;
+    private final Map<T, Long> fingerprints = new HashMap<>();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * @param maxDistance 视为近重复的最大汉明距离，0~15
+     */
+    public SimHashIndex(int maxDistance) {
+        if (maxDistance < 0 || maxDistance > MAX_SUPPORTED_DISTANCE) {
+            throw new IllegalArgumentException("汉明距离阈值需在0~" + MAX_SUPPORTED_DISTANCE + "之间: " + maxDistance);
+        }
+        this.maxDistance = maxDistance;
+        int bandCount = maxDistance + 1;
+        this.shifts = new int[bandCount];
+        this.masks = new long[bandCount];
+        this.bands = new ArrayList<>(bandCount);
+        int offset = 0;
+        for (int band = 0; band < bandCount; band++) {
+            // 64 位不能整除时前几段多分一位
+            int width = 64 / bandCount + (band < 64 % bandCount ? 1 : 0);
+            shifts[band] = offset;
+            masks[band] = width == 64 ? -1L : (1L << width) - 1;
+            bands.add(new HashMap<>());
+            offset += width;
+        }
+    }
+
+    /**
+     * 查找距离最近的近重复指纹
+     *
+     * @param fingerprint 指纹
+     * @return 汉明距离不超过阈值的指纹中距离最小者对应的值，没有时返回 null
+     */
+    public T findNearest(long fingerprint) {
+        lock.readLock().lock();
+        try {
+            T nearest = null;
+            int nearestDistance = maxDistance + 1;
+            for (int band = 0; band < bands.size(); band++) {
+                List<Entry<T>> bucket = bands.get(band).get(bandValue(fingerprint, band));
+                if (bucket == null) {
+                    continue;
+                }
+                for (Entry<T> entry : bucket) {
+                    int distance = SimHash.distance(fingerprint, entry.fingerprint);
+                    if (distance < nearestDistance) {
+                        nearestDistance = distance;
+                        nearest = entry.value;
+                        if (distance == 0) {
+                            return nearest;
+                        }
+                    }
+                }
+            }
+            return nearest;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 添加指纹，值已存在时覆盖原指纹
+     */
+    public void add(long fingerprint, T value) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(value);
+            Entry<T> entry = new Entry<>(fingerprint, value);
+            for (int band = 0; band < bands.size(); band++) {
+                bands.get(band).computeIfAbsent(bandValue(fingerprint, band), key -> new ArrayList<>(1)).add(entry);
+            }
+            fingerprints.put(value, fingerprint);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除值对应的指纹
+     *
+     * @return 是否存在
+     */
+    public boolean remove(T value) {
+        lock.writeLock().lock();
+        try {
+            return removeInternal(value);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return fingerprints.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            for (Map<Long, List<Entry<T>>> band : bands) {
+                band.clear();
+            }
+            fingerprints.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int getMaxDistance() {
+        return maxDistance;
+    }
+
+    private boolean removeInternal(T value) {
+        Long fingerprint = fingerprints.remove(value);
+        if (fingerprint == null) {
+            return false;
+        }
+        for (int band = 0; band < bands.size(); band++) {
+            long key = bandValue(fingerprint, band);
+            List<Entry<T>> bucket = bands.get(band).get(key);
+            if (bucket != null) {
+                bucket.removeIf(entry -> entry.value.equals(value));
+                if (bucket.isEmpty()) {
+                    bands.get(band).remove(key);
+                }
+            }
+        }
+        return true;
+    }
+
+    private long bandValue(long fingerprint, int band) {
+        return (fingerprint >>> shifts[band]) & masks[band];
+    }
+
+    private static final class Entry<T> {
+        private final long fingerprint;
+        private final T value;
+
+        Entry(long fingerprint, T value) {
+            this.fingerprint = fingerprint;
+            this.value = value;
+        }
+    }
+}
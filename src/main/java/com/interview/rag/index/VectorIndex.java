@@ -0,0 +1,107 @@
+package com.interview.rag.index;
+
+import java.util.List;
+import java.util.function.LongPredicate;
+
+/**
+ * 内存向量索引接口
+ * 索引只保存文档ID与向量，MySQL 中的 vector_storage 表仍是数据的唯一来源
+ * 持久化实现可将向量落盘以加速重启，但磁盘内容只作为缓存，启动时与数据表对账
+ */
+public interface VectorIndex {
+
+    /**
+     * 添加向量，ID 已存在时覆盖旧向量
+     *
+     * @param id 文档ID
+     * @param vector 向量
+     */
+    void add(long id, float[] vector);
+
+    /**
+     * 删除向量
+     *
+     * @param id 文档ID
+     * @return 索引中是否存在该ID
+     */
+    boolean remove(long id);
+
+    /**
+     * 是否包含指定文档
+     *
+     * @param id 文档ID
+     * @return 是否存在
+     */
+    boolean contains(long id);
+
+    /**
+     * 检索与查询向量最相似的文档
+     *
+     * @param query 查询向量
+     * @param topK 返回的最大结果数
+     * @return 按相似度降序排列的命中列表
+     */
+    List<ScoredId> search(float[] query, int topK);
+
+    /**
+     * 检索与查询向量最相似、且满足筛选条件的文档
+     * 筛选在打分过程中完成，而不是对无筛选的结果做后过滤，筛选条件较严格时也能返回足够的结果
+     *
+     * @param query 查询向量
+     * @param topK 返回的最大结果数
+     * @param filter 文档ID筛选条件，只有返回 true 的文档会出现在结果中
+     * @return 按相似度降序排列的命中列表
+     */
+    List<ScoredId> search(float[] query, int topK, LongPredicate filter);
+
+    /**
+     * 只在给定的候选文档中精确检索
+     * 候选集合较小时，逐个打分比带筛选条件的遍历更快，结果也是精确的
+     *
+     * @param query 查询向量
+     * @param candidateIds 候选文档ID，不在索引中的ID会被忽略
+     * @param topK 返回的最大结果数
+     * @return 按相似度降序排列的命中列表
+     */
+    List<ScoredId> searchAmong(float[] query, long[] candidateIds, int topK);
+
+    /**
+     * 获取索引中所有有效的文档ID
+     *
+     * @return 文档ID数组
+     */
+    long[] ids();
+
+    /**
+     * 获取有效文档数量
+     *
+     * @return 文档数量
+     */
+    int size();
+
+    /**
+     * 清空索引
+     */
+    void clear();
+
+    /**
+     * 从持久化存储加载已有向量，纯内存实现无需处理
+     *
+     * @return 加载后的文档数量
+     */
+    default int load() {
+        return size();
+    }
+
+    /**
+     * 将索引内容持久化，纯内存实现无需处理
+     */
+    default void flush() {
+    }
+
+    /**
+     * 释放索引占用的资源
+     */
+    default void close() {
+    }
+}
@@ -0,0 +1,197 @@
+package com.interview.rag.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * 按配置为集合创建向量索引
+ * <ul>
+ *     <li>hnsw：内存HNSW图索引，开启段文件时向量同时持久化到段文件，重启时从段文件回放</li>
+ *     <li>flat：直接在内存映射段文件上精确检索，向量位于堆外，必须开启段文件</li>
+ *     <li>int8：int8 量化索引，候选用原始向量精排，原始向量从段文件读取，必须开启段文件；
+ *     否则每次检索都要为精排候选回表查询一次向量</li>
+ * </ul>
+ * 段文件按集合名称分目录存放。
+ * 集合配置了多个分片时，每个分片是一个上述类型的独立索引，由 {@link ShardedIndex} 并行检索；
+ * 分片的段文件存放在 集合/shards-N/shard-XX 目录下，分片数变化后重新从数据表加载
+ */
+@Slf4j
+@Component
+public class VectorIndexFactory {
+
+    private final String type;
+    private final int dimensions;
+    private final int m;
+    private final int efConstruction;
+    private final int efSearch;
+    private final boolean segmentEnabled;
+    private final String segmentDirectory;
+    private final int segmentCapacity;
+    private final int rescoreMultiplier;
+    private final int defaultShards;
+    private final Map<String, Integer> collectionShards;
+    private final int shardParallelism;
+
+    /**
+     * 分片检索线程池，首次创建分片索引时初始化，所有集合共用
+     */
+    private ForkJoinPool shardPool;
+
+    public VectorIndexFactory(
+            @Value("${rag.index.type:mysql}") String type,
+            @Value("${rag.embedding.dimensions:1536}") int dimensions,
+            @Value("${rag.index.hnsw.m:16}") int m,
+            @Value("${rag.index.hnsw.ef-construction:200}") int efConstruction,
+            @Value("${rag.index.hnsw.ef-search:64}") int efSearch,
+            @Value("${rag.index.segment.enabled:false}") boolean segmentEnabled,
+            @Value("${rag.index.segment.dir:data/vector-segments}") String segmentDirectory,
+            @Value("${rag.index.segment.capacity:65536}") int segmentCapacity,
+            @Value("${rag.index.int8.rescore-multiplier:4}") int rescoreMultiplier,
+            @Value("${rag.index.sharding.shards:1}") int defaultShards,
+            @Value("${rag.index.sharding.collections:}") String collectionShards,
+            @Value("${rag.index.sharding.parallelism:0}") int shardParallelism) {
+        this.type = type;
+        this.dimensions = dimensions;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.segmentEnabled = segmentEnabled;
+        this.segmentDirectory = segmentDirectory;
+        this.segmentCapacity = segmentCapacity;
+        this.rescoreMultiplier = rescoreMultiplier;
+        this.defaultShards = defaultShards;
+        this.collectionShards = parseCollectionShards(collectionShards);
+        this.shardParallelism = shardParallelism > 0 ? shardParallelism : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * 为集合创建索引
+     *
+     * @param collection 集合名称
+     * @return 向量索引
+     */
+    public VectorIndex create(String collection) {
+        int shards = getShardCount(collection);
+        if (shards <= 1) {
+            return createShard(Paths.get(segmentDirectory, collection));
+        }
+
+        List<VectorIndex> indexes = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            indexes.add(createShard(Paths.get(segmentDirectory, collection,
+                    "shards-" + shards, String.format("shard-%02d", i))));
+        }
+        log.info("集合[{}]使用分片索引: {}个分片, 检索并行度{}", collection, shards, shardParallelism);
+        return new ShardedIndex(indexes, shardPool());
+    }
+
+    /**
+     * 获取集合的分片数
+     *
+     * @param collection 集合名称
+     * @return 分片数，未单独配置时使用默认值
+     */
+    public int getShardCount(String collection) {
+        return collectionShards.getOrDefault(collection, defaultShards);
+    }
+
+    /**
+     * 获取索引类型
+     */
+    public String getType() {
+        return type;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (shardPool != null) {
+            shardPool.shutdown();
+        }
+    }
+
+    private VectorIndex createShard(Path segmentPath) {
+        switch (type.toLowerCase()) {
+            case "hnsw":
+                HnswIndex hnsw = new HnswIndex(dimensions, m, efConstruction, efSearch);
+                return segmentEnabled ? new SegmentBackedIndex(hnsw, openSegmentStore(segmentPath)) : hnsw;
+            case "flat":
+                if (!segmentEnabled) {
+                    throw new IllegalStateException("flat 索引依赖段文件，请开启 rag.index.segment.enabled");
+                }
+                return new MappedFlatIndex(openSegmentStore(segmentPath));
+            case "int8":
+                if (!segmentEnabled) {
+                    throw new IllegalStateException("int8 索引精排依赖段文件中的原始向量，请开启 rag.index.segment.enabled");
+                }
+                EmbeddingSegmentStore store = openSegmentStore(segmentPath);
+                return new SegmentBackedIndex(
+                        new Int8QuantizedIndex(dimensions, rescoreMultiplier, segmentLoader(store)), store);
+            default:
+                throw new IllegalArgumentException("不支持的索引类型: " + type);
+        }
+    }
+
+    private synchronized ForkJoinPool shardPool() {
+        if (shardPool == null) {
+            shardPool = new ForkJoinPool(shardParallelism, pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("index-shard-" + thread.getPoolIndex());
+                thread.setDaemon(true);
+                return thread;
+            }, null, false);
+        }
+        return shardPool;
+    }
+
+    /**
+     * 解析按集合配置的分片数，格式为 集合名:分片数，多个集合以逗号分隔
+     */
+    private static Map<String, Integer> parseCollectionShards(String value) {
+        Map<String, Integer> shards = new HashMap<>();
+        if (value == null || value.trim().isEmpty()) {
+            return shards;
+        }
+        for (String entry : value.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("分片配置格式错误，应为 集合名:分片数: " + entry);
+            }
+            shards.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+        }
+        return shards;
+    }
+
+    private FullPrecisionLoader segmentLoader(EmbeddingSegmentStore store) {
+        return ids -> {
+            Map<Long, float[]> vectors = new HashMap<>();
+            for (Long id : ids) {
+                float[] vector = new float[dimensions];
+                if (store.read(id, vector)) {
+                    vectors.put(id, vector);
+                }
+            }
+            return vectors;
+        };
+    }
+
+    private EmbeddingSegmentStore openSegmentStore(Path directory) {
+        try {
+            return new EmbeddingSegmentStore(directory, dimensions, segmentCapacity);
+        } catch (IOException e) {
+            log.error("打开向量段文件失败: {}", directory, e);
+            throw new RuntimeException("打开向量段文件失败: " + directory, e);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.interview.rag.migration;
+
+import com.interview.rag.model.StoredEmbedding;
+import com.interview.rag.repository.VectorStorageRepository;
+import com.interview.rag.util.EmbeddingCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 向量存储格式迁移任务
+ * 将 vector_storage.embedding 中的 JSON 向量分批改写为 embedding_bin 二进制格式
+ * 按ID游标推进，可重复执行，已迁移的记录会被跳过
+ */
+@Slf4j
+@Component
+public class EmbeddingStorageMigrator {
+
+    private final VectorStorageRepository vectorStorageRepository;
+    private final EmbeddingCodec.Format format;
+    private final boolean enabled;
+    private final int batchSize;
+    private final boolean clearJson;
+
+    public EmbeddingStorageMigrator(
+            VectorStorageRepository vectorStorageRepository,
+            @Value("${rag.storage.embedding-format:float32}") String format,
+            @Value("${rag.storage.migration.enabled:false}") boolean enabled,
+            @Value("${rag.storage.migration.batch-size:500}") int batchSize,
+            @Value("${rag.storage.migration.clear-json:false}") boolean clearJson) {
+        this.vectorStorageRepository = vectorStorageRepository;
+        this.format = EmbeddingCodec.Format.parse(format);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.clearJson = clearJson;
+    }
+
+    /**
+     * 应用启动完成后在后台执行迁移
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        Thread thread = new Thread(this::migrate, "embedding-storage-migrator");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 执行迁移
+     *
+     * @return 迁移的记录数
+     */
+    public int migrate() {
+        long startTime = System.currentTimeMillis();
+        log.info("开始迁移向量存储格式: 目标格式[{}], 每批{}条, 清空JSON列[{}]", format, batchSize, clearJson);
+
+        long lastId = 0;
+        int migrated = 0;
+        int skipped = 0;
+        try {
+            while (true) {
+                List<StoredEmbedding> page = vectorStorageRepository.findJsonEmbeddingsAfter(lastId, batchSize);
+                if (page.isEmpty()) {
+                    break;
+                }
+                lastId = page.get(page.size() - 1).getId();
+
+                List<StoredEmbedding> valid = page.stream()
+                        .filter(stored -> stored.getEmbedding() != null)
+                        .collect(Collectors.toList());
+                skipped += page.size() - valid.size();
+                if (!valid.isEmpty()) {
+                    migrated += vectorStorageRepository.saveEmbeddingBinaries(valid, format, clearJson);
+                }
+                log.debug("向量存储格式迁移中: 已迁移{}条, 当前ID[{}]", migrated, lastId);
+            }
+        } catch (Exception e) {
+            log.error("向量存储格式迁移中断: 已迁移{}条, 最后ID[{}]，重新执行可继续迁移", migrated, lastId, e);
+            return migrated;
+        }
+
+        log.info("向量存储格式迁移完成: 迁移{}条, 跳过无法解析的记录{}条, 耗时{}ms",
+                migrated, skipped, System.currentTimeMillis() - startTime);
+        return migrated;
+    }
+}
@@ -0,0 +1,85 @@
+package com.interview.rag.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * 批量写入结果
+ * 写入按批次执行，单个批次失败不影响其他批次
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkWriteResult {
+    /**
+     * 文档ID，与输入顺序一致，写入失败的位置为 null
+     */
+    @Builder.Default
+    private List<String> ids = new ArrayList<>();
+
+    /**
+     * 失败的批次
+     */
+    @Builder.Default
+    private List<BatchFailure> failures = new ArrayList<>();
+
+    /**
+     * 成功写入的文档数量
+     */
+    private int succeeded;
+
+    /**
+     * 写入失败的文档数量
+     */
+    private int failed;
+
+    /**
+     * 是否全部写入成功
+     */
+    public boolean isAllSucceeded() {
+        return failures.isEmpty();
+    }
+
+    /**
+     * 获取成功写入的文档ID（按输入顺序，跳过失败项）
+     */
+    public List<String> getSucceededIds() {
+        return ids.stream().filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    /**
+     * 失败批次信息
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BatchFailure {
+        /**
+         * 批次序号（从0开始）
+         */
+        private int batchIndex;
+
+        /**
+         * 批次在输入中的起始下标（包含）
+         */
+        private int fromIndex;
+
+        /**
+         * 批次在输入中的结束下标（不包含）
+         */
+        private int toIndex;
+
+        /**
+         * 失败原因
+         */
+        private String error;
+    }
+}
@@ -0,0 +1,311 @@
+package com.interview.rag.model;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.fasterxml.jackson.annotation.JsonValue;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 文档块元数据
+ * <p>
+ * 常用字段（来源、源数据ID与类型、父文档、块序号、公司、分类）有类型化的读写方法，值统一为固定类型：
+ * ID 为 Long，块序号为 Integer，其余为 String；其他字段作为附加字段保存，对外仍是一个普通的 Map。
+ * <p>
+ * 从存储读取时只保留原始 JSON，第一次读取时用流式解析扫描一遍：标量字段直接解码，
+ * 数组、对象只记录其 JSON 片段，被读取时才构建，检索命中后只读 source、documentKey 的调用不再构建嵌套的集合。
+ * 未修改过的元数据写回时直接复用原始 JSON。
+ * <p>
+ * 存储列仍为 JSON，MySQL 向量存储的元数据筛选依赖该格式；检索结果会被缓存并在线程间共享，读写方法均已同步
+ */
+public class ChunkMetadata extends AbstractMap<String, Object> {
+
+    public static final String SOURCE = "source";
+    public static final String SOURCE_TYPE = "sourceType";
+    public static final String SOURCE_ID = "sourceId";
+    public static final String DOCUMENT_KEY = "documentKey";
+    public static final String CHUNK_INDEX = "chunkIndex";
+    public static final String CHUNK_COUNT = "chunkCount";
+    public static final String COMPANY = "company";
+    public static final String CATEGORY = "category";
+
+    private static final Set<String> INT_FIELDS = new HashSet<>(Arrays.asList(CHUNK_INDEX, CHUNK_COUNT));
+    private static final Set<String> LONG_FIELDS = Collections.singleton(SOURCE_ID);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * 原始 JSON，新建的元数据为 null
+     */
+    private final String json;
+    private final Map<String, Object> values = new LinkedHashMap<>();
+    private boolean parsed;
+    private boolean modified;
+
+    public ChunkMetadata() {
+        this.json = null;
+        this.parsed = true;
+    }
+
+    private ChunkMetadata(String json) {
+        this.json = json;
+    }
+
+    /**
+     * 包装存储中的元数据 JSON，此时不解析
+     *
+     * @param json 元数据 JSON，为空时返回 null
+     * @return 元数据
+     */
+    public static ChunkMetadata parse(String json) {
+        if (json == null || json.isEmpty()) {
+            return null;
+        }
+        return new ChunkMetadata(json);
+    }
+
+    /**
+     * 复制已有的元数据，常用字段转换为固定类型
+     *
+     * @param metadata 元数据，可为 null
+     * @return 新的元数据
+     */
+    public static ChunkMetadata copyOf(Map<String, ?> metadata) {
+        ChunkMetadata copy = new ChunkMetadata();
+        if (metadata != null) {
+            for (Map.Entry<String, ?> entry : metadata.entrySet()) {
+                copy.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return copy;
+    }
+
+    public String getSource() {
+        return asString(get(SOURCE));
+    }
+
+    public String getSourceType() {
+        return asString(get(SOURCE_TYPE));
+    }
+
+    public Long getSourceId() {
+        Object value = get(SOURCE_ID);
+        return value instanceof Number ? Long.valueOf(((Number) value).longValue()) : null;
+    }
+
+    public String getDocumentKey() {
+        return asString(get(DOCUMENT_KEY));
+    }
+
+    public Integer getChunkIndex() {
+        Object value = get(CHUNK_INDEX);
+        return value instanceof Number ? Integer.valueOf(((Number) value).intValue()) : null;
+    }
+
+    public Integer getChunkCount() {
+        Object value = get(CHUNK_COUNT);
+        return value instanceof Number ? Integer.valueOf(((Number) value).intValue()) : null;
+    }
+
+    public String getCompany() {
+        return asString(get(COMPANY));
+    }
+
+    public String getCategory() {
+        return asString(get(CATEGORY));
+    }
+
+    public void setDocumentKey(String documentKey) {
+        put(DOCUMENT_KEY, documentKey);
+    }
+
+    public void setChunkIndex(int chunkIndex) {
+        put(CHUNK_INDEX, chunkIndex);
+    }
+
+    public void setChunkCount(int chunkCount) {
+        put(CHUNK_COUNT, chunkCount);
+    }
+
+    @Override
+    public synchronized Object get(Object key) {
+        ensureParsed();
+        Object value = values.get(key);
+        if (value instanceof RawJson) {
+            value = ((RawJson) value).decode();
+            values.put((String) key, value);
+            if (value instanceof Map || value instanceof List) {
+                // 调用方可能直接修改返回的容器
+                modified = true;
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public synchronized boolean containsKey(Object key) {
+        ensureParsed();
+        return values.containsKey(key);
+    }
+
+    @Override
+    public synchronized Object put(String key, Object value) {
+        ensureParsed();
+        modified = true;
+        Object previous = values.put(key, normalize(key, value));
+        return previous instanceof RawJson ? ((RawJson) previous).decode() : previous;
+    }
+
+    @Override
+    public synchronized Object remove(Object key) {
+        ensureParsed();
+        modified = true;
+        Object previous = values.remove(key);
+        return previous instanceof RawJson ? ((RawJson) previous).decode() : previous;
+    }
+
+    @Override
+    public synchronized int size() {
+        ensureParsed();
+        return values.size();
+    }
+
+    /**
+     * 返回所有字段，会解码全部附加字段；通过视图的修改同样生效
+     */
+    @Override
+    public synchronized Set<Map.Entry<String, Object>> entrySet() {
+        ensureParsed();
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            if (entry.getValue() instanceof RawJson) {
+                entry.setValue(((RawJson) entry.getValue()).decode());
+            }
+        }
+        // 经视图的修改无法感知，保守地视为已修改
+        modified = true;
+        return values.entrySet();
+    }
+
+    /**
+     * 序列化为 JSON，未修改时直接返回原始 JSON，未读取过的附加字段按原样写出
+     */
+    public synchronized String toJson() {
+        if (!modified && json != null) {
+            return json;
+        }
+        try {
+            return MAPPER.writeValueAsString(values);
+        } catch (IOException e) {
+            throw new UncheckedIOException("元数据序列化失败", e);
+        }
+    }
+
+    /**
+     * 扫描一遍原始 JSON：常用字段解码，附加字段只截取 JSON 片段
+     */
+    private void ensureParsed() {
+        if (parsed) {
+            return;
+        }
+        parsed = true;
+        try (JsonParser parser = MAPPER.getFactory().createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if (token.isScalarValue()) {
+                    values.put(name, normalize(name, readScalar(parser, token)));
+                    continue;
+                }
+                // 数组、对象只截取片段，被读取时才构建
+                int start = (int) parser.getTokenLocation().getCharOffset();
+                parser.skipChildren();
+                int end = (int) parser.getCurrentLocation().getCharOffset();
+                values.put(name, new RawJson(json.substring(start, end)));
+            }
+        } catch (IOException e) {
+            // 无法解析的元数据视为空，原始 JSON 保持不变
+            values.clear();
+        }
+    }
+
+    private static Object readScalar(JsonParser parser, JsonToken token) throws IOException {
+        switch (token) {
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getNumberValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 历史数据中类型不符的常用字段按字符串读取
+     */
+    private static String asString(Object value) {
+        return value == null || value instanceof String ? (String) value : value.toString();
+    }
+
+    /**
+     * 常用字段转换为固定类型，类型不符时按原值保存
+     */
+    private static Object normalize(String key, Object value) {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            long number = ((Number) value).longValue();
+            if (LONG_FIELDS.contains(key)) {
+                return number;
+            }
+            if (INT_FIELDS.contains(key) && number == (int) number) {
+                return (int) number;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * 尚未解码的附加字段
+     */
+    private static final class RawJson {
+        private final String json;
+
+        RawJson(String json) {
+            this.json = json;
+        }
+
+        /**
+         * 序列化时按原样写出
+         */
+        @JsonValue
+        @JsonRawValue
+        String json() {
+            return json;
+        }
+
+        Object decode() {
+            try {
+                return MAPPER.readValue(json, Object.class);
+            } catch (IOException e) {
+                throw new UncheckedIOException("元数据字段解析失败: " + json, e);
+            }
+        }
+    }
+}
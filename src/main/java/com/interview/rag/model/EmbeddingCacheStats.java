@@ -0,0 +1,55 @@
+package com.interview.rag.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 嵌入缓存统计
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmbeddingCacheStats {
+    /**
+     * 内存缓存命中次数
+     */
+    private long memoryHits;
+
+    /**
+     * 磁盘缓存命中次数
+     */
+    private long diskHits;
+
+    /**
+     * 未命中次数（即调用嵌入接口的文本数）
+     */
+    private long misses;
+
+    /**
+     * 总命中率（0-1之间）
+     */
+    private double hitRate;
+
+    /**
+     * 内存缓存条目数
+     */
+    private long memoryEntries;
+
+    /**
+     * 内存缓存淘汰次数
+     */
+    private long memoryEvictions;
+
+    /**
+     * 磁盘缓存条目数，未开启磁盘缓存时为0
+     */
+    private long diskEntries;
+
+    /**
+     * 磁盘缓存占用空间（字节）
+     */
+    private long diskBytes;
+}
@@ -0,0 +1,75 @@
+package com.interview.rag.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 存量数据导入进度
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportProgress {
+    /**
+     * 源数据表
+     */
+    private String sourceType;
+
+    /**
+     * 是否仍在执行
+     */
+    private boolean running;
+
+    /**
+     * 本次执行已导入的文档数
+     */
+    private long importedDocs;
+
+    /**
+     * 本次执行已写入的块数
+     */
+    private long importedChunks;
+
+    /**
+     * 因近重复而未写入的块数
+     */
+    private long duplicateChunks;
+
+    /**
+     * 因已存在而跳过的文档数
+     */
+    private long skippedDocs;
+
+    /**
+     * 开始时待导入的文档数
+     */
+    private long totalDocs;
+
+    /**
+     * 最后处理的源数据ID（即检查点）
+     */
+    private long lastId;
+
+    /**
+     * 文档吞吐（文档/秒）
+     */
+    private double docsPerSecond;
+
+    /**
+     * 块吞吐（块/秒）
+     */
+    private double chunksPerSecond;
+
+    /**
+     * 预计剩余时间（秒），无法估算时为 -1
+     */
+    private long etaSeconds;
+
+    /**
+     * 已执行时间（毫秒）
+     */
+    private long elapsedMillis;
+}
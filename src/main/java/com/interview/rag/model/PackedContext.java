@@ -0,0 +1,55 @@
+package com.interview.rag.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 按 token 预算装配的检索上下文
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PackedContext {
+    /**
+     * 传给LLM的上下文文本
+     */
+    private String text;
+
+    /**
+     * token 预算
+     */
+    private int budgetTokens;
+
+    /**
+     * 上下文文本的 token 数
+     */
+    private int usedTokens;
+
+    /**
+     * 完整放入的文档数
+     */
+    private int includedDocuments;
+
+    /**
+     * 在句子边界截断后放入的文档数
+     */
+    private int truncatedDocuments;
+
+    /**
+     * 因预算不足或内容全部重复而未放入的文档数
+     */
+    private int droppedDocuments;
+
+    /**
+     * 与已放入内容重复而去掉的句子数
+     */
+    private int duplicateSentences;
+
+    /**
+     * 未放入的内容的 token 数（截断部分与未放入的文档）
+     */
+    private int droppedTokens;
+}
@@ -0,0 +1,45 @@
+package com.interview.rag.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 检索结果缓存统计
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueryCacheStats {
+    /**
+     * 命中次数
+     */
+    private long hits;
+
+    /**
+     * 未命中次数（含因集合版本变化而失效的条目）
+     */
+    private long misses;
+
+    /**
+     * 因集合写入而失效的次数
+     */
+    private long invalidations;
+
+    /**
+     * 命中率（0-1之间）
+     */
+    private double hitRate;
+
+    /**
+     * 命中所节省的检索耗时累计（毫秒），按条目首次计算时的耗时估算
+     */
+    private long savedMillis;
+
+    /**
+     * 当前缓存条目数
+     */
+    private long entries;
+}
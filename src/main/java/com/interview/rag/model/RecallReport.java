@@ -0,0 +1,56 @@
+package com.interview.rag.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 索引召回率评估结果
+ * 以精确检索为基准，统计近似索引的 Recall@K
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecallReport {
+    /**
+     * 被评估的索引类型
+     */
+    private String indexType;
+
+    /**
+     * 评估使用的查询数量
+     */
+    private int queryCount;
+
+    /**
+     * 语料规模
+     */
+    private int corpusSize;
+
+    /**
+     * 评估的K值
+     */
+    private int k;
+
+    /**
+     * 平均召回率 Recall@K（0-1之间）
+     */
+    private double recall;
+
+    /**
+     * 最低单次召回率
+     */
+    private double minRecall;
+
+    /**
+     * 近似索引平均检索耗时（微秒）
+     */
+    private double meanLatencyMicros;
+
+    /**
+     * 精确检索平均耗时（微秒）
+     */
+    private double exactLatencyMicros;
+}
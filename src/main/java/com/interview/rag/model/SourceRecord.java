@@ -0,0 +1,32 @@
+package com.interview.rag.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * 待导入向量库的源数据记录
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SourceRecord {
+    /**
+     * 源数据表中的主键ID
+     */
+    private long id;
+
+    /**
+     * 用于嵌入的文本
+     */
+    private String content;
+
+    /**
+     * 元数据
+     */
+    private Map<String, Object> metadata;
+}
@@ -0,0 +1,26 @@
+package com.interview.rag.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 已存储的向量记录
+ * 用于从 vector_storage 表重建内存索引
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoredEmbedding {
+    /**
+     * 文档ID
+     */
+    private long id;
+    
+    /**
+     * 向量嵌入
+     */
+    private float[] embedding;
+}
@@ -1,5 +1,7 @@
 package com.interview.rag.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.interview.rag.util.VectorUtils;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -27,9 +29,9 @@ public class VectorDocument {
     private String content;
     
     /**
-     * 向量嵌入
+     * 向量嵌入（基本类型数组，避免装箱开销）
      */
-    private List<Float> embedding;
+    private float[] vector;
     
     /**
      * 元数据
@@ -40,5 +42,50 @@ public class VectorDocument {
      * 相似度分数（用于检索结果）
      */
     private Float score;
+    
+    /**
+     * 源数据ID，批量写入时落到 vector_storage.source_id
+     */
+    private Long sourceId;
+    
+    /**
+     * 源数据类型，批量写入时落到 vector_storage.source_type
+     */
+    private String sourceType;
+    
+    /**
+     * 以列表形式获取向量嵌入（兼容适配，返回底层数组的视图）
+     * 不参与 JSON 序列化，向量只通过 vector 字段输出一次
+     *
+     * @deprecated 使用 {@link #getVector()}
+     */
+    @Deprecated
+    @JsonIgnore
+    public List<Float> getEmbedding() {
+        return VectorUtils.asList(vector);
+    }
+    
+    /**
+     * 以列表形式设置向量嵌入（兼容适配，会复制为基本类型数组）
+     *
+     * @deprecated 使用 {@link #setVector(float[])}
+     */
+    @Deprecated
+    @JsonIgnore
+    public void setEmbedding(List<Float> embedding) {
+        this.vector = VectorUtils.toArray(embedding);
+    }
+    
+    public static class VectorDocumentBuilder {
+        /**
+         * 以列表形式设置向量嵌入（兼容适配，会复制为基本类型数组）
+         *
+         * @deprecated 使用 {@code vector(float[])}
+         */
+        @Deprecated
+        public VectorDocumentBuilder embedding(List<Float> embedding) {
+            this.vector = VectorUtils.toArray(embedding);
+            return this;
+        }
+    }
 }
-
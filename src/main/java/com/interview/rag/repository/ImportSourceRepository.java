@@ -0,0 +1,252 @@
+package com.interview.rag.repository;
+
+import com.interview.rag.model.SourceRecord;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 存量数据导入的数据访问层
+ * 按主键游标分页读取面经、面试题与职位描述，并维护每个源数据表的导入检查点
+ */
+@Repository
+@RequiredArgsConstructor
+public class ImportSourceRepository {
+
+    public static final String INTERVIEW_EXPERIENCE = "interview_experience";
+    public static final String INTERVIEW_QUESTION = "interview_question";
+    public static final String JOB_DESCRIPTION = "job_description";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    /**
+     * 按ID游标分页读取有效的源数据
+     *
+     * @param sourceType 源数据表
+     * @param afterId 上一页最后一条记录的ID
+     * @param limit 每页数量
+     * @return 按ID升序排列的记录
+     */
+    public List<SourceRecord> findAfter(String sourceType, long afterId, int limit) {
+        switch (sourceType) {
+            case INTERVIEW_EXPERIENCE:
+                return jdbcTemplate.query(
+                        "SELECT e.id, e.position, e.content, e.difficulty, e.result, e.interview_date, e.source, "
+                                + "c.name AS company FROM interview_experience e "
+                                + "LEFT JOIN company c ON c.id = e.company_id "
+                                + "WHERE e.id > ? AND e.status = 1 ORDER BY e.id LIMIT ?",
+                        experienceMapper(), afterId, limit);
+            case INTERVIEW_QUESTION:
+                return jdbcTemplate.query(
+                        "SELECT q.id, q.experience_id, q.content, q.answer, q.category, q.tags, q.difficulty, q.frequency, "
+                                + "e.source, c.name AS company FROM interview_question q "
+                                + "LEFT JOIN interview_experience e ON e.id = q.experience_id "
+                                + "LEFT JOIN company c ON c.id = e.company_id "
+                                + "WHERE q.id > ? AND q.status = 1 ORDER BY q.id LIMIT ?",
+                        questionMapper(), afterId, limit);
+            case JOB_DESCRIPTION:
+                return jdbcTemplate.query(
+                        "SELECT j.id, j.title, j.department, j.location, j.salary_range, j.description, j.requirements, "
+                                + "j.responsibilities, j.source, c.name AS company FROM job_description j "
+                                + "LEFT JOIN company c ON c.id = j.company_id "
+                                + "WHERE j.id > ? AND j.status = 1 ORDER BY j.id LIMIT ?",
+                        jobMapper(), afterId, limit);
+            default:
+                throw new IllegalArgumentException("不支持的源数据类型: " + sourceType);
+        }
+    }
+
+    /**
+     * 统计ID大于指定值的有效记录数，用于估算剩余时间
+     *
+     * @param sourceType 源数据表
+     * @param afterId 起始ID（不含）
+     * @return 记录数
+     */
+    public long countAfter(String sourceType, long afterId) {
+        requireSourceType(sourceType);
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM " + sourceType + " WHERE id > ? AND status = 1", Long.class, afterId);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * 查询源数据已写入集合的块ID
+     * 一页写入完成后才保存检查点，中断重跑时该页中已有块的记录可能只写入了一部分块，需要先删除再重新写入
+     *
+     * @param collection 集合名称
+     * @param sourceType 源数据表
+     * @param sourceIds 待检查的源数据ID
+     * @return 这些源数据已写入的块ID
+     */
+    public List<Long> findChunkIdsBySourceIds(String collection, String sourceType, Collection<Long> sourceIds) {
+        if (sourceIds == null || sourceIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("collection", collection)
+                .addValue("sourceType", sourceType)
+                .addValue("sourceIds", sourceIds);
+        return namedParameterJdbcTemplate.queryForList(
+                "SELECT id FROM vector_storage "
+                        + "WHERE collection = :collection AND source_type = :sourceType AND source_id IN (:sourceIds)",
+                params, Long.class);
+    }
+
+    /**
+     * 读取导入检查点
+     *
+     * @param collection 集合名称
+     * @param sourceType 源数据表
+     * @return 最后导入的源数据ID，没有检查点时为0
+     */
+    public long loadCheckpoint(String collection, String sourceType) {
+        List<Long> lastIds = jdbcTemplate.queryForList(
+                "SELECT last_id FROM rag_import_checkpoint WHERE collection = ? AND source_type = ?",
+                Long.class, collection, sourceType);
+        return lastIds.isEmpty() ? 0 : lastIds.get(0);
+    }
+
+    /**
+     * 保存导入检查点，累计导入数量
+     *
+     * @param collection 集合名称
+     * @param sourceType 源数据表
+     * @param lastId 最后导入的源数据ID
+     * @param docs 本批导入的文档数
+     * @param chunks 本批写入的块数
+     */
+    public void saveCheckpoint(String collection, String sourceType, long lastId, long docs, long chunks) {
+        jdbcTemplate.update(
+                "INSERT INTO rag_import_checkpoint (collection, source_type, last_id, imported_docs, imported_chunks) "
+                        + "VALUES (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE last_id = VALUES(last_id), "
+                        + "imported_docs = imported_docs + VALUES(imported_docs), "
+                        + "imported_chunks = imported_chunks + VALUES(imported_chunks)",
+                collection, sourceType, lastId, docs, chunks);
+    }
+
+    /**
+     * 删除导入检查点，下次导入从头开始
+     *
+     * @param collection 集合名称
+     * @param sourceType 源数据表
+     */
+    public void resetCheckpoint(String collection, String sourceType) {
+        jdbcTemplate.update("DELETE FROM rag_import_checkpoint WHERE collection = ? AND source_type = ?",
+                collection, sourceType);
+    }
+
+    private RowMapper<SourceRecord> experienceMapper() {
+        return (rs, rowNum) -> {
+            Map<String, Object> metadata = baseMetadata(rs, INTERVIEW_EXPERIENCE);
+            putIfPresent(metadata, "position", rs.getString("position"));
+            putIfPresent(metadata, "difficulty", rs.getObject("difficulty"));
+            putIfPresent(metadata, "result", rs.getString("result"));
+            putIfPresent(metadata, "interviewDate", rs.getString("interview_date"));
+
+            StringBuilder content = new StringBuilder();
+            appendLine(content, "公司", rs.getString("company"));
+            appendLine(content, "职位", rs.getString("position"));
+            appendLine(content, "面试结果", rs.getString("result"));
+            appendSection(content, null, rs.getString("content"));
+            return record(rs, content, metadata);
+        };
+    }
+
+    private RowMapper<SourceRecord> questionMapper() {
+        return (rs, rowNum) -> {
+            Map<String, Object> metadata = baseMetadata(rs, INTERVIEW_QUESTION);
+            putIfPresent(metadata, "experienceId", rs.getObject("experience_id"));
+            putIfPresent(metadata, "category", rs.getString("category"));
+            putIfPresent(metadata, "tags", rs.getString("tags"));
+            putIfPresent(metadata, "difficulty", rs.getObject("difficulty"));
+            putIfPresent(metadata, "frequency", rs.getObject("frequency"));
+
+            StringBuilder content = new StringBuilder();
+            appendLine(content, "问题", rs.getString("content"));
+            appendSection(content, "参考答案", rs.getString("answer"));
+            return record(rs, content, metadata);
+        };
+    }
+
+    private RowMapper<SourceRecord> jobMapper() {
+        return (rs, rowNum) -> {
+            Map<String, Object> metadata = baseMetadata(rs, JOB_DESCRIPTION);
+            putIfPresent(metadata, "title", rs.getString("title"));
+            putIfPresent(metadata, "location", rs.getString("location"));
+            putIfPresent(metadata, "salaryRange", rs.getString("salary_range"));
+
+            StringBuilder content = new StringBuilder();
+            appendLine(content, "公司", rs.getString("company"));
+            appendLine(content, "职位", rs.getString("title"));
+            appendLine(content, "部门", rs.getString("department"));
+            appendLine(content, "地点", rs.getString("location"));
+            appendLine(content, "薪资", rs.getString("salary_range"));
+            appendSection(content, "职位描述", rs.getString("description"));
+            appendSection(content, "职位要求", rs.getString("requirements"));
+            appendSection(content, "工作职责", rs.getString("responsibilities"));
+            return record(rs, content, metadata);
+        };
+    }
+
+    private static Map<String, Object> baseMetadata(ResultSet rs, String sourceType) throws SQLException {
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("sourceType", sourceType);
+        metadata.put("sourceId", rs.getLong("id"));
+        putIfPresent(metadata, "source", rs.getString("source"));
+        putIfPresent(metadata, "company", rs.getString("company"));
+        return metadata;
+    }
+
+    private static SourceRecord record(ResultSet rs, StringBuilder content, Map<String, Object> metadata)
+            throws SQLException {
+        return SourceRecord.builder()
+                .id(rs.getLong("id"))
+                .content(content.toString().trim())
+                .metadata(metadata)
+                .build();
+    }
+
+    private static void putIfPresent(Map<String, Object> metadata, String key, Object value) {
+        if (value != null) {
+            metadata.put(key, value);
+        }
+    }
+
+    private static void appendLine(StringBuilder content, String label, String value) {
+        if (value != null && !value.trim().isEmpty()) {
+            content.append(label).append(": ").append(value.trim()).append('\n');
+        }
+    }
+
+    private static void appendSection(StringBuilder content, String label, String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return;
+        }
+        content.append('\n');
+        if (label != null) {
+            content.append(label).append(":\n");
+        }
+        content.append(value.trim()).append('\n');
+    }
+
+    private static void requireSourceType(String sourceType) {
+        if (!INTERVIEW_EXPERIENCE.equals(sourceType)
+                && !INTERVIEW_QUESTION.equals(sourceType)
+                && !JOB_DESCRIPTION.equals(sourceType)) {
+            throw new IllegalArgumentException("不支持的源数据类型: " + sourceType);
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package com.interview.rag.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.interview.rag.model.ChunkMetadata;
+import com.interview.rag.model.StoredEmbedding;
+import com.interview.rag.model.VectorDocument;
+import com.interview.rag.util.EmbeddingCodec;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * vector_storage 表的直接访问层
+ * 供内存索引重建、按ID回表与批量写入使用，单条写入仍经由 MysqlVectorStore
+ */
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class VectorStorageRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 按ID游标分页读取集合中的向量
+     * 优先读取二进制列直接解码为数组，尚未迁移的记录才读取并解析JSON列
+     *
+     * @param collection 集合名称
+     * @param afterId 上一页最后一条记录的ID
+     * @param limit 每页数量
+     * @return 按ID升序排列的向量记录
+     */
+    public List<StoredEmbedding> findEmbeddingsAfter(String collection, long afterId, int limit) {
+        return jdbcTemplate.query(
+                "SELECT id, embedding_bin, CASE WHEN embedding_bin IS NULL THEN embedding END AS embedding_json "
+                        + "FROM vector_storage WHERE collection = ? AND id > ? ORDER BY id LIMIT ?",
+                (rs, rowNum) -> {
+                    byte[] binary = rs.getBytes("embedding_bin");
+                    return StoredEmbedding.builder()
+                            .id(rs.getLong("id"))
+                            .embedding(binary != null
+                                    ? EmbeddingCodec.decode(binary)
+                                    : parseEmbedding(rs.getString("embedding_json")))
+                            .build();
+                },
+                collection, afterId, limit);
+    }
+
+    /**
+     * 按ID游标分页读取尚未迁移为二进制格式的向量（不区分集合）
+     *
+     * @param afterId 上一页最后一条记录的ID
+     * @param limit 每页数量
+     * @return 按ID升序排列的向量记录，JSON无法解析的记录向量为 null
+     */
+    public List<StoredEmbedding> findJsonEmbeddingsAfter(long afterId, int limit) {
+        return jdbcTemplate.query(
+                "SELECT id, embedding FROM vector_storage "
+                        + "WHERE id > ? AND embedding_bin IS NULL AND embedding IS NOT NULL ORDER BY id LIMIT ?",
+                (rs, rowNum) -> StoredEmbedding.builder()
+                        .id(rs.getLong("id"))
+                        .embedding(parseEmbedding(rs.getString("embedding")))
+                        .build(),
+                afterId, limit);
+    }
+
+    /**
+     * 写入单条记录的二进制向量
+     *
+     * @param id 文档ID
+     * @param embedding 向量
+     * @param format 存储格式
+     */
+    public void saveEmbeddingBinary(long id, float[] embedding, EmbeddingCodec.Format format) {
+        jdbcTemplate.update("UPDATE vector_storage SET embedding_bin = ? WHERE id = ?",
+                EmbeddingCodec.encode(embedding, format), id);
+    }
+
+    /**
+     * 批量写入二进制向量
+     *
+     * @param embeddings 向量记录
+     * @param format 存储格式
+     * @param clearJson 是否同时清空JSON列
+     * @return 更新的记录数
+     */
+    public int saveEmbeddingBinaries(List<StoredEmbedding> embeddings, EmbeddingCodec.Format format, boolean clearJson) {
+        String sql = clearJson
+                ? "UPDATE vector_storage SET embedding_bin = ?, embedding = NULL WHERE id = ?"
+                : "UPDATE vector_storage SET embedding_bin = ? WHERE id = ?";
+        List<Object[]> args = new ArrayList<>(embeddings.size());
+        for (StoredEmbedding stored : embeddings) {
+            args.add(new Object[]{EmbeddingCodec.encode(stored.getEmbedding(), format), stored.getId()});
+        }
+        int updated = 0;
+        for (int count : jdbcTemplate.batchUpdate(sql, args)) {
+            updated += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+        }
+        return updated;
+    }
+
+    /**
+     * 以一条批量语句写入多条文档
+     * 数据源需开启 rewriteBatchedStatements，驱动会将批次改写为多值 INSERT，一次往返完成；
+     * 生成的主键由驱动按插入顺序返回（多值 INSERT 属于 simple insert，自增值连续）。
+     * 在事务中执行，驱动拆分出的多条语句中任何一条失败或主键数量不一致时整批回滚，不会留下部分写入的记录
+     *
+     * @param collection 集合名称
+     * @param rows 待写入的记录
+     * @return 生成的文档ID，与输入顺序一致
+     */
+    @Transactional
+    public long[] insertBatch(String collection, List<VectorRow> rows) {
+        String sql = "INSERT INTO vector_storage (collection, content, embedding, embedding_bin, metadata, source_id, source_type) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        return jdbcTemplate.execute((ConnectionCallback<long[]>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                for (VectorRow row : rows) {
+                    statement.setString(1, collection);
+                    statement.setString(2, row.content);
+                    if (row.embeddingJson != null) {
+                        statement.setString(3, row.embeddingJson);
+                    } else {
+                        statement.setNull(3, Types.LONGVARCHAR);
+                    }
+                    statement.setBytes(4, row.embeddingBinary);
+                    if (row.metadataJson != null) {
+                        statement.setString(5, row.metadataJson);
+                    } else {
+                        statement.setNull(5, Types.VARCHAR);
+                    }
+                    if (row.sourceId != null) {
+                        statement.setLong(6, row.sourceId);
+                    } else {
+                        statement.setNull(6, Types.BIGINT);
+                    }
+                    statement.setString(7, row.sourceType);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+
+                long[] ids = new long[rows.size()];
+                int count = 0;
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    while (keys.next() && count < ids.length) {
+                        ids[count++] = keys.getLong(1);
+                    }
+                }
+                if (count != ids.length) {
+                    throw new SQLException("批量写入返回的主键数量不一致: " + count + " vs " + ids.length);
+                }
+                return ids;
+            }
+        });
+    }
+
+    /**
+     * 按ID批量读取向量
+     *
+     * @param ids 文档ID
+     * @return 向量记录，顺序不保证
+     */
+    public List<StoredEmbedding> findEmbeddingsByIds(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return namedParameterJdbcTemplate.query(
+                "SELECT id, embedding_bin, CASE WHEN embedding_bin IS NULL THEN embedding END AS embedding_json "
+                        + "FROM vector_storage WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", ids),
+                (rs, rowNum) -> {
+                    byte[] binary = rs.getBytes("embedding_bin");
+                    return StoredEmbedding.builder()
+                            .id(rs.getLong("id"))
+                            .embedding(binary != null
+                                    ? EmbeddingCodec.decode(binary)
+                                    : parseEmbedding(rs.getString("embedding_json")))
+                            .build();
+                });
+    }
+
+    /**
+     * 按ID批量加载文档内容与元数据（不包含向量）
+     *
+     * @param ids 文档ID
+     * @return 文档ID到文档的映射
+     */
+    public Map<Long, VectorDocument> findByIds(Collection<Long> ids) {
+        return findByIds(ids, false);
+    }
+
+    /**
+     * 按ID批量加载文档内容与元数据，一次查询完成
+     *
+     * @param ids 文档ID
+     * @param includeEmbeddings 是否同时读取向量，向量列远大于内容与元数据，不需要时不读取
+     * @return 文档ID到文档的映射
+     */
+    public Map<Long, VectorDocument> findByIds(Collection<Long> ids, boolean includeEmbeddings) {
+        Map<Long, VectorDocument> documents = new HashMap<>();
+        if (ids == null || ids.isEmpty()) {
+            return documents;
+        }
+
+        String columns = includeEmbeddings
+                ? "id, content, metadata, embedding_bin, CASE WHEN embedding_bin IS NULL THEN embedding END AS embedding_json"
+                : "id, content, metadata";
+        namedParameterJdbcTemplate.query(
+                "SELECT " + columns + " FROM vector_storage WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", ids),
+                rs -> {
+                    long id = rs.getLong("id");
+                    VectorDocument.VectorDocumentBuilder builder = VectorDocument.builder()
+                            .id(String.valueOf(id))
+                            .content(rs.getString("content"))
+                            .metadata(parseMetadata(rs.getString("metadata")));
+                    if (includeEmbeddings) {
+                        byte[] binary = rs.getBytes("embedding_bin");
+                        builder.vector(binary != null
+                                ? EmbeddingCodec.decode(binary)
+                                : parseEmbedding(rs.getString("embedding_json")));
+                    }
+                    documents.put(id, builder.build());
+                });
+        return documents;
+    }
+
+    /**
+     * 按ID游标分页读取集合中的文档内容与元数据（不包含向量），用于重建关键词索引与元数据索引
+     *
+     * @param collection 集合名称
+     * @param afterId 上一页最后一条记录的ID
+     * @param limit 每页数量
+     * @return 按ID升序排列的文档
+     */
+    public List<VectorDocument> findDocumentsAfter(String collection, long afterId, int limit) {
+        return jdbcTemplate.query(
+                "SELECT id, content, metadata FROM vector_storage WHERE collection = ? AND id > ? ORDER BY id LIMIT ?",
+                (rs, rowNum) -> VectorDocument.builder()
+                        .id(String.valueOf(rs.getLong("id")))
+                        .content(rs.getString("content"))
+                        .metadata(parseMetadata(rs.getString("metadata")))
+                        .build(),
+                collection, afterId, limit);
+    }
+
+    /**
+     * 获取集合中所有文档ID
+     *
+     * @param collection 集合名称
+     * @return 文档ID集合
+     */
+    public Set<Long> findAllIds(String collection) {
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT id FROM vector_storage WHERE collection = ?", Long.class, collection));
+    }
+
+    /**
+     * 按元数据等值条件查找文档ID，条件之间为“与”关系，值为 null 时匹配缺少该字段的文档
+     *
+     * @param collection 集合名称
+     * @param metadataFilter 元数据筛选条件
+     * @return 匹配的文档ID
+     */
+    public List<Long> findIdsByMetadata(String collection, Map<String, Object> metadataFilter) {
+        StringBuilder sql = new StringBuilder("SELECT id FROM vector_storage WHERE collection = :collection");
+        MapSqlParameterSource params = new MapSqlParameterSource("collection", collection);
+        int i = 0;
+        for (Map.Entry<String, Object> entry : metadataFilter.entrySet()) {
+            String path = "path" + i;
+            params.addValue(path, "$.\"" + entry.getKey().replace("\"", "\\\"") + "\"");
+            if (entry.getValue() == null) {
+                sql.append(" AND JSON_EXTRACT(metadata, :").append(path).append(") IS NULL");
+            } else {
+                String value = "value" + i;
+                sql.append(" AND JSON_UNQUOTE(JSON_EXTRACT(metadata, :").append(path).append(")) = :").append(value);
+                params.addValue(value, String.valueOf(entry.getValue()));
+            }
+            i++;
+        }
+        return namedParameterJdbcTemplate.queryForList(sql.toString(), params, Long.class);
+    }
+
+    /**
+     * 按ID批量删除文档
+     *
+     * @param collection 集合名称
+     * @param ids 文档ID
+     * @return 删除的行数
+     */
+    public int deleteByIds(String collection, Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return 0;
+        }
+        return namedParameterJdbcTemplate.update(
+                "DELETE FROM vector_storage WHERE collection = :collection AND id IN (:ids)",
+                new MapSqlParameterSource("collection", collection).addValue("ids", ids));
+    }
+
+    private float[] parseEmbedding(String json) {
+        if (json == null || json.isEmpty()) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json, float[].class);
+        } catch (Exception e) {
+            log.warn("解析向量失败，已跳过该记录", e);
+            return null;
+        }
+    }
+
+    private Map<String, Object> parseMetadata(String json) {
+        // 只包装原始 JSON，字段在被读取时才解码
+        return ChunkMetadata.parse(json);
+    }
+
+    /**
+     * 批量写入的一条记录，JSON与二进制编码由调用方预先完成
+     */
+    public static final class VectorRow {
+        private final String content;
+        private final String embeddingJson;
+        private final byte[] embeddingBinary;
+        private final String metadataJson;
+        private final Long sourceId;
+        private final String sourceType;
+
+        public VectorRow(String content, String embeddingJson, byte[] embeddingBinary, String metadataJson,
+                         Long sourceId, String sourceType) {
+            this.content = content;
+            this.embeddingJson = embeddingJson;
+            this.embeddingBinary = embeddingBinary;
+            this.metadataJson = metadataJson;
+            this.sourceId = sourceId;
+            this.sourceType = sourceType;
+        }
+    }
+}
@@ -15,6 +15,14 @@ public interface EmbeddingService {
      */
     List<Float> createEmbedding(String text);
     
+    /**
+     * 生成文本嵌入向量（基本类型数组）
+     *
+     * @param text 输入文本
+     * @return 嵌入向量
+     */
+    float[] createEmbeddingVector(String text);
+    
     /**
      * 批量生成文本嵌入向量
      *
@@ -23,6 +31,14 @@ public interface EmbeddingService {
      */
     List<List<Float>> createEmbeddings(List<String> texts);
     
+    /**
+     * 批量生成文本嵌入向量（基本类型数组）
+     *
+     * @param texts 输入文本列表
+     * @return 嵌入向量列表，与输入顺序一致
+     */
+    List<float[]> createEmbeddingVectors(List<String> texts);
+    
     /**
      * 计算两个向量之间的相似度
      *
@@ -31,4 +47,13 @@ public interface EmbeddingService {
      * @return 相似度分数(0-1之间)
      */
     float calculateSimilarity(List<Float> embedding1, List<Float> embedding2);
+    
+    /**
+     * 计算两个向量之间的相似度（基本类型数组）
+     *
+     * @param embedding1 向量1
+     * @param embedding2 向量2
+     * @return 相似度分数(0-1之间)
+     */
+    float calculateSimilarity(float[] embedding1, float[] embedding2);
 }
\ No newline at end of file
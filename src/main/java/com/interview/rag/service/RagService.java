@@ -1,11 +1,13 @@
 package com.interview.rag.service;
 
+import com.interview.rag.model.ImportProgress;
 import com.interview.rag.model.QueryResult;
 import com.interview.rag.model.RetrievalContext;
 import com.interview.rag.model.VectorDocument;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * RAG服务接口
@@ -56,6 +58,17 @@ public interface RagService {
      */
     RetrievalContext searchWithContext(String query, int topK);
     
+    /**
+     * 按查询检索相关文档，经最大边际相关性重排并折叠同一文档的块后构建检索上下文
+     *
+     * @param query 查询文本
+     * @param topK 返回的最大结果数
+     * @param lambda 相关性权重（0-1），越小结果越分散
+     * @param fetchK 参与重排的候选数，不小于 topK
+     * @return 检索上下文
+     */
+    RetrievalContext searchWithContext(String query, int topK, double lambda, int fetchK);
+    
     /**
      * 按元数据筛选条件进行查询
      *
@@ -66,6 +79,35 @@ public interface RagService {
      */
     QueryResult searchWithMetadata(String query, Map<String, Object> metadataFilter, int topK);
     
+    /**
+     * 异步检索相关文档，在独立线程池中执行，调用线程不等待嵌入与向量检索。
+     * 线程池已满时不在调用线程上执行，返回的 future 以 {@link java.util.concurrent.RejectedExecutionException} 失败
+     *
+     * @param query 查询文本
+     * @param topK 返回的最大结果数
+     * @return 检索结果
+     */
+    CompletableFuture<QueryResult> searchAsync(String query, int topK);
+    
+    /**
+     * 异步检索相关文档并构建检索上下文，线程池已满时返回的 future 以拒绝异常失败
+     *
+     * @param query 查询文本
+     * @param topK 返回的最大结果数
+     * @return 检索上下文
+     */
+    CompletableFuture<RetrievalContext> searchWithContextAsync(String query, int topK);
+    
+    /**
+     * 异步按元数据筛选条件进行查询，线程池已满时返回的 future 以拒绝异常失败
+     *
+     * @param query 查询文本
+     * @param metadataFilter 元数据筛选条件
+     * @param topK 返回的最大结果数
+     * @return 检索结果
+     */
+    CompletableFuture<QueryResult> searchWithMetadataAsync(String query, Map<String, Object> metadataFilter, int topK);
+    
     /**
      * 导入现有数据到向量库
      *
@@ -74,4 +116,11 @@ public interface RagService {
      * @return 导入的文档数量
      */
     int importExistingData(String sourceType, int batchSize);
+    
+    /**
+     * 获取存量数据导入进度
+     *
+     * @return 每个源数据表最近一次导入的进度，包括正在执行的导入
+     */
+    List<ImportProgress> getImportProgress();
 }
@@ -1,7 +1,10 @@
 package com.interview.rag.service;
 
+import com.interview.rag.index.ScoredId;
+import com.interview.rag.model.BulkWriteResult;
 import com.interview.rag.model.VectorDocument;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -22,10 +25,18 @@ public interface VectorStoreService {
      * 批量添加文档
      *
      * @param documents 向量文档列表
-     * @return 文档ID列表
+     * @return 成功写入的文档ID列表（按输入顺序，跳过失败项）
      */
     List<String> addDocuments(List<VectorDocument> documents);
     
+    /**
+     * 批量写入文档，按批次执行批量插入并报告失败的批次
+     *
+     * @param documents 向量文档列表
+     * @return 写入结果，文档ID与输入顺序一致
+     */
+    BulkWriteResult bulkAddDocuments(List<VectorDocument> documents);
+    
     /**
      * 删除文档
      *
@@ -51,6 +62,15 @@ public interface VectorStoreService {
      */
     List<VectorDocument> similaritySearch(List<Float> embedding, int topK);
     
+    /**
+     * 向量相似度搜索（基本类型数组）
+     *
+     * @param embedding 查询向量
+     * @param topK 返回的最大结果数
+     * @return 向量文档列表
+     */
+    List<VectorDocument> similaritySearch(float[] embedding, int topK);
+    
     /**
      * 带元数据筛选的向量相似度搜索
      *
@@ -61,6 +81,71 @@ public interface VectorStoreService {
      */
     List<VectorDocument> similaritySearchWithMetadata(List<Float> embedding, Map<String, Object> metadataFilter, int topK);
     
+    /**
+     * 带元数据筛选的向量相似度搜索（基本类型数组）
+     *
+     * @param embedding 查询向量
+     * @param metadataFilter 元数据筛选条件
+     * @param topK 返回的最大结果数
+     * @return 向量文档列表
+     */
+    List<VectorDocument> similaritySearchWithMetadata(float[] embedding, Map<String, Object> metadataFilter, int topK);
+    
+    /**
+     * 关键词检索（BM25）
+     *
+     * @param query 查询文本
+     * @param topK 返回的最大结果数
+     * @return 按关键词得分降序排列的文档列表，不支持关键词检索时返回空列表
+     */
+    List<VectorDocument> keywordSearch(String query, int topK);
+    
+    /**
+     * 两阶段检索第一阶段：向量相似度搜索，只返回文档ID与相似度分数
+     *
+     * @param embedding 查询向量
+     * @param topK 返回的最大结果数
+     * @return 按相似度降序排列的命中项
+     */
+    List<ScoredId> similaritySearchIds(float[] embedding, int topK);
+    
+    /**
+     * 两阶段检索第一阶段：带元数据筛选的向量相似度搜索，只返回文档ID与相似度分数
+     *
+     * @param embedding 查询向量
+     * @param metadataFilter 元数据筛选条件
+     * @param topK 返回的最大结果数
+     * @return 按相似度降序排列的命中项
+     */
+    List<ScoredId> similaritySearchIdsWithMetadata(float[] embedding, Map<String, Object> metadataFilter, int topK);
+    
+    /**
+     * 两阶段检索第一阶段：关键词检索（BM25），只返回文档ID与得分
+     *
+     * @param query 查询文本
+     * @param topK 返回的最大结果数
+     * @return 按得分降序排列的命中项，不支持关键词检索时返回空列表
+     */
+    List<ScoredId> keywordSearchIds(String query, int topK);
+    
+    /**
+     * 两阶段检索第二阶段：按命中项批量读取文档内容与元数据
+     * 命中项已附带文档且不需要向量时直接使用，只读取其余命中项
+     *
+     * @param hits 命中项
+     * @param includeVectors 是否同时读取向量
+     * @return 按命中顺序排列的文档，score 为命中得分，已删除的文档不包含在内
+     */
+    List<VectorDocument> getDocuments(List<ScoredId> hits, boolean includeVectors);
+    
+    /**
+     * 按文档ID批量读取向量，用于检索结果的重排
+     *
+     * @param docIds 文档ID
+     * @return 文档ID到向量的映射，不存在或无法解析的ID不包含在内
+     */
+    Map<String, float[]> getEmbeddings(Collection<String> docIds);
+    
     /**
      * 获取集合中的文档数量
      *
@@ -74,5 +159,12 @@ public interface VectorStoreService {
      * @return 操作是否成功
      */
     boolean clearCollection();
+    
+    /**
+     * 获取集合版本号
+     * 每次写操作（添加、删除、清空）后递增，可用于判断缓存的检索结果是否过期
+     *
+     * @return 集合版本号
+     */
+    long getCollectionVersion();
 }
-
@@ -0,0 +1,230 @@
+package com.interview.rag.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.interview.rag.cache.EmbeddingDiskCache;
+import com.interview.rag.model.EmbeddingCacheStats;
+import com.interview.rag.service.EmbeddingService;
+import com.interview.rag.util.TextNormalizer;
+import com.interview.rag.util.VectorUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 带缓存的嵌入服务
+ * <p>
+ * 以 SHA-256(模型, 维度, 规范化文本) 为键，在真实嵌入服务前加两级缓存：
+ * 内存层使用 Caffeine（W-TinyLFU 淘汰，按向量字节数限制容量），磁盘层可选。
+ * 规范化包括 Unicode NFC、去除首尾空白、连续空白合并为一个空格，
+ * 重复爬取的面经与固定的查询文本不再重复调用嵌入接口。
+ * <p>
+ * 返回的向量均为副本，调用方修改不会影响缓存内容
+ */
+@Slf4j
+public class CachingEmbeddingService implements EmbeddingService {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final EmbeddingService delegate;
+    private final String model;
+    private final int dimensions;
+    private final Cache<String, float[]> memoryCache;
+    private final EmbeddingDiskCache diskCache;
+
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param delegate 实际调用嵌入接口的服务
+     * @param model 嵌入模型名称
+     * @param dimensions 向量维度
+     * @param maxMemoryBytes 内存缓存容量上限（字节）
+     * @param diskCache 磁盘缓存，为 null 时只使用内存缓存
+     */
+    public CachingEmbeddingService(EmbeddingService delegate, String model, int dimensions,
+                                   long maxMemoryBytes, EmbeddingDiskCache diskCache) {
+        this.delegate = delegate;
+        this.model = model;
+        this.dimensions = dimensions;
+        this.diskCache = diskCache;
+        this.memoryCache = Caffeine.newBuilder()
+                .maximumWeight(maxMemoryBytes)
+                .weigher((String key, float[] vector) -> key.length() * 2 + vector.length * Float.BYTES)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public List<Float> createEmbedding(String text) {
+        return VectorUtils.asList(createEmbeddingVector(text));
+    }
+
+    @Override
+    public float[] createEmbeddingVector(String text) {
+        if (text == null) {
+            return delegate.createEmbeddingVector(null);
+        }
+
+        String key = cacheKey(text);
+        float[] cached = lookup(key);
+        if (cached != null) {
+            return Arrays.copyOf(cached, cached.length);
+        }
+
+        misses.increment();
+        float[] vector = delegate.createEmbeddingVector(text);
+        store(key, vector);
+        return Arrays.copyOf(vector, vector.length);
+    }
+
+    @Override
+    public List<List<Float>> createEmbeddings(List<String> texts) {
+        List<float[]> vectors = createEmbeddingVectors(texts);
+        List<List<Float>> embeddings = new ArrayList<>(vectors.size());
+        for (float[] vector : vectors) {
+            embeddings.add(VectorUtils.asList(vector));
+        }
+        return embeddings;
+    }
+
+    @Override
+    public List<float[]> createEmbeddingVectors(List<String> texts) {
+        float[][] results = new float[texts.size()][];
+
+        // 未命中的文本按缓存键去重，同一批次内的重复文本只请求一次
+        Map<String, List<Integer>> pending = new LinkedHashMap<>();
+        Map<String, String> pendingTexts = new LinkedHashMap<>();
+        for (int i = 0; i < texts.size(); i++) {
+            String text = texts.get(i);
+            if (text == null) {
+                throw new IllegalArgumentException("批量嵌入的文本不能为空: index=" + i);
+            }
+            String key = cacheKey(text);
+            float[] cached = lookup(key);
+            if (cached != null) {
+                results[i] = Arrays.copyOf(cached, cached.length);
+            } else {
+                pending.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+                pendingTexts.putIfAbsent(key, text);
+            }
+        }
+
+        if (!pending.isEmpty()) {
+            misses.add(pending.size());
+            List<String> keys = new ArrayList<>(pendingTexts.keySet());
+            List<float[]> vectors = delegate.createEmbeddingVectors(new ArrayList<>(pendingTexts.values()));
+            if (vectors.size() != keys.size()) {
+                throw new RuntimeException("批量嵌入返回数量不一致: " + vectors.size() + " vs " + keys.size());
+            }
+            for (int i = 0; i < keys.size(); i++) {
+                float[] vector = vectors.get(i);
+                store(keys.get(i), vector);
+                for (int index : pending.get(keys.get(i))) {
+                    results[index] = Arrays.copyOf(vector, vector.length);
+                }
+            }
+        }
+
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public float calculateSimilarity(List<Float> embedding1, List<Float> embedding2) {
+        return delegate.calculateSimilarity(embedding1, embedding2);
+    }
+
+    @Override
+    public float calculateSimilarity(float[] embedding1, float[] embedding2) {
+        return delegate.calculateSimilarity(embedding1, embedding2);
+    }
+
+    /**
+     * 获取缓存统计
+     */
+    public EmbeddingCacheStats getStats() {
+        long memory = memoryHits.sum();
+        long disk = diskHits.sum();
+        long miss = misses.sum();
+        long total = memory + disk + miss;
+        return EmbeddingCacheStats.builder()
+                .memoryHits(memory)
+                .diskHits(disk)
+                .misses(miss)
+                .hitRate(total == 0 ? 0.0 : (double) (memory + disk) / total)
+                .memoryEntries(memoryCache.estimatedSize())
+                .memoryEvictions(memoryCache.stats().evictionCount())
+                .diskEntries(diskCache == null ? 0 : diskCache.size())
+                .diskBytes(diskCache == null ? 0 : diskCache.sizeInBytes())
+                .build();
+    }
+
+    /**
+     * 清空内存缓存，磁盘缓存保留
+     */
+    public void invalidateMemory() {
+        memoryCache.invalidateAll();
+    }
+
+    private float[] lookup(String key) {
+        float[] vector = memoryCache.getIfPresent(key);
+        if (vector != null) {
+            memoryHits.increment();
+            return vector;
+        }
+        if (diskCache != null) {
+            vector = diskCache.get(key);
+            if (vector != null && vector.length == dimensions) {
+                diskHits.increment();
+                memoryCache.put(key, vector);
+                return vector;
+            }
+        }
+        return null;
+    }
+
+    private void store(String key, float[] vector) {
+        if (vector == null || vector.length != dimensions) {
+            // 维度异常的结果不缓存，避免污染
+            log.warn("嵌入向量维度异常，未写入缓存: {} vs {}", vector == null ? 0 : vector.length, dimensions);
+            return;
+        }
+        float[] copy = Arrays.copyOf(vector, vector.length);
+        memoryCache.put(key, copy);
+        if (diskCache != null) {
+            diskCache.put(key, copy);
+        }
+    }
+
+    /**
+     * 计算缓存键：SHA-256(模型 + 维度 + 规范化文本) 的十六进制表示
+     */
+    String cacheKey(String text) {
+        String normalized = TextNormalizer.normalize(text);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(model.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(Integer.toString(dimensions).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            byte[] hash = digest.digest(normalized.getBytes(StandardCharsets.UTF_8));
+            char[] hex = new char[hash.length * 2];
+            for (int i = 0; i < hash.length; i++) {
+                hex[i * 2] = HEX[(hash[i] >> 4) & 0xF];
+                hex[i * 2 + 1] = HEX[hash[i] & 0xF];
+            }
+            return new String(hex);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.interview.rag.service.impl;
+
+import com.interview.rag.service.EmbeddingService;
+import com.interview.rag.util.VectorUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 合并单条请求的嵌入服务
+ * <p>
+ * 单条嵌入请求交给 {@link EmbeddingRequestCoalescer}，与同一时间窗口内的其他请求合并为一次批量调用，
+ * 调用方仍然同步等待自己的结果，等待超过 timeoutMillis 时放弃；批量请求本身已经是一次调用，直接交给实际的嵌入服务
+ */
+public class CoalescingEmbeddingService implements EmbeddingService {
+
+    private final EmbeddingService delegate;
+    private final EmbeddingRequestCoalescer coalescer;
+    private final long timeoutMillis;
+
+    /**
+     * @param delegate 实际调用嵌入接口的服务，与合并器使用的是同一个实例
+     * @param coalescer 请求合并器
+     * @param timeoutMillis 等待单条嵌入结果的最长毫秒数
+     */
+    public CoalescingEmbeddingService(EmbeddingService delegate, EmbeddingRequestCoalescer coalescer, long timeoutMillis) {
+        if (timeoutMillis <= 0) {
+            throw new IllegalArgumentException("嵌入等待超时必须大于0: " + timeoutMillis);
+        }
+        this.delegate = delegate;
+        this.coalescer = coalescer;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public List<Float> createEmbedding(String text) {
+        return VectorUtils.asList(createEmbeddingVector(text));
+    }
+
+    @Override
+    public float[] createEmbeddingVector(String text) {
+        if (text == null) {
+            return delegate.createEmbeddingVector(null);
+        }
+        CompletableFuture<float[]> future = coalescer.submit(text);
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // 之后返回的结果直接丢弃
+            future.cancel(false);
+            throw new RuntimeException("等待嵌入结果超时: " + timeoutMillis + "ms", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待嵌入结果时被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException("生成嵌入向量失败: " + cause.getMessage(), cause);
+        }
+    }
+
+    @Override
+    public List<List<Float>> createEmbeddings(List<String> texts) {
+        return delegate.createEmbeddings(texts);
+    }
+
+    @Override
+    public List<float[]> createEmbeddingVectors(List<String> texts) {
+        return delegate.createEmbeddingVectors(texts);
+    }
+
+    @Override
+    public float calculateSimilarity(List<Float> embedding1, List<Float> embedding2) {
+        return delegate.calculateSimilarity(embedding1, embedding2);
+    }
+
+    @Override
+    public float calculateSimilarity(float[] embedding1, float[] embedding2) {
+        return delegate.calculateSimilarity(embedding1, embedding2);
+    }
+}
@@ -3,10 +3,12 @@ package com.interview.rag.service.impl;
 import com.defiy.core.embedding.EmbeddingClient;
 import com.interview.rag.service.EmbeddingService;
 import com.interview.rag.util.SimilarityCalculator;
+import com.interview.rag.util.VectorUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -31,6 +33,11 @@ public class DefiyEmbeddingServiceImpl implements EmbeddingService {
         }
     }
 
+    @Override
+    public float[] createEmbeddingVector(String text) {
+        return VectorUtils.toArray(createEmbedding(text));
+    }
+
     @Override
     public List<List<Float>> createEmbeddings(List<String> texts) {
         try {
@@ -41,8 +48,23 @@ public class DefiyEmbeddingServiceImpl implements EmbeddingService {
         }
     }
 
+    @Override
+    public List<float[]> createEmbeddingVectors(List<String> texts) {
+        List<List<Float>> embeddings = createEmbeddings(texts);
+        List<float[]> vectors = new ArrayList<>(embeddings.size());
+        for (List<Float> embedding : embeddings) {
+            vectors.add(VectorUtils.toArray(embedding));
+        }
+        return vectors;
+    }
+
     @Override
     public float calculateSimilarity(List<Float> embedding1, List<Float> embedding2) {
         return similarityCalculator.cosineSimilarity(embedding1, embedding2);
     }
+
+    @Override
+    public float calculateSimilarity(float[] embedding1, float[] embedding2) {
+        return similarityCalculator.cosineSimilarity(embedding1, embedding2);
+    }
 }
\ No newline at end of file
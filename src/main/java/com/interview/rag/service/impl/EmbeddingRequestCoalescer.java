@@ -0,0 +1,229 @@
+package com.interview.rag.service.impl;
+
+import com.interview.rag.service.EmbeddingService;
+import com.interview.rag.util.EmbeddingBatcher;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 嵌入请求合并器
+ * <p>
+ * 并发的单条嵌入请求先进入队列，分发线程收到第一条请求后最多再等待 maxWait，
+ * 或凑满 maxBatchSize 条后，将这些文本合并为一次批量嵌入调用，再把各自的向量交还给对应的调用方。
+ * 批量调用在独立的发送线程池中执行，上一批等待接口返回时，下一批可以继续收集和发送。
+ * 同一批次内的重复文本只请求一次；一批的 token 数超过 {@link EmbeddingBatcher} 的限制时拆成多次调用
+ */
+@Slf4j
+public class EmbeddingRequestCoalescer implements AutoCloseable {
+
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final EmbeddingService delegate;
+    private final EmbeddingBatcher embeddingBatcher;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService senders;
+    private final Thread dispatcher;
+    private volatile boolean closed;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    /**
+     * @param delegate 实际调用嵌入接口的服务
+     * @param embeddingBatcher 批次划分工具，用于限制单次调用的 token 数
+     * @param maxBatchSize 单批最多合并的请求数
+     * @param maxWaitMillis 收到第一条请求后最多等待的毫秒数
+     * @param concurrency 同时进行的批量调用数
+     */
+    public EmbeddingRequestCoalescer(EmbeddingService delegate, EmbeddingBatcher embeddingBatcher,
+                                     int maxBatchSize, long maxWaitMillis, int concurrency) {
+        if (maxBatchSize <= 0 || maxWaitMillis < 0 || concurrency <= 0) {
+            throw new IllegalArgumentException("嵌入请求合并参数不合法: maxBatchSize=" + maxBatchSize
+                    + ", maxWaitMillis=" + maxWaitMillis + ", concurrency=" + concurrency);
+        }
+        this.delegate = delegate;
+        this.embeddingBatcher = embeddingBatcher;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+
+        AtomicInteger senderIndex = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "embedding-batch-" + senderIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dispatcher = new Thread(this::dispatchLoop, "embedding-coalescer");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * 提交单条嵌入请求
+     *
+     * @param text 文本
+     * @return 向量，每个调用方得到独立的数组
+     */
+    public CompletableFuture<float[]> submit(String text) {
+        Request request = new Request(text);
+        if (closed) {
+            request.future.completeExceptionally(new IllegalStateException("嵌入请求合并器已关闭"));
+            return request.future;
+        }
+        requests.increment();
+        queue.add(request);
+        // 与 close 并发时请求可能在最后一次清空队列之后才入队，此时自行取回并失败；
+        // 取回失败说明请求已被分发线程或 close 取走，会由它们完成
+        if (closed && queue.remove(request)) {
+            request.future.completeExceptionally(new IllegalStateException("嵌入请求合并器已关闭"));
+        }
+        return request.future;
+    }
+
+    /**
+     * 已合并的请求数
+     */
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    /**
+     * 发出的批次数
+     */
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    /**
+     * 停止接收请求，已入队的请求发送完毕后关闭线程
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            dispatcher.join(TimeUnit.SECONDS.toMillis(5));
+            senders.shutdown();
+            if (!senders.awaitTermination(30, TimeUnit.SECONDS)) {
+                senders.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            senders.shutdownNow();
+        }
+
+        List<Request> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        for (Request request : remaining) {
+            request.future.completeExceptionally(new IllegalStateException("嵌入请求合并器已关闭"));
+        }
+        log.info("嵌入请求合并器已关闭: 合并{}条请求为{}次批量调用", requests.sum(), batches.sum());
+    }
+
+    private void dispatchLoop() {
+        while (!closed || !queue.isEmpty()) {
+            List<Request> batch;
+            try {
+                batch = collect();
+            } catch (InterruptedException e) {
+                if (closed) {
+                    break;
+                }
+                continue;
+            }
+            if (batch.isEmpty()) {
+                continue;
+            }
+            try {
+                senders.execute(() -> send(batch));
+            } catch (RejectedExecutionException e) {
+                send(batch);
+            }
+        }
+    }
+
+    /**
+     * 等待第一条请求，然后在等待期限内继续收集，直到凑满一批
+     */
+    private List<Request> collect() throws InterruptedException {
+        List<Request> batch = new ArrayList<>(maxBatchSize);
+        Request first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return batch;
+        }
+        batch.add(first);
+
+        long deadline = System.nanoTime() + maxWaitNanos;
+        while (batch.size() < maxBatchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                queue.drainTo(batch, maxBatchSize - batch.size());
+                break;
+            }
+            Request next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        return batch;
+    }
+
+    private void send(List<Request> batch) {
+        Map<String, List<Request>> byText = new LinkedHashMap<>();
+        for (Request request : batch) {
+            byText.computeIfAbsent(request.text, key -> new ArrayList<>()).add(request);
+        }
+        List<String> texts = new ArrayList<>(byText.keySet());
+
+        try {
+            for (int[] range : embeddingBatcher.plan(texts)) {
+                List<String> part = texts.subList(range[0], range[1]);
+                batches.increment();
+                List<float[]> vectors = delegate.createEmbeddingVectors(part);
+                if (vectors.size() != part.size()) {
+                    throw new IllegalStateException("批量嵌入返回数量不一致: " + vectors.size() + " vs " + part.size());
+                }
+                for (int i = 0; i < part.size(); i++) {
+                    complete(byText.get(part.get(i)), vectors.get(i));
+                }
+            }
+            log.debug("合并嵌入请求: {}条请求, {}条不同文本", batch.size(), texts.size());
+        } catch (Throwable e) {
+            for (Request request : batch) {
+                request.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static void complete(List<Request> requests, float[] vector) {
+        for (int i = 0; i < requests.size(); i++) {
+            // 重复文本的调用方各自得到一份副本
+            requests.get(i).future.complete(i == 0 ? vector : Arrays.copyOf(vector, vector.length));
+        }
+    }
+
+    private static final class Request {
+        private final String text;
+        private final CompletableFuture<float[]> future = new CompletableFuture<>();
+
+        Request(String text) {
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,592 @@
+package com.interview.rag.service.impl;
+
+import com.interview.rag.index.Bm25Index;
+import com.interview.rag.index.MetadataBitmapIndex;
+import com.interview.rag.index.RecallEvaluator;
+import com.interview.rag.index.ScoredId;
+import com.interview.rag.index.VectorIndex;
+import com.interview.rag.index.VectorIndexFactory;
+import com.interview.rag.model.BulkWriteResult;
+import com.interview.rag.model.RecallReport;
+import com.interview.rag.model.StoredEmbedding;
+import com.interview.rag.model.VectorDocument;
+import com.interview.rag.repository.VectorStorageRepository;
+import com.interview.rag.service.VectorStoreService;
+import com.interview.rag.util.VectorUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于内存向量索引的面试知识库向量存储服务实现
+ * MySQL 仍是数据的唯一来源：写操作先落库再更新索引，启动时从 vector_storage 表重建索引，
+ * 索引重建完成前检索请求回退到 MySQL 向量存储。
+ * 开启段文件持久化时，启动先映射段文件，再只按ID与数据表对账补齐差异，无需全表扫描。
+ * 开启混合检索时额外维护 BM25 关键词索引；开启元数据索引时为常用筛选字段维护位图，
+ * 带筛选条件的检索先求出候选集合再打分。这两类索引不持久化，启动时随向量索引一起从数据表重建
+ */
+@Slf4j
+@Service
+@Primary
+@Qualifier("interviewVectorStoreService")
+@ConditionalOnExpression("!'${rag.index.type:mysql}'.equalsIgnoreCase('mysql')")
+public class IndexedVectorStoreServiceImpl implements VectorStoreService {
+
+    private final InterviewVectorStoreServiceImpl mysqlVectorStoreService;
+    private final VectorStorageRepository vectorStorageRepository;
+    private final String collection;
+    private final int rebuildBatchSize;
+    private final int evaluationSampleSize;
+    private final int evaluationK;
+    private final String indexType;
+    private final VectorIndex index;
+
+    /**
+     * 关键词索引，未开启混合检索时为 null
+     */
+    private final Bm25Index keywordIndex;
+
+    /**
+     * 元数据位图索引，未开启时为 null，带筛选条件的检索交由MySQL向量存储完成
+     */
+    private final MetadataBitmapIndex metadataIndex;
+
+    /**
+     * 筛选后的候选数不超过该值时逐个精确打分，否则在向量索引中带筛选条件检索
+     */
+    private final int bruteForceThreshold;
+
+    /**
+     * 重建期间被删除的文档，重建扫描时需要跳过，由 rebuildLock 保护
+     */
+    private final Set<Long> deletedDuringRebuild = new HashSet<>();
+
+    /**
+     * 重建扫描的“检查后写入”与删除互斥，避免扫描读到的旧数据在删除之后写回索引
+     */
+    private final Object rebuildLock = new Object();
+
+    private volatile boolean ready;
+    private volatile boolean documentIndexesReady;
+
+    /**
+     * 集合版本号，写操作在索引更新完成后递增，保证版本号变化时索引已可见
+     */
+    private final AtomicLong collectionVersion = new AtomicLong();
+
+    public IndexedVectorStoreServiceImpl(
+            InterviewVectorStoreServiceImpl mysqlVectorStoreService,
+            VectorStorageRepository vectorStorageRepository,
+            VectorIndexFactory vectorIndexFactory,
+            @Value("${rag.collection.interview}") String collection,
+            @Value("${rag.index.rebuild-batch-size:1000}") int rebuildBatchSize,
+            @Value("${rag.index.evaluation.sample-size:0}") int evaluationSampleSize,
+            @Value("${rag.index.evaluation.k:10}") int evaluationK,
+            @Value("${rag.hybrid.enabled:false}") boolean hybridEnabled,
+            @Value("${rag.index.metadata.enabled:true}") boolean metadataEnabled,
+            @Value("${rag.index.metadata.fields:source,company,category,chunkIndex}") String[] metadataFields,
+            @Value("${rag.index.metadata.brute-force-threshold:2000}") int bruteForceThreshold) {
+        this.mysqlVectorStoreService = mysqlVectorStoreService;
+        this.vectorStorageRepository = vectorStorageRepository;
+        this.collection = collection;
+        this.rebuildBatchSize = rebuildBatchSize;
+        this.evaluationSampleSize = evaluationSampleSize;
+        this.evaluationK = evaluationK;
+        this.indexType = vectorIndexFactory.getType();
+        this.index = vectorIndexFactory.create(collection);
+        this.keywordIndex = hybridEnabled ? new Bm25Index() : null;
+        this.metadataIndex = metadataEnabled ? new MetadataBitmapIndex(Arrays.asList(metadataFields)) : null;
+        this.bruteForceThreshold = bruteForceThreshold;
+    }
+
+    /**
+     * 后台线程从 vector_storage 表重建索引，避免阻塞应用启动
+     */
+    @PostConstruct
+    public void startRebuild() {
+        Thread thread = new Thread(this::rebuildIndex, "index-rebuild-" + collection);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 重建索引：先从段文件加载，为空时全表扫描，否则只与数据表对账
+     */
+    public void rebuildIndex() {
+        long startTime = System.currentTimeMillis();
+        ready = false;
+        try {
+            int persisted = index.load();
+            if (persisted == 0) {
+                scanAll();
+            } else {
+                log.info("已从段文件加载索引: 集合[{}], {}条, 开始与数据表对账", collection, persisted);
+                reconcile();
+            }
+            index.flush();
+            ready = true;
+            // 检索由MySQL切换到索引，之前缓存的结果一并失效
+            collectionVersion.incrementAndGet();
+            log.info("向量索引重建完成: 集合[{}], 共{}条, 耗时{}ms",
+                    collection, index.size(), System.currentTimeMillis() - startTime);
+            if (evaluationSampleSize > 0) {
+                evaluateRecall(evaluationSampleSize, evaluationK);
+            }
+        } catch (Exception e) {
+            log.error("向量索引重建失败，检索将继续使用MySQL向量存储: 集合[{}]", collection, e);
+        }
+        try {
+            if (keywordIndex != null || metadataIndex != null) {
+                rebuildDocumentIndexes();
+            }
+        } catch (Exception e) {
+            log.error("关键词与元数据索引重建失败，混合检索与筛选检索将继续使用MySQL向量存储: 集合[{}]", collection, e);
+        } finally {
+            synchronized (rebuildLock) {
+                deletedDuringRebuild.clear();
+            }
+        }
+    }
+
+    /**
+     * 从 vector_storage 表全量加载关键词索引与元数据索引
+     * 两者都不持久化，每次启动按ID游标扫描一遍文档内容与元数据
+     */
+    private void rebuildDocumentIndexes() {
+        long startTime = System.currentTimeMillis();
+        documentIndexesReady = false;
+        long lastId = 0;
+        while (true) {
+            List<VectorDocument> page = vectorStorageRepository.findDocumentsAfter(collection, lastId, rebuildBatchSize);
+            if (page.isEmpty()) {
+                break;
+            }
+            synchronized (rebuildLock) {
+                for (VectorDocument document : page) {
+                    long id = Long.parseLong(document.getId());
+                    lastId = id;
+                    if (deletedDuringRebuild.contains(id)) {
+                        continue;
+                    }
+                    if (keywordIndex != null && document.getContent() != null && !keywordIndex.contains(id)) {
+                        keywordIndex.add(id, document.getContent());
+                    }
+                    if (metadataIndex != null && !metadataIndex.contains(id)) {
+                        metadataIndex.add(id, document.getMetadata());
+                    }
+                }
+            }
+        }
+        if (metadataIndex != null) {
+            metadataIndex.optimize();
+        }
+        documentIndexesReady = true;
+        collectionVersion.incrementAndGet();
+        log.info("关键词与元数据索引重建完成: 集合[{}], 关键词索引{}条, 元数据索引{}条, 耗时{}ms",
+                collection, keywordIndex == null ? 0 : keywordIndex.size(),
+                metadataIndex == null ? 0 : metadataIndex.size(), System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * 以 vector_storage 表中的向量为语料做精确检索，评估当前索引的 Recall@K
+     * 查询向量从语料中随机抽样；评估需要两次扫描数据表，仅用于离线验证或启动自检
+     *
+     * @param sampleSize 查询数量
+     * @param k K值
+     * @return 评估结果
+     */
+    public RecallReport evaluateRecall(int sampleSize, int k) {
+        RecallEvaluator.Corpus corpus = visitor -> {
+            long lastId = 0;
+            while (true) {
+                List<StoredEmbedding> page = vectorStorageRepository.findEmbeddingsAfter(collection, lastId, rebuildBatchSize);
+                if (page.isEmpty()) {
+                    return;
+                }
+                for (StoredEmbedding stored : page) {
+                    lastId = stored.getId();
+                    if (stored.getEmbedding() != null) {
+                        visitor.visit(stored.getId(), stored.getEmbedding());
+                    }
+                }
+            }
+        };
+
+        List<float[]> queries = RecallEvaluator.sampleQueries(corpus, sampleSize, System.nanoTime());
+        if (queries.isEmpty()) {
+            log.info("集合[{}]为空，跳过召回率评估", collection);
+            return null;
+        }
+        RecallReport report = RecallEvaluator.evaluate(indexType, index, corpus, queries, k);
+        log.info("索引召回率评估: 集合[{}], 类型[{}], Recall@{}={}, 最低{}, 查询{}个, 近似检索{}us, 精确检索{}us",
+                collection, report.getIndexType(), report.getK(),
+                String.format("%.4f", report.getRecall()), String.format("%.4f", report.getMinRecall()),
+                report.getQueryCount(), String.format("%.1f", report.getMeanLatencyMicros()),
+                String.format("%.1f", report.getExactLatencyMicros()));
+        return report;
+    }
+
+    /**
+     * 定期将索引持久化，未持久化的写入在重启后由对账补齐
+     */
+    @Scheduled(fixedDelayString = "${rag.index.segment.flush-interval-ms:10000}")
+    public void flushIndex() {
+        if (!ready) {
+            return;
+        }
+        try {
+            index.flush();
+        } catch (Exception e) {
+            log.warn("向量索引持久化失败: 集合[{}]", collection, e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        try {
+            index.close();
+        } catch (Exception e) {
+            log.warn("关闭向量索引失败: 集合[{}]", collection, e);
+        }
+    }
+
+    /**
+     * 从 vector_storage 表全量加载索引
+     */
+    private void scanAll() {
+        long lastId = 0;
+        int loaded = 0;
+        while (true) {
+            List<StoredEmbedding> page = vectorStorageRepository.findEmbeddingsAfter(collection, lastId, rebuildBatchSize);
+            if (page.isEmpty()) {
+                break;
+            }
+            synchronized (rebuildLock) {
+                for (StoredEmbedding stored : page) {
+                    lastId = stored.getId();
+                    loaded += indexStored(stored);
+                }
+            }
+            log.debug("向量索引重建中: 集合[{}], 已加载{}条", collection, loaded);
+        }
+    }
+
+    /**
+     * 按ID与数据表对账：删除表中已不存在的文档，补齐段文件中缺失的文档
+     */
+    private void reconcile() {
+        Set<Long> liveIds = vectorStorageRepository.findAllIds(collection);
+        int removed = 0;
+        for (long id : index.ids()) {
+            if (!liveIds.contains(id)) {
+                index.remove(id);
+                removed++;
+            }
+        }
+
+        List<Long> missing = new ArrayList<>();
+        Set<Long> indexed = new HashSet<>();
+        for (long id : index.ids()) {
+            indexed.add(id);
+        }
+        for (Long id : liveIds) {
+            if (!indexed.contains(id)) {
+                missing.add(id);
+            }
+        }
+
+        int added = 0;
+        for (int from = 0; from < missing.size(); from += rebuildBatchSize) {
+            List<Long> batch = missing.subList(from, Math.min(from + rebuildBatchSize, missing.size()));
+            List<StoredEmbedding> page = vectorStorageRepository.findEmbeddingsByIds(batch);
+            synchronized (rebuildLock) {
+                for (StoredEmbedding stored : page) {
+                    added += indexStored(stored);
+                }
+            }
+        }
+        log.info("向量索引对账完成: 集合[{}], 删除{}条, 补齐{}条", collection, removed, added);
+    }
+
+    /**
+     * 重建扫描时写入一条向量，调用方需持有 rebuildLock
+     */
+    private int indexStored(StoredEmbedding stored) {
+        if (stored.getEmbedding() == null
+                || deletedDuringRebuild.contains(stored.getId())
+                || index.contains(stored.getId())) {
+            return 0;
+        }
+        index.add(stored.getId(), stored.getEmbedding());
+        return 1;
+    }
+
+    @Override
+    public String addDocument(VectorDocument document) {
+        try {
+            String docId = mysqlVectorStoreService.addDocument(document);
+            indexDocument(docId, document);
+            return docId;
+        } finally {
+            collectionVersion.incrementAndGet();
+        }
+    }
+
+    @Override
+    public List<String> addDocuments(List<VectorDocument> documents) {
+        return bulkAddDocuments(documents).getSucceededIds();
+    }
+
+    @Override
+    public BulkWriteResult bulkAddDocuments(List<VectorDocument> documents) {
+        BulkWriteResult result = mysqlVectorStoreService.bulkAddDocuments(documents);
+        for (int i = 0; i < documents.size(); i++) {
+            String docId = result.getIds().get(i);
+            if (docId != null) {
+                indexDocument(docId, documents.get(i));
+            }
+        }
+        collectionVersion.incrementAndGet();
+        return result;
+    }
+
+    @Override
+    public boolean deleteDocument(String docId) {
+        boolean deleted = mysqlVectorStoreService.deleteDocument(docId);
+        if (deleted) {
+            Long id = parseId(docId);
+            if (id != null) {
+                synchronized (rebuildLock) {
+                    removeFromIndexes(id);
+                }
+            }
+        }
+        collectionVersion.incrementAndGet();
+        return deleted;
+    }
+
+    @Override
+    public int deleteDocumentsByMetadata(Map<String, Object> metadataFilter) {
+        // 先查出匹配的ID再按ID删除，只从索引中移除这些文档，无需与全表ID对账
+        List<Long> deletedIds = mysqlVectorStoreService.deleteMatchingDocuments(metadataFilter);
+        synchronized (rebuildLock) {
+            for (long id : deletedIds) {
+                removeFromIndexes(id);
+            }
+        }
+        collectionVersion.incrementAndGet();
+        return deletedIds.size();
+    }
+
+    @Override
+    public List<VectorDocument> similaritySearch(List<Float> embedding, int topK) {
+        return similaritySearch(VectorUtils.toArray(embedding), topK);
+    }
+
+    @Override
+    public List<VectorDocument> similaritySearch(float[] embedding, int topK) {
+        if (!ready) {
+            return mysqlVectorStoreService.similaritySearch(embedding, topK);
+        }
+        return toDocuments(similaritySearchIds(embedding, topK));
+    }
+
+    @Override
+    public List<VectorDocument> similaritySearchWithMetadata(List<Float> embedding, Map<String, Object> metadataFilter, int topK) {
+        return similaritySearchWithMetadata(VectorUtils.toArray(embedding), metadataFilter, topK);
+    }
+
+    @Override
+    public List<VectorDocument> similaritySearchWithMetadata(float[] embedding, Map<String, Object> metadataFilter, int topK) {
+        Roaring64Bitmap allowed = resolveFilter(metadataFilter);
+        if (allowed == null) {
+            // 索引未就绪或筛选字段未建立位图，交由MySQL向量存储完成
+            return mysqlVectorStoreService.similaritySearchWithMetadata(embedding, metadataFilter, topK);
+        }
+        return toDocuments(searchFiltered(embedding, allowed, topK));
+    }
+
+    @Override
+    public List<VectorDocument> keywordSearch(String query, int topK) {
+        return toDocuments(keywordSearchIds(query, topK));
+    }
+
+    @Override
+    public List<ScoredId> similaritySearchIds(float[] embedding, int topK) {
+        if (!ready) {
+            return mysqlVectorStoreService.similaritySearchIds(embedding, topK);
+        }
+
+        try {
+            return index.search(embedding, topK);
+        } catch (Exception e) {
+            log.error("相似度搜索失败", e);
+            throw new RuntimeException("相似度搜索失败", e);
+        }
+    }
+
+    @Override
+    public List<ScoredId> similaritySearchIdsWithMetadata(float[] embedding, Map<String, Object> metadataFilter, int topK) {
+        Roaring64Bitmap allowed = resolveFilter(metadataFilter);
+        if (allowed == null) {
+            return mysqlVectorStoreService.similaritySearchIdsWithMetadata(embedding, metadataFilter, topK);
+        }
+        return searchFiltered(embedding, allowed, topK);
+    }
+
+    @Override
+    public List<ScoredId> keywordSearchIds(String query, int topK) {
+        if (keywordIndex == null || !documentIndexesReady) {
+            return new ArrayList<>();
+        }
+
+        try {
+            return keywordIndex.search(query, topK);
+        } catch (Exception e) {
+            log.error("关键词搜索失败", e);
+            throw new RuntimeException("关键词搜索失败", e);
+        }
+    }
+
+    @Override
+    public List<VectorDocument> getDocuments(List<ScoredId> hits, boolean includeVectors) {
+        // 回退到 MySQL 检索时命中项已附带文档，不再回表
+        return mysqlVectorStoreService.getDocuments(hits, includeVectors);
+    }
+
+    @Override
+    public Map<String, float[]> getEmbeddings(Collection<String> docIds) {
+        return mysqlVectorStoreService.getEmbeddings(docIds);
+    }
+
+    @Override
+    public long getDocumentCount() {
+        return mysqlVectorStoreService.getDocumentCount();
+    }
+
+    @Override
+    public boolean clearCollection() {
+        boolean cleared = mysqlVectorStoreService.clearCollection();
+        if (cleared) {
+            index.clear();
+            if (keywordIndex != null) {
+                keywordIndex.clear();
+            }
+            if (metadataIndex != null) {
+                metadataIndex.clear();
+            }
+        }
+        collectionVersion.incrementAndGet();
+        return cleared;
+    }
+
+    @Override
+    public long getCollectionVersion() {
+        return collectionVersion.get();
+    }
+
+    /**
+     * 索引是否已完成重建
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 从各索引中移除文档，重建期间同时记录下来供扫描跳过，调用方需持有 rebuildLock
+     */
+    private void removeFromIndexes(long id) {
+        index.remove(id);
+        if (keywordIndex != null) {
+            keywordIndex.remove(id);
+        }
+        if (metadataIndex != null) {
+            metadataIndex.remove(id);
+        }
+        if (!ready || !documentIndexesReady) {
+            deletedDuringRebuild.add(id);
+        }
+    }
+
+    private void indexDocument(String docId, VectorDocument document) {
+        Long id = parseId(docId);
+        if (id == null) {
+            return;
+        }
+        try {
+            if (document.getVector() != null) {
+                index.add(id, document.getVector());
+            }
+            if (keywordIndex != null && document.getContent() != null) {
+                keywordIndex.add(id, document.getContent());
+            }
+            if (metadataIndex != null) {
+                metadataIndex.add(id, document.getMetadata());
+            }
+        } catch (Exception e) {
+            // 已落库的文档会在下次重建时进入索引
+            log.warn("文档写入索引失败: {}", docId, e);
+        }
+    }
+
+    /**
+     * 按元数据索引求出候选集合
+     *
+     * @return 候选文档ID，索引未就绪或筛选字段未建立位图时返回 null
+     */
+    private Roaring64Bitmap resolveFilter(Map<String, Object> metadataFilter) {
+        return ready && documentIndexesReady && metadataIndex != null
+                ? metadataIndex.resolve(metadataFilter)
+                : null;
+    }
+
+    /**
+     * 在候选集合内检索，候选较少时逐个精确打分
+     */
+    private List<ScoredId> searchFiltered(float[] embedding, Roaring64Bitmap allowed, int topK) {
+        if (allowed.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        try {
+            return allowed.getLongCardinality() <= bruteForceThreshold
+                    ? index.searchAmong(embedding, allowed.toArray(), topK)
+                    : index.search(embedding, topK, allowed::contains);
+        } catch (Exception e) {
+            log.error("带元数据筛选的相似度搜索失败", e);
+            throw new RuntimeException("带元数据筛选的相似度搜索失败", e);
+        }
+    }
+
+    /**
+     * 按命中顺序回表加载文档内容与元数据，score 为命中得分
+     */
+    private List<VectorDocument> toDocuments(List<ScoredId> hits) {
+        return mysqlVectorStoreService.getDocuments(hits, false);
+    }
+
+    private Long parseId(String docId) {
+        try {
+            return Long.parseLong(docId);
+        } catch (NumberFormatException e) {
+            log.warn("无法解析的文档ID，已跳过索引更新: {}", docId);
+            return null;
+        }
+    }
+}
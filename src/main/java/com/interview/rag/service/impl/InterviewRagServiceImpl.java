@@ -2,22 +2,44 @@ package com.interview.rag.service.impl;
 
 import com.defiy.core.embedding.EmbeddingClient;
 import com.defiy.mysql.MysqlVectorStore;
+import com.interview.rag.cache.QueryResultCache;
+import com.interview.rag.index.NearDuplicateFilter;
+import com.interview.rag.index.ScoredId;
+import com.interview.rag.model.BulkWriteResult;
+import com.interview.rag.model.ChunkMetadata;
+import com.interview.rag.model.ImportProgress;
 import com.interview.rag.model.QueryResult;
 import com.interview.rag.model.RetrievalContext;
+import com.interview.rag.model.SourceRecord;
 import com.interview.rag.model.VectorDocument;
+import com.interview.rag.repository.ImportSourceRepository;
 import com.interview.rag.service.EmbeddingService;
 import com.interview.rag.service.RagService;
 import com.interview.rag.service.VectorStoreService;
+import com.interview.rag.util.ContextPacker;
+import com.interview.rag.util.EmbeddingBatcher;
+import com.interview.rag.util.MmrReranker;
+import com.interview.rag.util.RankFusion;
 import com.interview.rag.util.TextSplitter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
  * 面试知识库 RAG 服务实现
+ * 开启混合检索时，关键词检索（BM25）与向量检索并行执行，两路结果按倒数排名融合。
+ * 构建检索上下文时多取候选，按最大边际相关性重排并折叠同一文档的块，减少重叠块占用提示词。
+ * 开启近重复过滤时，写入前按 SimHash 过滤近重复块，转载的面经不再重复嵌入和写入。
+ * 存量数据按主键游标分页导入，每页写入完成后保存检查点，中断后重新执行从检查点继续
  */
 @Slf4j
 @Service
@@ -26,14 +48,72 @@ public class InterviewRagServiceImpl implements RagService {
     private final VectorStoreService vectorStoreService;
     private final EmbeddingService embeddingService;
     private final TextSplitter textSplitter;
+    private final EmbeddingBatcher embeddingBatcher;
+    private final ContextPacker contextPacker;
+    private final NearDuplicateFilter duplicateFilter;
+    private final QueryResultCache queryResultCache;
+    private final ImportSourceRepository importSourceRepository;
+    private final Executor searchExecutor;
+    private final Executor asyncExecutor;
+    private final String collection;
+    private final long importReportIntervalMillis;
+    private final boolean hybridEnabled;
+    private final int candidateMultiplier;
+    private final int rrfK;
+    private final boolean rerankEnabled;
+    private final double rerankLambda;
+    private final int rerankFetchMultiplier;
+    private final int maxChunksPerDocument;
+
+    /**
+     * 正在导入的源数据表，同一个表不允许并发导入
+     */
+    private final Set<String> runningImports = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 每个源数据表最近一次导入的进度
+     */
+    private final Map<String, ImportRun> importRuns = new ConcurrentHashMap<>();
 
     public InterviewRagServiceImpl(
             @Qualifier("interviewVectorStoreService") VectorStoreService vectorStoreService,
             EmbeddingService embeddingService,
-            TextSplitter textSplitter) {
+            TextSplitter textSplitter,
+            EmbeddingBatcher embeddingBatcher,
+            ContextPacker contextPacker,
+            NearDuplicateFilter duplicateFilter,
+            QueryResultCache queryResultCache,
+            ImportSourceRepository importSourceRepository,
+            @Qualifier("ragSearchExecutor") Executor searchExecutor,
+            @Qualifier("ragAsyncExecutor") Executor asyncExecutor,
+            @Value("${rag.collection.interview}") String collection,
+            @Value("${rag.import.report-interval-ms:10000}") long importReportIntervalMillis,
+            @Value("${rag.hybrid.enabled:false}") boolean hybridEnabled,
+            @Value("${rag.hybrid.candidate-multiplier:4}") int candidateMultiplier,
+            @Value("${rag.hybrid.rrf-k:60}") int rrfK,
+            @Value("${rag.rerank.enabled:true}") boolean rerankEnabled,
+            @Value("${rag.rerank.lambda:0.7}") double rerankLambda,
+            @Value("${rag.rerank.fetch-multiplier:4}") int rerankFetchMultiplier,
+            @Value("${rag.rerank.max-chunks-per-document:1}") int maxChunksPerDocument) {
         this.vectorStoreService = vectorStoreService;
         this.embeddingService = embeddingService;
         this.textSplitter = textSplitter;
+        this.embeddingBatcher = embeddingBatcher;
+        this.contextPacker = contextPacker;
+        this.duplicateFilter = duplicateFilter;
+        this.queryResultCache = queryResultCache;
+        this.importSourceRepository = importSourceRepository;
+        this.searchExecutor = searchExecutor;
+        this.asyncExecutor = asyncExecutor;
+        this.collection = collection;
+        this.importReportIntervalMillis = importReportIntervalMillis;
+        this.hybridEnabled = hybridEnabled;
+        this.candidateMultiplier = Math.max(1, candidateMultiplier);
+        this.rrfK = rrfK;
+        this.rerankEnabled = rerankEnabled;
+        this.rerankLambda = rerankLambda;
+        this.rerankFetchMultiplier = Math.max(1, rerankFetchMultiplier);
+        this.maxChunksPerDocument = maxChunksPerDocument;
     }
 
     @Override
@@ -43,39 +123,7 @@ public class InterviewRagServiceImpl implements RagService {
         }
 
         try {
-            // 将长文本分割成块
-            List<String> chunks = textSplitter.splitIntoChunks(content);
-            if (chunks.isEmpty()) {
-                chunks.add(content);
-            }
-
-            List<String> documentIds = new ArrayList<>();
-
-            // 为每个块创建向量嵌入并存储
-            for (int i = 0; i < chunks.size(); i++) {
-                String chunk = chunks.get(i);
-                List<Float> embedding = embeddingService.createEmbedding(chunk);
-
-                // 为每个块添加额外元数据
-                Map<String, Object> chunkMetadata = new HashMap<>(metadata);
-                chunkMetadata.put("chunkIndex", i);
-                chunkMetadata.put("chunkCount", chunks.size());
-                if (chunks.size() > 1) {
-                    chunkMetadata.put("isChunk", true);
-                    chunkMetadata.put("originalContent", content.substring(0, Math.min(100, content.length())) + "...");
-                }
-
-                VectorDocument document = VectorDocument.builder()
-                        .content(chunk)
-                        .embedding(embedding)
-                        .metadata(chunkMetadata)
-                        .build();
-
-                String docId = vectorStoreService.addDocument(document);
-                documentIds.add(docId);
-            }
-
-            log.info("添加文档成功: 共{}个块", chunks.size());
+            List<String> documentIds = ingest(Collections.singletonList(content), Collections.singletonList(metadata));
             // 返回第一个块的ID作为文档ID
             return documentIds.get(0);
         } catch (Exception e) {
@@ -94,19 +142,175 @@ public class InterviewRagServiceImpl implements RagService {
             throw new IllegalArgumentException("文档内容列表和元数据列表长度不匹配");
         }
 
-        List<String> documentIds = new ArrayList<>();
-        for (int i = 0; i < contents.size(); i++) {
-            Map<String, Object> metadata = metadataList != null ? metadataList.get(i) : new HashMap<>();
-            String docId = addDocument(contents.get(i), metadata);
-            documentIds.add(docId);
+        for (String content : contents) {
+            if (content == null || content.isEmpty()) {
+                throw new IllegalArgumentException("文档内容不能为空");
+            }
+        }
+
+        try {
+            return ingest(contents, metadataList);
+        } catch (Exception e) {
+            log.error("批量添加文档失败", e);
+            throw new RuntimeException("批量添加文档失败", e);
+        }
+    }
+
+    /**
+     * 分块、批量嵌入并存储文档
+     * 所有文档的块按顺序合并后划分批次，每批调用一次批量嵌入接口，嵌入完成即写入存储
+     *
+     * @param contents 文档内容
+     * @param metadataList 元数据列表，可为 null
+     * @return 每个文档第一个块的ID，与输入顺序一致
+     */
+    private List<String> ingest(List<String> contents, List<Map<String, Object>> metadataList) {
+        List<VectorDocument> chunkDocuments = new ArrayList<>();
+        List<Integer> owners = new ArrayList<>();
+        for (int docIndex = 0; docIndex < contents.size(); docIndex++) {
+            Map<String, Object> metadata = metadataList != null ? metadataList.get(docIndex) : null;
+            appendChunks(contents.get(docIndex), metadata, docIndex, chunkDocuments, owners);
+        }
+
+        NearDuplicateFilter.Batch dedup = checkDuplicates(chunkDocuments);
+        List<String> firstChunkIds = embedAndStore(chunkDocuments, owners, contents.size(), dedup);
+        log.info("添加文档成功: {}个文档, 共{}个块, 跳过近重复块{}个",
+                contents.size(), chunkDocuments.size() - dedup.getDuplicateCount(), dedup.getDuplicateCount());
+        return firstChunkIds;
+    }
+
+    /**
+     * 检查近重复块，命中的已写入块通过读取向量确认仍在存储中
+     */
+    private NearDuplicateFilter.Batch checkDuplicates(List<VectorDocument> chunkDocuments) {
+        return duplicateFilter.check(collection, chunkDocuments, ids -> vectorStoreService.getEmbeddings(ids).keySet());
+    }
+
+    /**
+     * 将文档分块并追加到块列表
+     *
+     * @param content 文档内容
+     * @param metadata 文档元数据，可为 null
+     * @param docIndex 文档序号
+     * @param chunkDocuments 块列表
+     * @param owners 每个块所属的文档序号
+     */
+    private void appendChunks(String content, Map<String, Object> metadata, int docIndex,
+                              List<VectorDocument> chunkDocuments, List<Integer> owners) {
+        if (metadata == null) {
+            metadata = new HashMap<>();
+        }
+
+        // 将长文本分割成块
+        List<String> chunks = textSplitter.splitIntoChunks(content);
+        if (chunks.isEmpty()) {
+            chunks.add(content);
+        }
+
+        // 同一文档的块共享 documentKey，检索重排时按它折叠
+        Object documentKey = metadata.get(MmrReranker.DOCUMENT_KEY);
+        if (documentKey == null) {
+            Object sourceType = metadata.get("sourceType");
+            Object sourceId = metadata.get("sourceId");
+            documentKey = sourceType != null && sourceId != null
+                    ? sourceType + ":" + sourceId
+                    : UUID.randomUUID().toString();
+        }
+
+        for (int i = 0; i < chunks.size(); i++) {
+            // 为每个块添加额外元数据
+            ChunkMetadata chunkMetadata = ChunkMetadata.copyOf(metadata);
+            chunkMetadata.setDocumentKey(documentKey.toString());
+            chunkMetadata.setChunkIndex(i);
+            chunkMetadata.setChunkCount(chunks.size());
+            if (chunks.size() > 1) {
+                chunkMetadata.put("isChunk", true);
+                chunkMetadata.put("originalContent", content.substring(0, Math.min(100, content.length())) + "...");
+            }
+
+            chunkDocuments.add(VectorDocument.builder()
+                    .content(chunks.get(i))
+                    .metadata(chunkMetadata)
+                    .build());
+            owners.add(docIndex);
+        }
+    }
+
+    /**
+     * 按批次嵌入并写入文档块，近重复块不嵌入也不写入
+     *
+     * @param chunkDocuments 文档块
+     * @param owners 每个块所属的文档序号
+     * @param documentCount 文档数量
+     * @param dedup 近重复检查结果
+     * @return 每个文档第一个块的ID，该块为近重复块时为与其重复的块ID
+     */
+    private List<String> embedAndStore(List<VectorDocument> chunkDocuments, List<Integer> owners, int documentCount,
+                                       NearDuplicateFilter.Batch dedup) {
+        List<VectorDocument> kept = new ArrayList<>(chunkDocuments.size() - dedup.getDuplicateCount());
+        for (int i = 0; i < chunkDocuments.size(); i++) {
+            if (!dedup.isDuplicate(i)) {
+                kept.add(chunkDocuments.get(i));
+            }
+        }
+        List<String> texts = kept.stream().map(VectorDocument::getContent).collect(Collectors.toList());
+        List<int[]> batches;
+
+        // 检查时预留的近重复指纹在这里释放，写入中途失败时只登记已写入的块
+        boolean completed = false;
+        try {
+            batches = embeddingBatcher.plan(texts);
+            for (int[] batch : batches) {
+                List<float[]> embeddings = embeddingService.createEmbeddingVectors(texts.subList(batch[0], batch[1]));
+                if (embeddings.size() != batch[1] - batch[0]) {
+                    throw new IllegalStateException("批量嵌入返回数量不一致: " + embeddings.size() + " vs " + (batch[1] - batch[0]));
+                }
+
+                for (int i = batch[0]; i < batch[1]; i++) {
+                    kept.get(i).setVector(embeddings.get(i - batch[0]));
+                }
+
+                BulkWriteResult result = vectorStoreService.bulkAddDocuments(kept.subList(batch[0], batch[1]));
+                // 部分写入成功时也记下已写入块的ID，失败后仍登记它们的指纹
+                for (int i = batch[0]; i < batch[1]; i++) {
+                    kept.get(i).setId(result.getIds().get(i - batch[0]));
+                }
+                if (!result.isAllSucceeded()) {
+                    throw new IllegalStateException("文档块写入失败: " + result.getFailed() + "个块, 原因: "
+                            + result.getFailures().get(0).getError());
+                }
+            }
+            completed = true;
+        } finally {
+            if (completed) {
+                duplicateFilter.register(collection, dedup, chunkDocuments);
+            } else {
+                duplicateFilter.abort(collection, dedup, chunkDocuments);
+            }
+        }
+
+        String[] firstChunkIds = new String[documentCount];
+        for (int i = 0; i < chunkDocuments.size(); i++) {
+            int owner = owners.get(i);
+            if (firstChunkIds[owner] == null) {
+                firstChunkIds[owner] = dedup.isDuplicate(i)
+                        ? dedup.canonicalId(i, chunkDocuments)
+                        : chunkDocuments.get(i).getId();
+            }
         }
 
-        return documentIds;
+        log.debug("文档块写入完成: 共{}个块, {}次嵌入请求", kept.size(), batches.size());
+        return Arrays.asList(firstChunkIds);
     }
 
     @Override
     public boolean deleteDocument(String docId) {
         try {
+            if (duplicateFilter.release(collection, docId)) {
+                // 近重复文档的ID指向同一个保留块，保留块在最后一个引用释放后才删除
+                log.info("块仍被近重复文档引用，只减少引用计数: {}", docId);
+                return true;
+            }
             return vectorStoreService.deleteDocument(docId);
         } catch (Exception e) {
             log.error("删除文档失败", e);
@@ -117,19 +321,34 @@ public class InterviewRagServiceImpl implements RagService {
     @Override
     public QueryResult search(String query, int topK) {
         long startTime = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+
+        // 版本号在检索前读取，检索期间发生的写入会使本次结果在下次读取时失效
+        long collectionVersion = vectorStoreService.getCollectionVersion();
+        String cacheKey = queryResultCache.key(query, topK, null);
+        QueryResult cached = queryResultCache.get(cacheKey, collectionVersion);
+        if (cached != null) {
+            cached.setExecutionTime(System.currentTimeMillis() - startTime);
+            return cached;
+        }
 
         try {
-            List<Float> queryEmbedding = embeddingService.createEmbedding(query);
-            List<VectorDocument> documents = vectorStoreService.similaritySearch(queryEmbedding, topK);
+            // 先只取命中的ID与得分，再一次批量读取最终结果的内容与元数据，不读取向量
+            List<ScoredId> hits = hybridEnabled
+                    ? hybridSearch(query, topK)
+                    : vectorStoreService.similaritySearchIds(embeddingService.createEmbeddingVector(query), topK);
+            List<VectorDocument> documents = vectorStoreService.getDocuments(hits, false);
 
             long endTime = System.currentTimeMillis();
             long executionTime = endTime - startTime;
 
-            return QueryResult.builder()
+            QueryResult result = QueryResult.builder()
                     .query(query)
                     .documents(documents)
                     .executionTime(executionTime)
                     .build();
+            queryResultCache.put(cacheKey, collectionVersion, result, System.nanoTime() - startNanos);
+            return result;
         } catch (Exception e) {
             log.error("搜索失败", e);
             return QueryResult.builder()
@@ -140,11 +359,95 @@ public class InterviewRagServiceImpl implements RagService {
         }
     }
 
+    /**
+     * 混合检索：关键词检索在检索线程池中执行，与查询嵌入和向量检索重叠，
+     * 两路各取 topK * candidateMultiplier 个候选ID后按倒数排名融合，score 为融合得分；
+     * 只有融合后保留的 topK 个结果需要读取内容
+     */
+    private List<ScoredId> hybridSearch(String query, int topK) {
+        int candidates = topK * candidateMultiplier;
+        CompletableFuture<List<ScoredId>> keywordFuture = CompletableFuture.supplyAsync(
+                () -> vectorStoreService.keywordSearchIds(query, candidates), searchExecutor);
+
+        float[] queryEmbedding = embeddingService.createEmbeddingVector(query);
+        List<ScoredId> vectorHits = vectorStoreService.similaritySearchIds(queryEmbedding, candidates);
+
+        List<ScoredId> keywordHits;
+        try {
+            keywordHits = keywordFuture.join();
+        } catch (Exception e) {
+            // 关键词检索失败不影响向量检索结果
+            log.warn("关键词检索失败，仅使用向量检索结果", e);
+            keywordHits = Collections.emptyList();
+        }
+        if (keywordHits.isEmpty()) {
+            return vectorHits.size() > topK ? new ArrayList<>(vectorHits.subList(0, topK)) : vectorHits;
+        }
+        return ScoredId.ranked(RankFusion.fuse(Arrays.asList(ids(vectorHits), ids(keywordHits)), rrfK, topK));
+    }
+
+    private static long[] ids(List<ScoredId> hits) {
+        long[] ids = new long[hits.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = hits.get(i).getId();
+        }
+        return ids;
+    }
+
     @Override
     public RetrievalContext searchWithContext(String query, int topK) {
+        if (rerankEnabled) {
+            return searchWithContext(query, topK, rerankLambda, topK * rerankFetchMultiplier);
+        }
         QueryResult result = search(query, topK);
+        return buildContext(query, result, result.getDocuments());
+    }
+
+    @Override
+    public RetrievalContext searchWithContext(String query, int topK, double lambda, int fetchK) {
+        if (lambda < 0 || lambda > 1) {
+            throw new IllegalArgumentException("lambda 必须在0到1之间: " + lambda);
+        }
+        QueryResult result = search(query, Math.max(topK, fetchK));
         List<VectorDocument> documents = result.getDocuments();
+        if (!documents.isEmpty()) {
+            try {
+                documents = rerank(query, documents, lambda, topK);
+            } catch (Exception e) {
+                // 重排失败时退回按相关性截取
+                log.warn("检索结果重排失败，按相关性返回", e);
+                documents = documents.subList(0, Math.min(topK, documents.size()));
+            }
+        }
+        return buildContext(query, result, documents);
+    }
+
+    /**
+     * 按最大边际相关性重排，并限制每个父文档的块数
+     * 查询向量命中嵌入缓存；候选文档已带向量时直接使用（MySQL检索开启重排时附带），其余按ID批量读取
+     */
+    private List<VectorDocument> rerank(String query, List<VectorDocument> candidates, double lambda, int topK) {
+        Map<String, float[]> vectors = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (VectorDocument candidate : candidates) {
+            if (candidate.getVector() != null) {
+                vectors.put(candidate.getId(), candidate.getVector());
+            } else if (candidate.getId() != null) {
+                missing.add(candidate.getId());
+            }
+        }
+        if (!missing.isEmpty()) {
+            vectors.putAll(vectorStoreService.getEmbeddings(missing));
+        }
+
+        float[] queryEmbedding = embeddingService.createEmbeddingVector(query);
+        List<VectorDocument> reranked = MmrReranker.rerank(queryEmbedding, candidates, vectors, lambda, topK,
+                maxChunksPerDocument);
+        log.debug("检索结果重排: {}个候选, 返回{}个", candidates.size(), reranked.size());
+        return reranked;
+    }
 
+    private RetrievalContext buildContext(String query, QueryResult result, List<VectorDocument> documents) {
         List<String> documentContents = new ArrayList<>();
         List<Map<String, Object>> documentMetadata = new ArrayList<>();
         List<Float> similarityScores = new ArrayList<>();
@@ -174,26 +477,39 @@ public class InterviewRagServiceImpl implements RagService {
                 .sources(sources)
                 .build();
 
-        result.setContext(context.formatAsText());
+        // 与提示词中的参考资料一样按 rag.context.max-tokens 装配，长度不随 topK 增长
+        result.setContext(contextPacker.pack(context).getText());
         return context;
     }
 
     @Override
     public QueryResult searchWithMetadata(String query, Map<String, Object> metadataFilter, int topK) {
         long startTime = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+
+        long collectionVersion = vectorStoreService.getCollectionVersion();
+        String cacheKey = queryResultCache.key(query, topK, metadataFilter);
+        QueryResult cached = queryResultCache.get(cacheKey, collectionVersion);
+        if (cached != null) {
+            cached.setExecutionTime(System.currentTimeMillis() - startTime);
+            return cached;
+        }
 
         try {
-            List<Float> queryEmbedding = embeddingService.createEmbedding(query);
-            List<VectorDocument> documents = vectorStoreService.similaritySearchWithMetadata(queryEmbedding, metadataFilter, topK);
+            float[] queryEmbedding = embeddingService.createEmbeddingVector(query);
+            List<VectorDocument> documents = vectorStoreService.getDocuments(
+                    vectorStoreService.similaritySearchIdsWithMetadata(queryEmbedding, metadataFilter, topK), false);
 
             long endTime = System.currentTimeMillis();
             long executionTime = endTime - startTime;
 
-            return QueryResult.builder()
+            QueryResult result = QueryResult.builder()
                     .query(query)
                     .documents(documents)
                     .executionTime(executionTime)
                     .build();
+            queryResultCache.put(cacheKey, collectionVersion, result, System.nanoTime() - startNanos);
+            return result;
         } catch (Exception e) {
             log.error("带元数据筛选的搜索失败", e);
             return QueryResult.builder()
@@ -204,10 +520,245 @@ public class InterviewRagServiceImpl implements RagService {
         }
     }
 
+    @Override
+    public CompletableFuture<QueryResult> searchAsync(String query, int topK) {
+        return supplyAsync(() -> search(query, topK));
+    }
+
+    @Override
+    public CompletableFuture<RetrievalContext> searchWithContextAsync(String query, int topK) {
+        return supplyAsync(() -> searchWithContext(query, topK));
+    }
+
+    @Override
+    public CompletableFuture<QueryResult> searchWithMetadataAsync(String query, Map<String, Object> metadataFilter,
+                                                                  int topK) {
+        return supplyAsync(() -> searchWithMetadata(query, metadataFilter, topK));
+    }
+
+    /**
+     * 提交到异步检索线程池，线程池已满时返回失败的 future 而不是抛出异常或占用调用线程
+     */
+    private <T> CompletableFuture<T> supplyAsync(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, asyncExecutor);
+        } catch (RejectedExecutionException e) {
+            log.warn("异步检索线程池已满，拒绝检索请求");
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * 导入现有数据到向量库
+     * sourceType 取值：interview（面经与面试题）、job（职位描述）、all，或直接指定源数据表名
+     */
     @Override
     public int importExistingData(String sourceType, int batchSize) {
-        // 这个方法需要连接到实体存储库，导入现有数据
-        // 具体实现将在具体的业务服务中进行
-        throw new UnsupportedOperationException("该方法需要在具体业务服务中实现");
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("每批处理的数据量必须大于0: " + batchSize);
+        }
+
+        int imported = 0;
+        for (String table : resolveSourceTables(sourceType)) {
+            imported += importTable(table, batchSize);
+        }
+        return imported;
+    }
+
+    @Override
+    public List<ImportProgress> getImportProgress() {
+        return importRuns.values().stream()
+                .map(ImportRun::snapshot)
+                .collect(Collectors.toList());
+    }
+
+    private List<String> resolveSourceTables(String sourceType) {
+        String type = sourceType == null ? "all" : sourceType.trim().toLowerCase();
+        switch (type) {
+            case "all":
+                return Arrays.asList(ImportSourceRepository.INTERVIEW_EXPERIENCE,
+                        ImportSourceRepository.INTERVIEW_QUESTION, ImportSourceRepository.JOB_DESCRIPTION);
+            case "interview":
+                return Arrays.asList(ImportSourceRepository.INTERVIEW_EXPERIENCE, ImportSourceRepository.INTERVIEW_QUESTION);
+            case "job":
+                return Collections.singletonList(ImportSourceRepository.JOB_DESCRIPTION);
+            case ImportSourceRepository.INTERVIEW_EXPERIENCE:
+            case ImportSourceRepository.INTERVIEW_QUESTION:
+            case ImportSourceRepository.JOB_DESCRIPTION:
+                return Collections.singletonList(type);
+            default:
+                throw new IllegalArgumentException("不支持的源数据类型: " + sourceType);
+        }
+    }
+
+    /**
+     * 从检查点开始逐页导入一个源数据表
+     *
+     * @return 本次导入的文档数
+     */
+    private int importTable(String table, int batchSize) {
+        if (!runningImports.add(table)) {
+            throw new IllegalStateException("源数据[" + table + "]正在导入中");
+        }
+
+        long lastId = 0;
+        ImportRun run = null;
+        try {
+            lastId = importSourceRepository.loadCheckpoint(collection, table);
+            run = new ImportRun(table, importSourceRepository.countAfter(table, lastId), lastId);
+            importRuns.put(table, run);
+            log.info("开始导入存量数据: 源[{}], 检查点ID[{}], 待导入{}条, 每批{}条", table, lastId, run.totalDocs, batchSize);
+
+            long lastReport = System.currentTimeMillis();
+            while (true) {
+                List<SourceRecord> page = importSourceRepository.findAfter(table, lastId, batchSize);
+                if (page.isEmpty()) {
+                    break;
+                }
+                long pageLastId = page.get(page.size() - 1).getId();
+
+                // 检查点在整页写入后才保存，该页中已有的块来自中断的上一次导入，一条记录的块可能分在多个嵌入批次中
+                // 只写入了一部分，因此先删除这些块，再与该页其他记录一起重新写入
+                removePartialImport(table, page);
+                List<SourceRecord> pending = page.stream()
+                        .filter(record -> record.getContent() != null && !record.getContent().isEmpty())
+                        .collect(Collectors.toList());
+
+                int chunks = pending.isEmpty() ? 0 : ingestSourceRecords(table, pending, run);
+                importSourceRepository.saveCheckpoint(collection, table, pageLastId, pending.size(), chunks);
+                lastId = pageLastId;
+                run.record(page.size(), pending.size(), chunks, lastId);
+
+                if (System.currentTimeMillis() - lastReport >= importReportIntervalMillis) {
+                    lastReport = System.currentTimeMillis();
+                    logProgress(run.snapshot());
+                }
+            }
+
+            run.finish();
+            ImportProgress progress = run.snapshot();
+            log.info("存量数据导入完成: 源[{}], 导入{}条, 跳过{}条, 写入{}个块, 跳过近重复块{}个, 耗时{}ms, {}条/秒, {}块/秒",
+                    table, progress.getImportedDocs(), progress.getSkippedDocs(), progress.getImportedChunks(),
+                    progress.getDuplicateChunks(), progress.getElapsedMillis(), String.format("%.1f", progress.getDocsPerSecond()),
+                    String.format("%.1f", progress.getChunksPerSecond()));
+            return (int) progress.getImportedDocs();
+        } catch (Exception e) {
+            if (run != null) {
+                run.finish();
+            }
+            log.error("存量数据导入中断: 源[{}], 检查点ID[{}]，重新执行将从检查点继续", table, lastId, e);
+            throw new RuntimeException("存量数据导入失败: " + table, e);
+        } finally {
+            runningImports.remove(table);
+        }
+    }
+
+    /**
+     * 删除一页源数据在上一次中断的导入中已写入的块
+     */
+    private void removePartialImport(String table, List<SourceRecord> page) {
+        List<Long> chunkIds = importSourceRepository.findChunkIdsBySourceIds(collection, table,
+                page.stream().map(SourceRecord::getId).collect(Collectors.toList()));
+        if (chunkIds.isEmpty()) {
+            return;
+        }
+        log.info("删除上次中断导入写入的块: 源[{}], {}个块", table, chunkIds.size());
+        for (Long chunkId : chunkIds) {
+            if (!vectorStoreService.deleteDocument(String.valueOf(chunkId))) {
+                throw new IllegalStateException("删除中断导入写入的块失败: " + chunkId);
+            }
+        }
+    }
+
+    /**
+     * 分块、批量嵌入并写入一页源数据，块上记录源数据ID与类型
+     *
+     * @return 写入的块数，不含近重复块
+     */
+    private int ingestSourceRecords(String table, List<SourceRecord> records, ImportRun run) {
+        List<VectorDocument> chunkDocuments = new ArrayList<>();
+        List<Integer> owners = new ArrayList<>();
+        for (int i = 0; i < records.size(); i++) {
+            SourceRecord record = records.get(i);
+            int from = chunkDocuments.size();
+            appendChunks(record.getContent(), record.getMetadata(), i, chunkDocuments, owners);
+            for (VectorDocument chunk : chunkDocuments.subList(from, chunkDocuments.size())) {
+                chunk.setSourceId(record.getId());
+                chunk.setSourceType(table);
+            }
+        }
+        NearDuplicateFilter.Batch dedup = checkDuplicates(chunkDocuments);
+        embedAndStore(chunkDocuments, owners, records.size(), dedup);
+        run.recordDuplicates(dedup.getDuplicateCount());
+        return chunkDocuments.size() - dedup.getDuplicateCount();
+    }
+
+    private void logProgress(ImportProgress progress) {
+        log.info("存量数据导入中: 源[{}], 已处理{}/{}条, 写入{}个块, {}条/秒, {}块/秒, 预计剩余{}秒, 检查点ID[{}]",
+                progress.getSourceType(), progress.getImportedDocs() + progress.getSkippedDocs(),
+                progress.getTotalDocs(), progress.getImportedChunks(),
+                String.format("%.1f", progress.getDocsPerSecond()),
+                String.format("%.1f", progress.getChunksPerSecond()),
+                progress.getEtaSeconds(), progress.getLastId());
+    }
+
+    /**
+     * 一次导入的运行状态，由导入线程更新，其他线程读取快照
+     */
+    private static final class ImportRun {
+        private final String sourceType;
+        private final long totalDocs;
+        private final long startNanos = System.nanoTime();
+        private volatile long processedDocs;
+        private volatile long importedDocs;
+        private volatile long importedChunks;
+        private volatile long duplicateChunks;
+        private volatile long lastId;
+        private volatile long endNanos;
+
+        ImportRun(String sourceType, long totalDocs, long lastId) {
+            this.sourceType = sourceType;
+            this.totalDocs = totalDocs;
+            this.lastId = lastId;
+        }
+
+        void record(int processed, int imported, int chunks, long lastId) {
+            this.processedDocs += processed;
+            this.importedDocs += imported;
+            this.importedChunks += chunks;
+            this.lastId = lastId;
+        }
+
+        void recordDuplicates(int chunks) {
+            this.duplicateChunks += chunks;
+        }
+
+        void finish() {
+            endNanos = System.nanoTime();
+        }
+
+        ImportProgress snapshot() {
+            boolean running = endNanos == 0;
+            long elapsedNanos = (running ? System.nanoTime() : endNanos) - startNanos;
+            double seconds = elapsedNanos / 1_000_000_000.0;
+            long processed = processedDocs;
+            double processedPerSecond = seconds > 0 ? processed / seconds : 0;
+            long remaining = Math.max(0, totalDocs - processed);
+            long eta = !running ? 0 : processedPerSecond > 0 ? (long) Math.ceil(remaining / processedPerSecond) : -1;
+            return ImportProgress.builder()
+                    .sourceType(sourceType)
+                    .running(running)
+                    .importedDocs(importedDocs)
+                    .importedChunks(importedChunks)
+                    .duplicateChunks(duplicateChunks)
+                    .skippedDocs(processed - importedDocs)
+                    .totalDocs(totalDocs)
+                    .lastId(lastId)
+                    .docsPerSecond(seconds > 0 ? importedDocs / seconds : 0)
+                    .chunksPerSecond(seconds > 0 ? importedChunks / seconds : 0)
+                    .etaSeconds(eta)
+                    .elapsedMillis(elapsedNanos / 1_000_000)
+                    .build();
+        }
     }
 }
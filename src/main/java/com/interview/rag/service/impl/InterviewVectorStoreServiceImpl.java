@@ -4,16 +4,29 @@ package com.interview.rag.service.impl;
 import com.defiy.mysql.MysqlVectorStore;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.interview.rag.index.NearDuplicateFilter;
+import com.interview.rag.index.ScoredId;
+import com.interview.rag.model.BulkWriteResult;
+import com.interview.rag.model.ChunkMetadata;
+import com.interview.rag.model.StoredEmbedding;
 import com.interview.rag.model.VectorDocument;
+import com.interview.rag.repository.VectorStorageRepository;
 import com.interview.rag.service.VectorStoreService;
+import com.interview.rag.util.EmbeddingCodec;
+import com.interview.rag.util.VectorUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 /**
@@ -27,27 +40,56 @@ public class InterviewVectorStoreServiceImpl implements VectorStoreService {
 
     private final MysqlVectorStore vectorStore;
     private final ObjectMapper objectMapper;
+    private final VectorStorageRepository vectorStorageRepository;
+    private final NearDuplicateFilter duplicateFilter;
+    private final EmbeddingCodec.Format embeddingFormat;
+    private final String collection;
+    private final int bulkBatchSize;
+    private final boolean bulkWriteJson;
+
+    /**
+     * 命中项附带的文档是否保留向量，开启重排时保留，重排与读取文档都不再回表查询向量
+     */
+    private final boolean attachVectors;
+
+    /**
+     * 集合版本号，每次写操作后递增，用于使检索结果缓存失效
+     */
+    private final AtomicLong collectionVersion = new AtomicLong();
 
     public InterviewVectorStoreServiceImpl(
             @Qualifier("interviewVectorStore") MysqlVectorStore vectorStore,
-            ObjectMapper objectMapper) {
+            ObjectMapper objectMapper,
+            VectorStorageRepository vectorStorageRepository,
+            NearDuplicateFilter duplicateFilter,
+            @Value("${rag.storage.embedding-format:float32}") String embeddingFormat,
+            @Value("${rag.collection.interview}") String collection,
+            @Value("${rag.storage.bulk.batch-size:200}") int bulkBatchSize,
+            @Value("${rag.storage.bulk.write-json:true}") boolean bulkWriteJson,
+            @Value("${rag.rerank.enabled:true}") boolean attachVectors) {
         this.vectorStore = vectorStore;
         this.objectMapper = objectMapper;
+        this.vectorStorageRepository = vectorStorageRepository;
+        this.duplicateFilter = duplicateFilter;
+        this.embeddingFormat = EmbeddingCodec.Format.parse(embeddingFormat);
+        this.collection = collection;
+        this.bulkBatchSize = Math.max(1, bulkBatchSize);
+        this.bulkWriteJson = bulkWriteJson;
+        this.attachVectors = attachVectors;
     }
 
     @Override
     public String addDocument(VectorDocument document) {
         try {
-            String metadataJson = null;
-            if (document.getMetadata() != null) {
-                metadataJson = objectMapper.writeValueAsString(document.getMetadata());
-            }
+            String metadataJson = toJson(document.getMetadata());
 
+            // MysqlVectorStore 只接受列表，这里传入数组视图以避免复制
             String docId = vectorStore.addDocument(
                     document.getContent(),
-                    document.getEmbedding(),
+                    VectorUtils.asList(document.getVector()),
                     metadataJson
             );
+            saveEmbeddingBinary(docId, document.getVector());
             
             return docId;
         } catch (JsonProcessingException e) {
@@ -56,24 +98,47 @@ public class InterviewVectorStoreServiceImpl implements VectorStoreService {
         } catch (Exception e) {
             log.error("添加文档失败", e);
             throw new RuntimeException("添加文档失败", e);
+        } finally {
+            collectionVersion.incrementAndGet();
         }
     }
 
     @Override
     public List<String> addDocuments(List<VectorDocument> documents) {
-        List<String> documentIds = new ArrayList<>();
-        
-        for (VectorDocument document : documents) {
+        return bulkAddDocuments(documents).getSucceededIds();
+    }
+
+    @Override
+    public BulkWriteResult bulkAddDocuments(List<VectorDocument> documents) {
+        List<String> ids = new ArrayList<>(Collections.nCopies(documents.size(), null));
+        List<BulkWriteResult.BatchFailure> failures = new ArrayList<>();
+        int succeeded = 0;
+
+        for (int from = 0, batchIndex = 0; from < documents.size(); from += bulkBatchSize, batchIndex++) {
+            int to = Math.min(from + bulkBatchSize, documents.size());
             try {
-                String docId = addDocument(document);
-                documentIds.add(docId);
+                List<VectorStorageRepository.VectorRow> rows = new ArrayList<>(to - from);
+                for (VectorDocument document : documents.subList(from, to)) {
+                    rows.add(toRow(document));
+                }
+                long[] generated = vectorStorageRepository.insertBatch(collection, rows);
+                for (int i = 0; i < generated.length; i++) {
+                    ids.set(from + i, String.valueOf(generated[i]));
+                }
+                succeeded += generated.length;
             } catch (Exception e) {
-                log.error("批量添加文档失败: {}", document.getContent(), e);
-                // 继续处理下一个文档
+                log.error("批量写入文档失败: 第{}批, 下标[{}, {})", batchIndex, from, to, e);
+                failures.add(new BulkWriteResult.BatchFailure(batchIndex, from, to, e.getMessage()));
             }
         }
-        
-        return documentIds;
+
+        collectionVersion.incrementAndGet();
+        return BulkWriteResult.builder()
+                .ids(ids)
+                .failures(failures)
+                .succeeded(succeeded)
+                .failed(documents.size() - succeeded)
+                .build();
     }
 
     @Override
@@ -83,6 +148,9 @@ public class InterviewVectorStoreServiceImpl implements VectorStoreService {
         } catch (Exception e) {
             log.error("删除文档失败: {}", docId, e);
             return false;
+        } finally {
+            duplicateFilter.remove(collection, docId);
+            collectionVersion.incrementAndGet();
         }
     }
 
@@ -97,6 +165,32 @@ public class InterviewVectorStoreServiceImpl implements VectorStoreService {
         } catch (Exception e) {
             log.error("根据元数据删除文档失败", e);
             throw new RuntimeException("删除文档失败", e);
+        } finally {
+            duplicateFilter.removeMatching(collection, metadataFilter);
+            collectionVersion.incrementAndGet();
+        }
+    }
+
+    /**
+     * 按元数据条件删除文档并返回被删除的ID
+     * 先查出匹配的ID再按ID删除，供需要同步更新内存索引的调用方使用
+     *
+     * @param metadataFilter 元数据筛选条件
+     * @return 被删除的文档ID
+     */
+    public List<Long> deleteMatchingDocuments(Map<String, Object> metadataFilter) {
+        try {
+            List<Long> ids = vectorStorageRepository.findIdsByMetadata(collection, metadataFilter);
+            for (int from = 0; from < ids.size(); from += bulkBatchSize) {
+                vectorStorageRepository.deleteByIds(collection, ids.subList(from, Math.min(from + bulkBatchSize, ids.size())));
+            }
+            return ids;
+        } catch (Exception e) {
+            log.error("根据元数据删除文档失败", e);
+            throw new RuntimeException("删除文档失败", e);
+        } finally {
+            duplicateFilter.removeMatching(collection, metadataFilter);
+            collectionVersion.incrementAndGet();
         }
     }
 
@@ -114,6 +208,11 @@ public class InterviewVectorStoreServiceImpl implements VectorStoreService {
         }
     }
 
+    @Override
+    public List<VectorDocument> similaritySearch(float[] embedding, int topK) {
+        return similaritySearch(VectorUtils.asList(embedding), topK);
+    }
+
     @Override
     public List<VectorDocument> similaritySearchWithMetadata(List<Float> embedding, Map<String, Object> metadataFilter, int topK) {
         try {
@@ -136,6 +235,108 @@ public class InterviewVectorStoreServiceImpl implements VectorStoreService {
         }
     }
 
+    @Override
+    public List<VectorDocument> similaritySearchWithMetadata(float[] embedding, Map<String, Object> metadataFilter, int topK) {
+        return similaritySearchWithMetadata(VectorUtils.asList(embedding), metadataFilter, topK);
+    }
+
+    @Override
+    public List<VectorDocument> keywordSearch(String query, int topK) {
+        // MySQL向量存储没有全文索引，关键词检索由内存索引实现提供
+        return new ArrayList<>();
+    }
+
+    @Override
+    public List<ScoredId> similaritySearchIds(float[] embedding, int topK) {
+        try {
+            // MySQL向量存储总是返回完整记录，命中项附带已读到的文档，第二阶段不再重复查询
+            return toScoredIds(vectorStore.similaritySearch(VectorUtils.asList(embedding), topK));
+        } catch (Exception e) {
+            log.error("相似度搜索失败", e);
+            throw new RuntimeException("相似度搜索失败", e);
+        }
+    }
+
+    @Override
+    public List<ScoredId> similaritySearchIdsWithMetadata(float[] embedding, Map<String, Object> metadataFilter, int topK) {
+        try {
+            String metadataFilterJson = null;
+            if (metadataFilter != null && !metadataFilter.isEmpty()) {
+                metadataFilterJson = objectMapper.writeValueAsString(metadataFilter);
+            }
+            return toScoredIds(vectorStore.similaritySearchWithMetadata(
+                    VectorUtils.asList(embedding), metadataFilterJson, topK));
+        } catch (JsonProcessingException e) {
+            log.error("元数据序列化失败", e);
+            throw new RuntimeException("相似度搜索失败: 元数据序列化错误", e);
+        } catch (Exception e) {
+            log.error("带元数据筛选的相似度搜索失败", e);
+            throw new RuntimeException("相似度搜索失败", e);
+        }
+    }
+
+    @Override
+    public List<ScoredId> keywordSearchIds(String query, int topK) {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public List<VectorDocument> getDocuments(List<ScoredId> hits, boolean includeVectors) {
+        if (hits.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try {
+            List<Long> missing = new ArrayList<>();
+            for (ScoredId hit : hits) {
+                if (!hasAttached(hit, includeVectors)) {
+                    missing.add(hit.getId());
+                }
+            }
+            Map<Long, VectorDocument> documents = missing.isEmpty()
+                    ? Collections.emptyMap()
+                    : vectorStorageRepository.findByIds(missing, includeVectors);
+
+            List<VectorDocument> results = new ArrayList<>(hits.size());
+            for (ScoredId hit : hits) {
+                VectorDocument document = hasAttached(hit, includeVectors)
+                        ? hit.getDocument()
+                        : documents.get(hit.getId());
+                if (document != null) {
+                    document.setScore(hit.getScore());
+                    results.add(document);
+                }
+            }
+            return results;
+        } catch (Exception e) {
+            log.error("批量读取文档失败", e);
+            throw new RuntimeException("批量读取文档失败", e);
+        }
+    }
+
+    @Override
+    public Map<String, float[]> getEmbeddings(Collection<String> docIds) {
+        Map<String, float[]> embeddings = new HashMap<>();
+        List<Long> ids = new ArrayList<>(docIds.size());
+        for (String docId : docIds) {
+            try {
+                ids.add(Long.parseLong(docId));
+            } catch (NumberFormatException e) {
+                log.warn("无法解析的文档ID，已跳过: {}", docId);
+            }
+        }
+        try {
+            for (StoredEmbedding stored : vectorStorageRepository.findEmbeddingsByIds(ids)) {
+                if (stored.getEmbedding() != null) {
+                    embeddings.put(String.valueOf(stored.getId()), stored.getEmbedding());
+                }
+            }
+        } catch (Exception e) {
+            log.error("批量读取向量失败", e);
+            throw new RuntimeException("批量读取向量失败", e);
+        }
+        return embeddings;
+    }
+
     @Override
     public long getDocumentCount() {
         try {
@@ -153,14 +354,101 @@ public class InterviewVectorStoreServiceImpl implements VectorStoreService {
         } catch (Exception e) {
             log.error("清空集合失败", e);
             return false;
+        } finally {
+            duplicateFilter.clear(collection);
+            collectionVersion.incrementAndGet();
         }
     }
+
+    @Override
+    public long getCollectionVersion() {
+        return collectionVersion.get();
+    }
     
+    private VectorStorageRepository.VectorRow toRow(VectorDocument document) throws JsonProcessingException {
+        float[] vector = document.getVector();
+        if (vector == null) {
+            throw new IllegalArgumentException("文档向量不能为空");
+        }
+        return new VectorStorageRepository.VectorRow(
+                document.getContent(),
+                bulkWriteJson ? objectMapper.writeValueAsString(vector) : null,
+                EmbeddingCodec.encode(vector, embeddingFormat),
+                toJson(document.getMetadata()),
+                document.getSourceId(),
+                document.getSourceType());
+    }
+
+    /**
+     * 序列化元数据，块元数据未修改时直接复用读取时的 JSON
+     */
+    private String toJson(Map<String, Object> metadata) throws JsonProcessingException {
+        if (metadata == null) {
+            return null;
+        }
+        if (metadata instanceof ChunkMetadata) {
+            return ((ChunkMetadata) metadata).toJson();
+        }
+        return objectMapper.writeValueAsString(metadata);
+    }
+
+    /**
+     * 补写二进制格式的向量，失败时由 EmbeddingStorageMigrator 后续补齐
+     */
+    private void saveEmbeddingBinary(String docId, float[] vector) {
+        if (vector == null) {
+            return;
+        }
+        try {
+            vectorStorageRepository.saveEmbeddingBinary(Long.parseLong(docId), vector, embeddingFormat);
+        } catch (Exception e) {
+            log.warn("写入二进制向量失败: {}", docId, e);
+        }
+    }
+    
+    /**
+     * 命中项是否已附带满足要求的文档，需要向量时附带的文档也必须带有向量
+     */
+    private static boolean hasAttached(ScoredId hit, boolean includeVectors) {
+        VectorDocument document = hit.getDocument();
+        return document != null && (!includeVectors || document.getVector() != null);
+    }
+
+    /**
+     * 将查询结果映射为命中项并附带文档，开启重排时文档保留向量
+     */
+    private List<ScoredId> toScoredIds(List<Map<String, Object>> results) {
+        List<ScoredId> hits = new ArrayList<>(results.size());
+        for (Map<String, Object> result : results) {
+            Object idObj = result.get("id");
+            if (idObj == null) {
+                continue;
+            }
+            try {
+                Object scoreObj = result.get("score");
+                float score = scoreObj instanceof Number ? ((Number) scoreObj).floatValue() : 0f;
+                hits.add(new ScoredId(Long.parseLong(idObj.toString()), score, mapToVectorDocument(result, attachVectors)));
+            } catch (NumberFormatException e) {
+                log.warn("无法解析的文档ID，已跳过: {}", idObj);
+            }
+        }
+        return hits;
+    }
+
     /**
      * 将查询结果映射为向量文档对象
      */
-    @SuppressWarnings("unchecked")
     private VectorDocument mapToVectorDocument(Map<String, Object> result) {
+        return mapToVectorDocument(result, true);
+    }
+
+    /**
+     * 将查询结果映射为向量文档对象
+     *
+     * @param includeVector 是否解码向量，命中项附带的文档只在开启重排时需要向量
+     */
+    @SuppressWarnings("unchecked")
+    private VectorDocument mapToVectorDocument(Map<String, Object> result, boolean includeVector) {
         try {
             VectorDocument.VectorDocumentBuilder builder = VectorDocument.builder();
             
@@ -172,18 +460,24 @@ public class InterviewVectorStoreServiceImpl implements VectorStoreService {
                 builder.content((String) result.get("content"));
             }
             
-            if (result.containsKey("embedding")) {
+            if (includeVector && result.containsKey("embedding")) {
                 Object embObj = result.get("embedding");
                 if (embObj instanceof List) {
-                    builder.embedding((List<Float>) embObj);
+                    // 直接解码为基本类型数组，兼容存储层返回 Double 等数值类型
+                    List<?> values = (List<?>) embObj;
+                    float[] vector = new float[values.size()];
+                    for (int i = 0; i < vector.length; i++) {
+                        vector[i] = ((Number) values.get(i)).floatValue();
+                    }
+                    builder.vector(vector);
                 }
             }
             
             if (result.containsKey("metadata")) {
                 Object metaObj = result.get("metadata");
                 if (metaObj instanceof String) {
-                    Map<String, Object> metadata = objectMapper.readValue((String) metaObj, Map.class);
-                    builder.metadata(metadata);
+                    // 只包装原始 JSON，字段在被读取时才解码
+                    builder.metadata(ChunkMetadata.parse((String) metaObj));
                 } else if (metaObj instanceof Map) {
                     builder.metadata((Map<String, Object>) metaObj);
                 }
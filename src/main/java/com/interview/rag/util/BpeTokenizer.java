@@ -0,0 +1,184 @@
+package com.interview.rag.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 基于本地 BPE 词表的 token 计数器
+ * <p>
+ * 词表为 tiktoken 格式（如 cl100k_base.tiktoken），每行为 "base64编码的字节序列 合并优先级"。
+ * 文本先按字母、数字、标点、空白切分为片段（近似 cl100k 的预切分规则，单个空格并入后一个片段），
+ * 再对每个片段的 UTF-8 字节按优先级反复合并相邻字节对，剩余的部分数即为该片段的 token 数。
+ * 预切分规则为手写的近似实现，与模型实际分词的结果可能有少量差异
+ */
+public class BpeTokenizer implements Tokenizer {
+
+    /**
+     * 单个片段参与合并的最大字节数，超过时分段合并，避免长串汉字的合并耗时按平方增长
+     */
+    private static final int MAX_PIECE_BYTES = 256;
+
+    private static final int MAX_DIGITS = 3;
+
+    /**
+     * 字节序列（按 ISO-8859-1 一个字节对应一个字符）到合并优先级
+     */
+    private final Map<String, Integer> ranks;
+
+    public BpeTokenizer(Map<String, Integer> ranks) {
+        this.ranks = ranks;
+    }
+
+    /**
+     * 从 tiktoken 格式的词表文件加载
+     *
+     * @param vocabulary 词表文件
+     * @return 计数器
+     * @throws IOException 读取失败或格式错误
+     */
+    public static BpeTokenizer load(Path vocabulary) throws IOException {
+        Map<String, Integer> ranks = new HashMap<>(1 << 17);
+        Base64.Decoder decoder = Base64.getDecoder();
+        try (BufferedReader reader = Files.newBufferedReader(vocabulary, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                int space = line.indexOf(' ');
+                if (space <= 0) {
+                    throw new IOException("词表格式错误: line=" + lineNumber);
+                }
+                try {
+                    byte[] token = decoder.decode(line.substring(0, space));
+                    ranks.put(new String(token, StandardCharsets.ISO_8859_1),
+                            Integer.parseInt(line.substring(space + 1).trim()));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("词表格式错误: line=" + lineNumber, e);
+                }
+            }
+        }
+        if (ranks.isEmpty()) {
+            throw new IOException("词表为空: " + vocabulary);
+        }
+        return new BpeTokenizer(ranks);
+    }
+
+    public int getVocabularySize() {
+        return ranks.size();
+    }
+
+    @Override
+    public int countTokens(CharSequence text) {
+        if (text == null || text.length() == 0) {
+            return 0;
+        }
+        int tokens = 0;
+        int length = text.length();
+        int start = 0;
+        while (start < length) {
+            int end = pieceEnd(text, start, length);
+            tokens += countPiece(text, start, end);
+            start = end;
+        }
+        return tokens;
+    }
+
+    /**
+     * 预切分：返回从 start 开始的片段结尾
+     * 单个空格后接字母或标点时并入后一个片段；连续空白中最后一个空格留给后一个片段
+     */
+    private static int pieceEnd(CharSequence text, int start, int length) {
+        int i = start;
+        char first = text.charAt(i);
+        if (first == ' ' && i + 1 < length && !Character.isWhitespace(text.charAt(i + 1))
+                && !Character.isDigit(text.charAt(i + 1))) {
+            i++;
+        } else if (Character.isWhitespace(first)) {
+            int end = i + 1;
+            while (end < length && Character.isWhitespace(text.charAt(end))) {
+                end++;
+            }
+            if (end < length && end - start > 1 && text.charAt(end - 1) == ' ') {
+                end--;
+            }
+            return end;
+        }
+
+        char c = text.charAt(i);
+        int end = i + 1;
+        if (Character.isLetter(c)) {
+            while (end < length && Character.isLetter(text.charAt(end))) {
+                end++;
+            }
+        } else if (Character.isDigit(c)) {
+            while (end < length && end - i < MAX_DIGITS && Character.isDigit(text.charAt(end))) {
+                end++;
+            }
+        } else {
+            while (end < length && isPunctuation(text.charAt(end))) {
+                end++;
+            }
+        }
+        return end;
+    }
+
+    private static boolean isPunctuation(char c) {
+        return !Character.isWhitespace(c) && !Character.isLetter(c) && !Character.isDigit(c);
+    }
+
+    private int countPiece(CharSequence text, int start, int end) {
+        byte[] bytes = text.subSequence(start, end).toString().getBytes(StandardCharsets.UTF_8);
+        if (ranks.containsKey(new String(bytes, StandardCharsets.ISO_8859_1))) {
+            return 1;
+        }
+        int tokens = 0;
+        for (int offset = 0; offset < bytes.length; offset += MAX_PIECE_BYTES) {
+            tokens += merge(bytes, offset, Math.min(offset + MAX_PIECE_BYTES, bytes.length));
+        }
+        return tokens;
+    }
+
+    /**
+     * 对 [from, to) 范围的字节做 BPE 合并，返回合并后的部分数
+     */
+    private int merge(byte[] bytes, int from, int to) {
+        int parts = to - from;
+        if (parts <= 1) {
+            return parts;
+        }
+        // boundaries[i] 为第 i 个部分的起始位置，最后一个元素为结尾
+        int[] boundaries = new int[parts + 1];
+        for (int i = 0; i <= parts; i++) {
+            boundaries[i] = from + i;
+        }
+
+        while (parts > 1) {
+            int bestRank = Integer.MAX_VALUE;
+            int bestIndex = -1;
+            for (int i = 0; i < parts - 1; i++) {
+                Integer rank = ranks.get(new String(bytes, boundaries[i], boundaries[i + 2] - boundaries[i],
+                        StandardCharsets.ISO_8859_1));
+                if (rank != null && rank < bestRank) {
+                    bestRank = rank;
+                    bestIndex = i;
+                }
+            }
+            if (bestIndex < 0) {
+                break;
+            }
+            System.arraycopy(boundaries, bestIndex + 2, boundaries, bestIndex + 1, parts - bestIndex - 1);
+            parts--;
+        }
+        return parts;
+    }
+}
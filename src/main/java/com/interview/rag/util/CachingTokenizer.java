@@ -0,0 +1,40 @@
+package com.interview.rag.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * 带缓存的 token 计数器
+ * 以文本为键记住计数结果，按句子计数时重复出现的句子（模板化的标题、公司与职位行等）不再重复切分合并。
+ * 超过长度上限的文本不缓存，这类文本很少重复，缓存只会挤占短句的空间
+ */
+public class CachingTokenizer implements Tokenizer {
+
+    private final Tokenizer delegate;
+    private final int maxCachedLength;
+    private final Cache<String, Integer> counts;
+
+    /**
+     * @param delegate 实际计数的计数器
+     * @param maxEntries 缓存条数上限
+     * @param maxCachedLength 参与缓存的文本最大字符数
+     */
+    public CachingTokenizer(Tokenizer delegate, long maxEntries, int maxCachedLength) {
+        this.delegate = delegate;
+        this.maxCachedLength = maxCachedLength;
+        this.counts = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .build();
+    }
+
+    @Override
+    public int countTokens(CharSequence text) {
+        if (text == null || text.length() == 0) {
+            return 0;
+        }
+        if (text.length() > maxCachedLength) {
+            return delegate.countTokens(text);
+        }
+        return counts.get(text.toString(), delegate::countTokens);
+    }
+}
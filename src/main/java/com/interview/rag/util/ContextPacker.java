@@ -0,0 +1,174 @@
+package com.interview.rag.util;
+
+import com.interview.rag.model.PackedContext;
+import com.interview.rag.model.RetrievalContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 检索上下文装配工具
+ * <p>
+ * 按 token 预算拼装提示词中的参考资料：文档按相似度从高到低依次放入，
+ * 与已放入内容重复的句子（相邻块的重叠部分）先去掉，放不下时在句子边界截断，
+ * 连一个句子都放不下的文档跳过。提示词长度不再随 topK 与块大小增长
+ */
+@Component
+public class ContextPacker {
+
+    private static final String HEADER = "以下是与问题相关的参考信息：\n\n";
+
+    /**
+     * 参与去重的最短句子长度，过短的句子（如"是的。"）在不同文档中重复很正常
+     */
+    private static final int MIN_DEDUP_LENGTH = 8;
+
+    @Value("${rag.context.max-tokens:2000}")
+    private int defaultMaxTokens;
+
+    private final TextSplitter textSplitter;
+    private final Tokenizer tokenizer;
+
+    public ContextPacker(TextSplitter textSplitter, Tokenizer tokenizer) {
+        this.textSplitter = textSplitter;
+        this.tokenizer = tokenizer;
+    }
+
+    /**
+     * 按默认预算装配上下文
+     *
+     * @param context 检索上下文
+     * @return 装配结果
+     */
+    public PackedContext pack(RetrievalContext context) {
+        return pack(context, defaultMaxTokens);
+    }
+
+    /**
+     * 按 token 预算装配上下文
+     *
+     * @param context 检索上下文
+     * @param maxTokens token 预算
+     * @return 装配结果
+     */
+    public PackedContext pack(RetrievalContext context, int maxTokens) {
+        List<String> contents = context.getDocumentContents();
+        List<Float> scores = context.getSimilarityScores();
+        List<String> sources = context.getSources();
+
+        Integer[] order = new Integer[contents.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble((Integer i) -> scoreOf(scores, i)).reversed());
+
+        StringBuilder text = new StringBuilder(HEADER);
+        StringBuilder included = new StringBuilder();
+        int used = tokenizer.countTokens(HEADER);
+        int includedDocuments = 0;
+        int truncatedDocuments = 0;
+        int droppedDocuments = 0;
+        int duplicateSentences = 0;
+        int droppedTokens = 0;
+
+        for (int index : order) {
+            String content = contents.get(index);
+            List<int[]> fresh = new ArrayList<>();
+            if (content != null) {
+                int cursor = 0;
+                for (String sentence : textSplitter.splitIntoSentences(content)) {
+                    int start = content.indexOf(sentence, cursor);
+                    cursor = start + sentence.length();
+                    if (sentence.length() >= MIN_DEDUP_LENGTH && included.indexOf(sentence) >= 0) {
+                        duplicateSentences++;
+                    } else {
+                        fresh.add(new int[]{start, cursor});
+                    }
+                }
+            }
+            if (fresh.isEmpty()) {
+                droppedDocuments++;
+                continue;
+            }
+
+            String source = sources != null && index < sources.size() ? sources.get(index) : null;
+            String head = "参考文档 " + (includedDocuments + truncatedDocuments + 1) + "：\n";
+            String tail = source != null ? "\n\n来源：" + source + "\n\n" : "\n\n";
+            int overhead = tokenizer.countTokens(head) + tokenizer.countTokens(tail);
+
+            // 句子保留原文中的间隔；中间有句子被去重时以空格连接
+            StringBuilder body = new StringBuilder();
+            int bodyTokens = 0;
+            int taken = 0;
+            int previousEnd = -1;
+            for (int[] range : fresh) {
+                String piece;
+                if (previousEnd < 0) {
+                    piece = content.substring(range[0], range[1]);
+                } else if (isGap(content, previousEnd, range[0])) {
+                    piece = " " + content.substring(range[0], range[1]);
+                } else {
+                    piece = content.substring(previousEnd, range[1]);
+                }
+                int pieceTokens = tokenizer.countTokens(piece);
+                if (used + overhead + bodyTokens + pieceTokens > maxTokens) {
+                    break;
+                }
+                body.append(piece);
+                bodyTokens += pieceTokens;
+                previousEnd = range[1];
+                taken++;
+            }
+            for (int i = taken; i < fresh.size(); i++) {
+                droppedTokens += tokenizer.countTokens(content.substring(fresh.get(i)[0], fresh.get(i)[1]));
+            }
+            if (taken == 0) {
+                droppedDocuments++;
+                continue;
+            }
+
+            text.append(head).append(body).append(tail);
+            included.append(body).append('\n');
+            used += overhead + bodyTokens;
+            if (taken < fresh.size()) {
+                truncatedDocuments++;
+            } else {
+                includedDocuments++;
+            }
+        }
+
+        return PackedContext.builder()
+                .text(text.toString())
+                .budgetTokens(maxTokens)
+                .usedTokens(used)
+                .includedDocuments(includedDocuments)
+                .truncatedDocuments(truncatedDocuments)
+                .droppedDocuments(droppedDocuments)
+                .duplicateSentences(duplicateSentences)
+                .droppedTokens(droppedTokens)
+                .build();
+    }
+
+    /**
+     * 两个句子之间除空白外还有内容（被去重的句子）
+     */
+    private static boolean isGap(String content, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!Character.isWhitespace(content.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static double scoreOf(List<Float> scores, int index) {
+        if (scores == null || index >= scores.size() || scores.get(index) == null) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        return scores.get(index);
+    }
+}
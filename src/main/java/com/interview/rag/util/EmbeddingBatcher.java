@@ -0,0 +1,64 @@
+package com.interview.rag.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 嵌入批次划分工具
+ * 将待嵌入的文本按顺序划分为连续的批次，每批同时受条数与token数限制，
+ * 单条文本超出token预算时独占一个批次。token数由 {@link Tokenizer} 统计
+ */
+@Component
+public class EmbeddingBatcher {
+
+    @Value("${rag.embedding.batch.max-items:64}")
+    private int maxItems;
+
+    @Value("${rag.embedding.batch.max-tokens:8000}")
+    private int maxTokens;
+
+    private final Tokenizer tokenizer;
+
+    public EmbeddingBatcher(Tokenizer tokenizer) {
+        this.tokenizer = tokenizer;
+    }
+
+    /**
+     * 划分批次
+     *
+     * @param texts 待嵌入文本
+     * @return 批次区间列表，每个元素为 [起始下标, 结束下标)
+     */
+    public List<int[]> plan(List<String> texts) {
+        List<int[]> batches = new ArrayList<>();
+        int start = 0;
+        int tokens = 0;
+        for (int i = 0; i < texts.size(); i++) {
+            int textTokens = estimateTokens(texts.get(i));
+            boolean full = i - start >= Math.max(1, maxItems) || tokens + textTokens > maxTokens;
+            if (i > start && full) {
+                batches.add(new int[]{start, i});
+                start = i;
+                tokens = 0;
+            }
+            tokens += textTokens;
+        }
+        if (start < texts.size()) {
+            batches.add(new int[]{start, texts.size()});
+        }
+        return batches;
+    }
+
+    /**
+     * 统计文本的token数
+     *
+     * @param text 文本
+     * @return token数
+     */
+    public int estimateTokens(String text) {
+        return tokenizer.countTokens(text);
+    }
+}
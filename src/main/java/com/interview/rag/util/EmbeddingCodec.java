@@ -0,0 +1,176 @@
+package com.interview.rag.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 向量二进制编解码工具
+ * 格式：1字节格式标识 + 小端序向量数据（float32 每维4字节，float16 每维2字节）
+ * 相比 JSON 文本，1536 维向量从约 20KB 缩小到 6KB（float32）或 3KB（float16）
+ */
+public final class EmbeddingCodec {
+
+    private EmbeddingCodec() {
+    }
+
+    /**
+     * 向量存储格式
+     */
+    public enum Format {
+        FLOAT32((byte) 1, 4),
+        FLOAT16((byte) 2, 2);
+
+        private final byte code;
+        private final int bytesPerValue;
+
+        Format(byte code, int bytesPerValue) {
+            this.code = code;
+            this.bytesPerValue = bytesPerValue;
+        }
+
+        public int getBytesPerValue() {
+            return bytesPerValue;
+        }
+
+        /**
+         * 按名称解析存储格式（忽略大小写）
+         */
+        public static Format parse(String name) {
+            try {
+                return valueOf(name.trim().toUpperCase());
+            } catch (Exception e) {
+                throw new IllegalArgumentException("不支持的向量编码格式: " + name, e);
+            }
+        }
+
+        static Format fromCode(byte code) {
+            for (Format format : values()) {
+                if (format.code == code) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("未知的向量编码格式: " + code);
+        }
+    }
+
+    /**
+     * 编码向量
+     *
+     * @param vector 向量
+     * @param format 存储格式
+     * @return 二进制数据
+     */
+    public static byte[] encode(float[] vector, Format format) {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + vector.length * format.bytesPerValue)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(format.code);
+        if (format == Format.FLOAT32) {
+            buffer.asFloatBuffer().put(vector);
+        } else {
+            for (float value : vector) {
+                buffer.putShort(floatToHalf(value));
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * 解码向量
+     *
+     * @param data 二进制数据
+     * @return 向量
+     */
+    public static float[] decode(byte[] data) {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        Format format = Format.fromCode(data[0]);
+        float[] vector = new float[dimensions(data)];
+        decode(data, vector, format);
+        return vector;
+    }
+
+    /**
+     * 获取编码数据中的向量维度
+     */
+    public static int dimensions(byte[] data) {
+        Format format = Format.fromCode(data[0]);
+        return (data.length - 1) / format.bytesPerValue;
+    }
+
+    private static void decode(byte[] data, float[] target, Format format) {
+        ByteBuffer buffer = ByteBuffer.wrap(data, 1, data.length - 1).slice().order(ByteOrder.LITTLE_ENDIAN);
+        if (format == Format.FLOAT32) {
+            buffer.asFloatBuffer().get(target);
+        } else {
+            for (int i = 0; i < target.length; i++) {
+                target[i] = halfToFloat(buffer.getShort());
+            }
+        }
+    }
+
+    /**
+     * float32 转 IEEE 754 半精度（就近舍入）
+     */
+    static short floatToHalf(float value) {
+        int bits = Float.floatToRawIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int magnitude = bits & 0x7fffffff;
+
+        // NaN 与无穷大
+        if (magnitude >= 0x7f800000) {
+            return (short) (sign | 0x7c00 | (magnitude > 0x7f800000 ? 0x200 : 0));
+        }
+        // 超出半精度范围，饱和为无穷大
+        if (magnitude >= 0x477ff000) {
+            return (short) (sign | 0x7c00);
+        }
+        // 规格化数
+        if (magnitude >= 0x38800000) {
+            int rounded = magnitude + 0x0fff + ((magnitude >>> 13) & 1);
+            return (short) (sign | ((rounded - 0x38000000) >>> 13));
+        }
+        // 过小，下溢为0
+        if (magnitude < 0x33000000) {
+            return (short) sign;
+        }
+        // 非规格化数
+        int exponent = magnitude >>> 23;
+        int mantissa = (magnitude & 0x7fffff) | 0x800000;
+        int shift = 126 - exponent;
+        int half = mantissa >>> shift;
+        int remainder = mantissa & ((1 << shift) - 1);
+        int midpoint = 1 << (shift - 1);
+        if (remainder > midpoint || (remainder == midpoint && (half & 1) != 0)) {
+            half++;
+        }
+        return (short) (sign | half);
+    }
+
+    /**
+     * IEEE 754 半精度转 float32
+     */
+    static float halfToFloat(short half) {
+        int sign = (half & 0x8000) << 16;
+        int exponent = (half >>> 10) & 0x1f;
+        int mantissa = half & 0x3ff;
+
+        if (exponent == 0) {
+            if (mantissa == 0) {
+                return Float.intBitsToFloat(sign);
+            }
+            // 非规格化数，规格化后转换
+            int floatExponent = 113;
+            while ((mantissa & 0x400) == 0) {
+                mantissa <<= 1;
+                floatExponent--;
+            }
+            mantissa &= 0x3ff;
+            return Float.intBitsToFloat(sign | (floatExponent << 23) | (mantissa << 13));
+        }
+        if (exponent == 0x1f) {
+            return Float.intBitsToFloat(sign | 0x7f800000 | (mantissa << 13));
+        }
+        return Float.intBitsToFloat(sign | ((exponent + 112) << 23) | (mantissa << 13));
+    }
+}
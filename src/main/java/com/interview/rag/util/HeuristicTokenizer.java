@@ -0,0 +1,25 @@
+package com.interview.rag.util;
+
+/**
+ * 估算 token 数的计数器，没有配置 BPE 词表时使用
+ * 汉字按每字2个token、其他字符按每4个字符1个token估算，偏保守以免超出接口限制
+ */
+public class HeuristicTokenizer implements Tokenizer {
+
+    @Override
+    public int countTokens(CharSequence text) {
+        if (text == null || text.length() == 0) {
+            return 0;
+        }
+        int cjk = 0;
+        int other = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.UnicodeScript.of(text.charAt(i)) == Character.UnicodeScript.HAN) {
+                cjk++;
+            } else {
+                other++;
+            }
+        }
+        return cjk * 2 + (other + 3) / 4;
+    }
+}
@@ -0,0 +1,77 @@
+package com.interview.rag.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 关键词检索分词工具
+ * 汉字连续片段切分为相邻二元组（单字片段保留单字），字母数字连续片段作为一个词并转为小写，
+ * 其余字符视为分隔符。"ConcurrentHashMap 的实现原理" 切分为
+ * [concurrenthashmap, 的实, 实现, 现原, 原理]
+ */
+public final class LexicalTokenizer {
+
+    private LexicalTokenizer() {
+    }
+
+    /**
+     * 分词
+     *
+     * @param text 输入文本
+     * @return 词列表，保留重复词
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            int codePoint = text.codePointAt(i);
+            if (isHan(codePoint)) {
+                int start = i;
+                while (i < length && isHan(text.codePointAt(i))) {
+                    i += Character.charCount(text.codePointAt(i));
+                }
+                addBigrams(text.substring(start, i), tokens);
+            } else if (Character.isLetterOrDigit(codePoint)) {
+                int start = i;
+                while (i < length) {
+                    int current = text.codePointAt(i);
+                    if (isHan(current) || !(Character.isLetterOrDigit(current) || isWordSymbol(current))) {
+                        break;
+                    }
+                    i += Character.charCount(current);
+                }
+                tokens.add(text.substring(start, i).toLowerCase());
+            } else {
+                i += Character.charCount(codePoint);
+            }
+        }
+        return tokens;
+    }
+
+    private static void addBigrams(String run, List<String> tokens) {
+        int[] codePoints = run.codePoints().toArray();
+        if (codePoints.length == 1) {
+            tokens.add(run);
+            return;
+        }
+        for (int j = 0; j + 1 < codePoints.length; j++) {
+            tokens.add(new String(codePoints, j, 2));
+        }
+    }
+
+    private static boolean isHan(int codePoint) {
+        return Character.UnicodeScript.of(codePoint) == Character.UnicodeScript.HAN;
+    }
+
+    /**
+     * 词内允许出现的符号，保留 C++、C#、node_modules 这类写法
+     */
+    private static boolean isWordSymbol(int codePoint) {
+        return codePoint == '+' || codePoint == '#' || codePoint == '_';
+    }
+}
@@ -0,0 +1,141 @@
+package com.interview.rag.util;
+
+import com.interview.rag.model.ChunkMetadata;
+import com.interview.rag.model.VectorDocument;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 最大边际相关性（Maximal Marginal Relevance）重排
+ * <p>
+ * 依次选出 λ·sim(查询, 文档) − (1−λ)·max sim(文档, 已选文档) 最大的候选，
+ * 相邻块重叠导致向量几乎相同的结果只保留一个，其余名额留给不同内容。
+ * 选择时同时限制每个父文档（同一篇面经、同一道题）的块数，同一文档的多个块折叠为得分最高的几个
+ */
+public final class MmrReranker {
+
+    /**
+     * 块所属父文档的元数据键，写入时生成
+     */
+    public static final String DOCUMENT_KEY = ChunkMetadata.DOCUMENT_KEY;
+
+    private static final VectorKernels KERNELS = VectorKernels.getInstance();
+
+    private MmrReranker() {
+    }
+
+    /**
+     * 重排候选文档
+     *
+     * @param query 查询向量
+     * @param candidates 按相关性降序排列的候选文档
+     * @param vectors 文档ID到向量的映射，没有向量的候选排在有向量的候选之后，保持原有顺序
+     * @param lambda 相关性权重，1 表示只看相关性，0 表示只看多样性
+     * @param topK 返回的最大结果数
+     * @param maxPerDocument 每个父文档最多保留的块数，不大于0表示不限制
+     * @return 重排后的文档，文档对象与得分保持不变
+     */
+    public static List<VectorDocument> rerank(float[] query, List<VectorDocument> candidates,
+                                              Map<String, float[]> vectors, double lambda,
+                                              int topK, int maxPerDocument) {
+        List<VectorDocument> selected = new ArrayList<>(Math.min(topK, candidates.size()));
+        if (topK <= 0 || candidates.isEmpty()) {
+            return selected;
+        }
+
+        int n = candidates.size();
+        float[][] candidateVectors = new float[n][];
+        float[] relevance = new float[n];
+        // 每个候选与已选文档的最大相似度，随选择增量更新
+        float[] redundancy = new float[n];
+        boolean[] taken = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            float[] vector = vectors.get(candidates.get(i).getId());
+            if (vector != null && query != null && vector.length == query.length) {
+                candidateVectors[i] = vector;
+                relevance[i] = KERNELS.cosineSimilarity(query, 0, vector, 0, vector.length);
+            }
+            redundancy[i] = Float.NEGATIVE_INFINITY;
+        }
+
+        Map<String, Integer> perDocument = new HashMap<>();
+        while (selected.size() < topK) {
+            int best = -1;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                if (taken[i] || candidateVectors[i] == null) {
+                    continue;
+                }
+                double penalty = redundancy[i] == Float.NEGATIVE_INFINITY ? 0 : redundancy[i];
+                double score = lambda * relevance[i] - (1 - lambda) * penalty;
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+
+            taken[best] = true;
+            if (!admit(candidates.get(best), perDocument, maxPerDocument)) {
+                continue;
+            }
+            selected.add(candidates.get(best));
+            float[] chosen = candidateVectors[best];
+            for (int i = 0; i < n; i++) {
+                if (!taken[i] && candidateVectors[i] != null) {
+                    float similarity = KERNELS.cosineSimilarity(chosen, 0, candidateVectors[i], 0, chosen.length);
+                    if (similarity > redundancy[i]) {
+                        redundancy[i] = similarity;
+                    }
+                }
+            }
+        }
+
+        for (int i = 0; i < n && selected.size() < topK; i++) {
+            if (candidateVectors[i] == null && admit(candidates.get(i), perDocument, maxPerDocument)) {
+                selected.add(candidates.get(i));
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * 父文档标识：优先使用写入时生成的 documentKey，其次为源数据类型与ID，都没有时每个块单独成组
+     *
+     * @param document 文档块
+     * @return 父文档标识
+     */
+    public static String documentKey(VectorDocument document) {
+        Map<String, Object> metadata = document.getMetadata();
+        if (metadata != null) {
+            Object key = metadata.get(DOCUMENT_KEY);
+            if (key != null) {
+                return key.toString();
+            }
+            Object sourceType = metadata.get("sourceType");
+            Object sourceId = metadata.get("sourceId");
+            if (sourceType != null && sourceId != null) {
+                return sourceType + ":" + sourceId;
+            }
+        }
+        return "chunk:" + document.getId();
+    }
+
+    private static boolean admit(VectorDocument document, Map<String, Integer> perDocument, int maxPerDocument) {
+        if (maxPerDocument <= 0) {
+            return true;
+        }
+        String key = documentKey(document);
+        int count = perDocument.getOrDefault(key, 0);
+        if (count >= maxPerDocument) {
+            return false;
+        }
+        perDocument.put(key, count + 1);
+        return true;
+    }
+}
@@ -0,0 +1,46 @@
+package com.interview.rag.util;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 倒数排名融合（Reciprocal Rank Fusion）
+ * <p>
+ * 每个文档的融合得分为其在各路结果中 1 / (k + 排名) 之和，排名从1开始。
+ * 只使用名次、不使用原始得分，余弦相似度与 BM25 得分量纲不同也可以直接合并。
+ * 融合只需要文档ID，文档内容在融合后只为最终保留的结果读取
+ */
+public final class RankFusion {
+
+    private RankFusion() {
+    }
+
+    /**
+     * 按文档ID合并多路检索结果
+     *
+     * @param rankings 各路检索结果的文档ID，每路按得分降序排列
+     * @param k 平滑常数，通常取60
+     * @param topK 返回的最大结果数
+     * @return 已排序的选择器，按名次读取文档ID与融合得分
+     */
+    public static TopKSelector fuse(List<long[]> rankings, int k, int topK) {
+        Map<Long, Float> scores = new LinkedHashMap<>();
+        for (long[] ranking : rankings) {
+            if (ranking == null) {
+                continue;
+            }
+            for (int rank = 0; rank < ranking.length; rank++) {
+                scores.merge(ranking[rank], 1f / (k + rank + 1), Float::sum);
+            }
+        }
+
+        // 按文档首次出现的顺序提交，得分相同时先出现的（靠前一路中的）文档在前
+        TopKSelector selector = new TopKSelector(Math.max(topK, 0));
+        for (Map.Entry<Long, Float> entry : scores.entrySet()) {
+            selector.offer(entry.getKey(), entry.getValue());
+        }
+        selector.sort();
+        return selector;
+    }
+}
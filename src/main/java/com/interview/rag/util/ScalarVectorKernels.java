@@ -0,0 +1,86 @@
+package com.interview.rag.util;
+
+/**
+ * 标量向量计算内核
+ * 使用四路独立累加器展开循环，减少浮点加法的依赖链
+ */
+public class ScalarVectorKernels implements VectorKernels {
+
+    @Override
+    public float dotProduct(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0;
+        int bound = length & ~3;
+        for (; i < bound; i += 4) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+            s1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+            s2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+            s3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+        }
+        for (; i < length; i++) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    @Override
+    public float squaredDistance(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0;
+        int bound = length & ~3;
+        for (; i < bound; i += 4) {
+            float d0 = a[aOffset + i] - b[bOffset + i];
+            float d1 = a[aOffset + i + 1] - b[bOffset + i + 1];
+            float d2 = a[aOffset + i + 2] - b[bOffset + i + 2];
+            float d3 = a[aOffset + i + 3] - b[bOffset + i + 3];
+            s0 += d0 * d0;
+            s1 += d1 * d1;
+            s2 += d2 * d2;
+            s3 += d3 * d3;
+        }
+        for (; i < length; i++) {
+            float d = a[aOffset + i] - b[bOffset + i];
+            s0 += d * d;
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    @Override
+    public float cosineSimilarity(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float dot0 = 0f, dot1 = 0f;
+        float normA0 = 0f, normA1 = 0f;
+        float normB0 = 0f, normB1 = 0f;
+        int i = 0;
+        int bound = length & ~1;
+        for (; i < bound; i += 2) {
+            float x0 = a[aOffset + i];
+            float y0 = b[bOffset + i];
+            float x1 = a[aOffset + i + 1];
+            float y1 = b[bOffset + i + 1];
+            dot0 += x0 * y0;
+            dot1 += x1 * y1;
+            normA0 += x0 * x0;
+            normA1 += x1 * x1;
+            normB0 += y0 * y0;
+            normB1 += y1 * y1;
+        }
+        for (; i < length; i++) {
+            float x = a[aOffset + i];
+            float y = b[bOffset + i];
+            dot0 += x * y;
+            normA0 += x * x;
+            normB0 += y * y;
+        }
+        float normA = normA0 + normA1;
+        float normB = normB0 + normB1;
+        if (normA <= 0 || normB <= 0) {
+            return 0f;
+        }
+        return (dot0 + dot1) / (float) (Math.sqrt(normA) * Math.sqrt(normB));
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,79 @@
+package com.interview.rag.util;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 64 位 SimHash 指纹
+ * <p>
+ * 文本按 {@link LexicalTokenizer} 切分为特征（汉字二元组、小写单词），每个特征取 64 位哈希，
+ * 按出现次数加权后逐位累加（该位为1加权重、为0减权重），累加结果为正的位取1。
+ * 内容相近的文本指纹的汉明距离小，转载时改动几个字、调整标点或空白只会翻转少数几位
+ */
+public final class SimHash {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private SimHash() {
+    }
+
+    /**
+     * 计算文本指纹
+     *
+     * @param text 输入文本
+     * @return 指纹，没有可用特征时为0
+     */
+    public static long fingerprint(String text) {
+        List<String> tokens = LexicalTokenizer.tokenize(text);
+        if (tokens.isEmpty()) {
+            return 0L;
+        }
+        Map<String, Integer> weights = new HashMap<>();
+        for (String token : tokens) {
+            weights.merge(token, 1, Integer::sum);
+        }
+
+        int[] votes = new int[64];
+        for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+            long hash = hash(entry.getKey());
+            int weight = entry.getValue();
+            for (int bit = 0; bit < 64; bit++) {
+                votes[bit] += ((hash >>> bit) & 1L) != 0 ? weight : -weight;
+            }
+        }
+
+        long fingerprint = 0L;
+        for (int bit = 0; bit < 64; bit++) {
+            if (votes[bit] > 0) {
+                fingerprint |= 1L << bit;
+            }
+        }
+        return fingerprint;
+    }
+
+    /**
+     * 两个指纹的汉明距离
+     */
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    /**
+     * 特征哈希：FNV-1a 后再做一次 64 位混合，使相近的特征各位分布均匀
+     */
+    static long hash(String feature) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < feature.length(); i++) {
+            hash ^= feature.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -7,10 +7,14 @@ import java.util.List;
 /**
  * 相似度计算工具
  * 提供向量相似度计算的实用方法
+ * 计算基于 float[]，List&lt;Float&gt; 版本仅作为兼容适配
+ * 底层由 {@link VectorKernels} 执行，支持时自动使用 SIMD 指令
  */
 @Component
 public class SimilarityCalculator {
 
+    private final VectorKernels kernels = VectorKernels.getInstance();
+
     /**
      * 计算余弦相似度
      *
@@ -18,32 +22,23 @@ public class SimilarityCalculator {
      * @param vector2 向量2
      * @return 相似度得分(0-1之间)
      */
-    public float cosineSimilarity(List<Float> vector1, List<Float> vector2) {
-        if (vector1 == null || vector2 == null || vector1.isEmpty() || vector2.isEmpty()) {
-            return 0f;
-        }
-        
-        if (vector1.size() != vector2.size()) {
-            throw new IllegalArgumentException("向量维度不匹配: " + vector1.size() + " vs " + vector2.size());
-        }
-        
-        float dotProduct = 0.0f;
-        float norm1 = 0.0f;
-        float norm2 = 0.0f;
-        
-        for (int i = 0; i < vector1.size(); i++) {
-            dotProduct += vector1.get(i) * vector2.get(i);
-            norm1 += vector1.get(i) * vector1.get(i);
-            norm2 += vector2.get(i) * vector2.get(i);
-        }
-        
-        if (norm1 <= 0 || norm2 <= 0) {
+    public float cosineSimilarity(float[] vector1, float[] vector2) {
+        if (vector1 == null || vector2 == null || vector1.length == 0 || vector2.length == 0) {
             return 0f;
         }
-        
-        return dotProduct / (float) (Math.sqrt(norm1) * Math.sqrt(norm2));
+
+        checkDimensions(vector1.length, vector2.length);
+
+        return kernels.cosineSimilarity(vector1, 0, vector2, 0, vector1.length);
+    }
+
+    /**
+     * 计算余弦相似度（列表适配）
+     */
+    public float cosineSimilarity(List<Float> vector1, List<Float> vector2) {
+        return cosineSimilarity(VectorUtils.toArray(vector1), VectorUtils.toArray(vector2));
     }
-    
+
     /**
      * 计算欧氏距离
      *
@@ -51,25 +46,23 @@ public class SimilarityCalculator {
      * @param vector2 向量2
      * @return 欧氏距离
      */
-    public float euclideanDistance(List<Float> vector1, List<Float> vector2) {
-        if (vector1 == null || vector2 == null || vector1.isEmpty() || vector2.isEmpty()) {
+    public float euclideanDistance(float[] vector1, float[] vector2) {
+        if (vector1 == null || vector2 == null || vector1.length == 0 || vector2.length == 0) {
             return Float.MAX_VALUE;
         }
-        
-        if (vector1.size() != vector2.size()) {
-            throw new IllegalArgumentException("向量维度不匹配: " + vector1.size() + " vs " + vector2.size());
-        }
-        
-        float sumSquared = 0.0f;
-        
-        for (int i = 0; i < vector1.size(); i++) {
-            float diff = vector1.get(i) - vector2.get(i);
-            sumSquared += diff * diff;
-        }
-        
-        return (float) Math.sqrt(sumSquared);
+
+        checkDimensions(vector1.length, vector2.length);
+
+        return (float) Math.sqrt(kernels.squaredDistance(vector1, 0, vector2, 0, vector1.length));
+    }
+
+    /**
+     * 计算欧氏距离（列表适配）
+     */
+    public float euclideanDistance(List<Float> vector1, List<Float> vector2) {
+        return euclideanDistance(VectorUtils.toArray(vector1), VectorUtils.toArray(vector2));
     }
-    
+
     /**
      * 计算欧氏距离并转换为相似度
      * 将距离转换为0-1之间的相似度分数，距离越小，相似度越高
@@ -78,18 +71,25 @@ public class SimilarityCalculator {
      * @param vector2 向量2
      * @return 相似度得分(0-1之间)
      */
-    public float euclideanSimilarity(List<Float> vector1, List<Float> vector2) {
+    public float euclideanSimilarity(float[] vector1, float[] vector2) {
         float distance = euclideanDistance(vector1, vector2);
-        
+
         if (distance == Float.MAX_VALUE) {
             return 0f;
         }
-        
+
         // 使用高斯核函数将距离转换为相似度
         // 距离为0时相似度为1，距离越大相似度越接近0
         return (float) Math.exp(-distance);
     }
-    
+
+    /**
+     * 计算欧氏距离并转换为相似度（列表适配）
+     */
+    public float euclideanSimilarity(List<Float> vector1, List<Float> vector2) {
+        return euclideanSimilarity(VectorUtils.toArray(vector1), VectorUtils.toArray(vector2));
+    }
+
     /**
      * 计算点积
      *
@@ -97,50 +97,130 @@ public class SimilarityCalculator {
      * @param vector2 向量2
      * @return 点积值
      */
-    public float dotProduct(List<Float> vector1, List<Float> vector2) {
-        if (vector1 == null || vector2 == null || vector1.isEmpty() || vector2.isEmpty()) {
+    public float dotProduct(float[] vector1, float[] vector2) {
+        if (vector1 == null || vector2 == null || vector1.length == 0 || vector2.length == 0) {
             return 0f;
         }
-        
-        if (vector1.size() != vector2.size()) {
-            throw new IllegalArgumentException("向量维度不匹配: " + vector1.size() + " vs " + vector2.size());
+
+        checkDimensions(vector1.length, vector2.length);
+
+        return kernels.dotProduct(vector1, 0, vector2, 0, vector1.length);
+    }
+
+    /**
+     * 计算点积（列表适配）
+     */
+    public float dotProduct(List<Float> vector1, List<Float> vector2) {
+        return dotProduct(VectorUtils.toArray(vector1), VectorUtils.toArray(vector2));
+    }
+
+    /**
+     * 批量计算查询向量与多个向量的余弦相似度
+     * 候选向量按行连续存储在同一个数组中，避免逐个对象访问
+     *
+     * @param query 查询向量
+     * @param vectors 按行连续存储的候选向量，长度至少为 count * query.length
+     * @param count 候选向量个数
+     * @param scores 输出的相似度分数，长度至少为 count
+     */
+    public void cosineSimilarityBatch(float[] query, float[] vectors, int count, float[] scores) {
+        int dimensions = checkBatch(query, vectors, count, scores);
+        for (int row = 0, offset = 0; row < count; row++, offset += dimensions) {
+            scores[row] = kernels.cosineSimilarity(query, 0, vectors, offset, dimensions);
         }
-        
-        float dotProduct = 0.0f;
-        
-        for (int i = 0; i < vector1.size(); i++) {
-            dotProduct += vector1.get(i) * vector2.get(i);
+    }
+
+    /**
+     * 批量计算查询向量与多个向量的点积
+     *
+     * @param query 查询向量
+     * @param vectors 按行连续存储的候选向量，长度至少为 count * query.length
+     * @param count 候选向量个数
+     * @param scores 输出的点积，长度至少为 count
+     */
+    public void dotProductBatch(float[] query, float[] vectors, int count, float[] scores) {
+        int dimensions = checkBatch(query, vectors, count, scores);
+        for (int row = 0, offset = 0; row < count; row++, offset += dimensions) {
+            scores[row] = kernels.dotProduct(query, 0, vectors, offset, dimensions);
+        }
+    }
+
+    /**
+     * 批量计算查询向量与多个向量的欧氏距离
+     *
+     * @param query 查询向量
+     * @param vectors 按行连续存储的候选向量，长度至少为 count * query.length
+     * @param count 候选向量个数
+     * @param distances 输出的欧氏距离，长度至少为 count
+     */
+    public void euclideanDistanceBatch(float[] query, float[] vectors, int count, float[] distances) {
+        int dimensions = checkBatch(query, vectors, count, distances);
+        for (int row = 0, offset = 0; row < count; row++, offset += dimensions) {
+            distances[row] = (float) Math.sqrt(kernels.squaredDistance(query, 0, vectors, offset, dimensions));
         }
-        
-        return dotProduct;
     }
-    
+
     /**
-     * 归一化向量
+     * 原地归一化向量
      *
      * @param vector 输入向量
-     * @return 归一化后的向量
+     * @return 归一化后的向量（与输入为同一数组）
      */
-    public List<Float> normalize(List<Float> vector) {
-        if (vector == null || vector.isEmpty()) {
+    public float[] normalize(float[] vector) {
+        if (vector == null || vector.length == 0) {
             return vector;
         }
-        
+
         float norm = 0.0f;
         for (float value : vector) {
             norm += value * value;
         }
-        
+
         if (norm <= 0) {
             return vector;
         }
-        
+
         float multiplier = 1.0f / (float) Math.sqrt(norm);
-        
-        for (int i = 0; i < vector.size(); i++) {
-            vector.set(i, vector.get(i) * multiplier);
+
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= multiplier;
         }
-        
+
         return vector;
     }
-}
\ No newline at end of file
+
+    /**
+     * 归一化向量（列表适配，原地修改输入列表）
+     *
+     * @param vector 输入向量
+     * @return 归一化后的向量
+     */
+    public List<Float> normalize(List<Float> vector) {
+        if (vector == null || vector.isEmpty()) {
+            return vector;
+        }
+
+        float[] normalized = normalize(VectorUtils.toArray(vector));
+        for (int i = 0; i < normalized.length; i++) {
+            vector.set(i, normalized[i]);
+        }
+
+        return vector;
+    }
+
+    private int checkBatch(float[] query, float[] vectors, int count, float[] output) {
+        if (query == null || query.length == 0 || vectors == null || output == null) {
+            throw new IllegalArgumentException("批量计算的参数不能为空");
+        }
+        if ((long) count * query.length > vectors.length || count > output.length) {
+            throw new IllegalArgumentException("批量计算的数组长度不足: count=" + count + ", dimensions=" + query.length);
+        }
+        return query.length;
+    }
+
+    private void checkDimensions(int length1, int length2) {
+        if (length1 != length2) {
+            throw new IllegalArgumentException("向量维度不匹配: " + length1 + " vs " + length2);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.interview.rag.util;
+
+import java.text.Normalizer;
+import java.util.regex.Pattern;
+
+/**
+ * 文本规范化工具
+ * 生成缓存键前统一文本形式：Unicode NFC、去除首尾空白、连续空白合并为一个空格
+ */
+public final class TextNormalizer {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private TextNormalizer() {
+    }
+
+    /**
+     * 规范化文本
+     *
+     * @param text 输入文本
+     * @return 规范化后的文本，输入为 null 时返回空字符串
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return WHITESPACE.matcher(Normalizer.normalize(text, Normalizer.Form.NFC).trim()).replaceAll(" ");
+    }
+}
@@ -1,98 +1,114 @@
 package com.interview.rag.util;
 
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * 文本分割工具
  * 负责将长文本分割成适合嵌入的短文本段落
+ * <p>
+ * 分块以流式方式进行：段落与句子边界由手写扫描得到，只记录在原文中的下标区间，不生成中间子串；
+ * 块内容写入复用的缓冲区，重叠部分通过移动缓冲区起始偏移保留，不再复制。
+ * 只有最终输出的块会分配新的字符串。
+ * <p>
+ * 默认按字符数分块；mode 为 tokens 时按 {@link Tokenizer} 统计的 token 数以句子为单位装块，
+ * 汉字与英文代码片段的块都能贴近嵌入模型的输入上限
  */
 @Component
 public class TextSplitter {
 
     @Value("${rag.text-splitter.chunk-size:1000}")
     private int chunkSize;
-    
+
     @Value("${rag.text-splitter.chunk-overlap:200}")
     private int chunkOverlap;
-    
-    private static final Pattern SENTENCE_BOUNDARY = Pattern.compile("[.!?。！？]+\\s*");
-    private static final Pattern PARAGRAPH_BOUNDARY = Pattern.compile("\\n\\s*\\n");
-    
+
+    /**
+     * 分块计量方式：characters 按字符数，tokens 按嵌入模型的 token 数
+     */
+    @Value("${rag.text-splitter.mode:characters}")
+    private String mode;
+
+    @Value("${rag.text-splitter.chunk-tokens:512}")
+    private int chunkTokens;
+
+    @Value("${rag.text-splitter.chunk-overlap-tokens:64}")
+    private int chunkOverlapTokens;
+
+    private Tokenizer tokenizer = new HeuristicTokenizer();
+
+    public static final String MODE_CHARACTERS = "characters";
+    public static final String MODE_TOKENS = "tokens";
+
+    private static final String PARAGRAPH_SEPARATOR = "\n\n";
+    private static final String SENTENCE_SEPARATOR = " ";
+    private static final long NOT_FOUND = -1L;
+
     /**
      * 按句子分割文本
+     * 句子以 . ! ? 。！？ 结尾，连续的标点与其后的空白归入前一个句子
      *
      * @param text 输入文本
      * @return 句子列表
      */
     public List<String> splitIntoSentences(String text) {
-        if (StringUtils.isBlank(text)) {
-            return new ArrayList<>();
-        }
-        
         List<String> sentences = new ArrayList<>();
-        Matcher matcher = SENTENCE_BOUNDARY.matcher(text);
-        
-        int start = 0;
-        while (matcher.find()) {
-            String sentence = text.substring(start, matcher.end()).trim();
-            if (StringUtils.isNotBlank(sentence)) {
-                sentences.add(sentence);
-            }
-            start = matcher.end();
+        if (StringUtils.isBlank(text)) {
+            return sentences;
         }
-        
-        // 处理最后可能没有标点的文本
-        if (start < text.length()) {
-            String lastSentence = text.substring(start).trim();
-            if (StringUtils.isNotBlank(lastSentence)) {
-                sentences.add(lastSentence);
+
+        int cursor = 0;
+        while (cursor < text.length()) {
+            int end = findSentenceEnd(text, cursor, text.length());
+            long range = trimRange(text, cursor, end);
+            cursor = end;
+            if (!isBlank(text, range)) {
+                sentences.add(text.substring(rangeStart(range), rangeEnd(range)));
             }
         }
-        
         return sentences;
     }
-    
+
     /**
      * 按段落分割文本
+     * 段落以空行分隔（两个换行之间只有空白字符）
      *
      * @param text 输入文本
      * @return 段落列表
      */
     public List<String> splitIntoParagraphs(String text) {
-        if (StringUtils.isBlank(text)) {
-            return new ArrayList<>();
-        }
-        
         List<String> paragraphs = new ArrayList<>();
-        Matcher matcher = PARAGRAPH_BOUNDARY.matcher(text);
-        
-        int start = 0;
-        while (matcher.find()) {
-            String paragraph = text.substring(start, matcher.start()).trim();
-            if (StringUtils.isNotBlank(paragraph)) {
-                paragraphs.add(paragraph);
-            }
-            start = matcher.end();
+        if (StringUtils.isBlank(text)) {
+            return paragraphs;
         }
-        
-        // 处理最后一段
-        if (start < text.length()) {
-            String lastParagraph = text.substring(start).trim();
-            if (StringUtils.isNotBlank(lastParagraph)) {
-                paragraphs.add(lastParagraph);
+
+        int cursor = 0;
+        while (cursor < text.length()) {
+            long boundary = findParagraphBoundary(text, cursor, text.length());
+            int end = boundary == NOT_FOUND ? text.length() : rangeStart(boundary);
+            long range = trimRange(text, cursor, end);
+            cursor = boundary == NOT_FOUND ? text.length() : rangeEnd(boundary);
+            if (!isBlank(text, range)) {
+                paragraphs.add(text.substring(rangeStart(range), rangeEnd(range)));
             }
         }
-        
         return paragraphs;
     }
-    
+
     /**
      * 将文本分割成重叠的块
      *
@@ -100,106 +116,589 @@ public class TextSplitter {
      * @return 文本块列表
      */
     public List<String> splitIntoChunks(String text) {
-        if (StringUtils.isBlank(text)) {
-            return new ArrayList<>();
-        }
-        
-        // 首先按段落分割
-        List<String> paragraphs = splitIntoParagraphs(text);
-        
         List<String> chunks = new ArrayList<>();
-        StringBuilder currentChunk = new StringBuilder();
-        
-        for (String paragraph : paragraphs) {
-            // 如果当前段落加上已有内容超过块大小，则创建一个新块
-            if (currentChunk.length() + paragraph.length() > chunkSize) {
-                if (currentChunk.length() > 0) {
-                    chunks.add(currentChunk.toString().trim());
-                    
-                    // 保留重叠部分
-                    if (chunkOverlap > 0 && currentChunk.length() > chunkOverlap) {
-                        String overlap = currentChunk.substring(Math.max(0, currentChunk.length() - chunkOverlap));
-                        currentChunk = new StringBuilder(overlap);
-                    } else {
-                        currentChunk = new StringBuilder();
-                    }
-                }
-                
-                // 如果单个段落就超过了块大小，则需要进一步分割
-                if (paragraph.length() > chunkSize) {
-                    List<String> sentences = splitIntoSentences(paragraph);
-                    StringBuilder sentenceChunk = new StringBuilder();
-                    
-                    for (String sentence : sentences) {
-                        if (sentenceChunk.length() + sentence.length() > chunkSize) {
-                            if (sentenceChunk.length() > 0) {
-                                chunks.add(sentenceChunk.toString().trim());
-                                
-                                // 保留重叠部分
-                                if (chunkOverlap > 0 && sentenceChunk.length() > chunkOverlap) {
-                                    String overlap = sentenceChunk.substring(Math.max(0, sentenceChunk.length() - chunkOverlap));
-                                    sentenceChunk = new StringBuilder(overlap);
-                                } else {
-                                    sentenceChunk = new StringBuilder();
-                                }
-                            }
-                        }
-                        
-                        // 如果单个句子就超过块大小，则按字符截断
-                        if (sentence.length() > chunkSize) {
-                            for (int i = 0; i < sentence.length(); i += chunkSize - chunkOverlap) {
-                                int end = Math.min(i + chunkSize, sentence.length());
-                                chunks.add(sentence.substring(i, end).trim());
-                            }
-                        } else {
-                            sentenceChunk.append(sentence).append(" ");
-                        }
-                    }
-                    
-                    if (sentenceChunk.length() > 0) {
-                        currentChunk.append(sentenceChunk);
-                    }
-                } else {
-                    currentChunk.append(paragraph).append("\n\n");
-                }
-            } else {
-                currentChunk.append(paragraph).append("\n\n");
-            }
+        chunkIterator(text).forEachRemaining(chunks::add);
+        return chunks;
+    }
+
+    /**
+     * 以流的形式逐个生成文本块，块按需生成
+     *
+     * @param text 输入文本
+     * @return 文本块流
+     */
+    public Stream<String> streamChunks(CharSequence text) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                chunkIterator(text), Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * 读取全部输入后以流的形式逐个生成文本块
+     * 段落边界需要向后查看空白，输入先读入一个缓冲区，之后的分块不再复制文本
+     *
+     * @param reader 输入
+     * @return 文本块流
+     * @throws IOException 读取失败
+     */
+    public Stream<String> streamChunks(Reader reader) throws IOException {
+        StringBuilder text = new StringBuilder();
+        char[] buffer = new char[8192];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            text.append(buffer, 0, read);
         }
-        
-        // 添加最后一个块
-        if (currentChunk.length() > 0) {
-            chunks.add(currentChunk.toString().trim());
+        return streamChunks(text);
+    }
+
+    /**
+     * 创建文本块迭代器，使用创建时的分块方式、块大小与重叠大小
+     *
+     * @param text 输入文本，迭代期间不能修改
+     * @return 文本块迭代器
+     */
+    public Iterator<String> chunkIterator(CharSequence text) {
+        if (MODE_TOKENS.equalsIgnoreCase(mode)) {
+            return new TokenChunkIterator(text, tokenizer, chunkTokens, chunkOverlapTokens);
         }
-        
-        return chunks;
+        return new ChunkIterator(text, chunkSize, chunkOverlap);
     }
-    
+
     /**
      * 设置块大小
      */
     public void setChunkSize(int chunkSize) {
         this.chunkSize = chunkSize;
     }
-    
+
     /**
      * 设置块重叠大小
      */
     public void setChunkOverlap(int chunkOverlap) {
         this.chunkOverlap = chunkOverlap;
     }
-    
+
+    /**
+     * 设置分块计量方式
+     *
+     * @param mode {@link #MODE_CHARACTERS} 或 {@link #MODE_TOKENS}
+     */
+    public void setMode(String mode) {
+        if (!MODE_CHARACTERS.equalsIgnoreCase(mode) && !MODE_TOKENS.equalsIgnoreCase(mode)) {
+            throw new IllegalArgumentException("不支持的分块方式: " + mode);
+        }
+        this.mode = mode;
+    }
+
+    /**
+     * 设置按 token 分块时每块的 token 预算
+     */
+    public void setChunkTokens(int chunkTokens) {
+        this.chunkTokens = chunkTokens;
+    }
+
+    /**
+     * 设置按 token 分块时的重叠 token 数
+     */
+    public void setChunkOverlapTokens(int chunkOverlapTokens) {
+        this.chunkOverlapTokens = chunkOverlapTokens;
+    }
+
+    /**
+     * 设置 token 计数器，未设置时按字符估算
+     */
+    @Autowired(required = false)
+    public void setTokenizer(Tokenizer tokenizer) {
+        this.tokenizer = tokenizer;
+    }
+
     /**
      * 获取当前块大小
      */
     public int getChunkSize() {
         return chunkSize;
     }
-    
+
     /**
      * 获取当前块重叠大小
      */
     public int getChunkOverlap() {
         return chunkOverlap;
     }
-}
\ No newline at end of file
+
+    /**
+     * 从 from 开始查找段落分隔：一个换行，之后是若干空白字符，以最后一个换行结束
+     *
+     * @return 分隔符的 [start, end) 区间，找不到时返回 {@link #NOT_FOUND}
+     */
+    private static long findParagraphBoundary(CharSequence text, int from, int limit) {
+        int i = from;
+        while (i < limit) {
+            if (text.charAt(i) != '\n') {
+                i++;
+                continue;
+            }
+            int lastNewline = -1;
+            int j = i + 1;
+            while (j < limit && isSpace(text.charAt(j))) {
+                if (text.charAt(j) == '\n') {
+                    lastNewline = j;
+                }
+                j++;
+            }
+            if (lastNewline >= 0) {
+                return range(i, lastNewline + 1);
+            }
+            // i 与 j 之间没有换行，不可能是分隔符的起点
+            i = j;
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * 从 from 开始查找句子结尾：连续的句末标点及其后的空白
+     *
+     * @return 句子结尾（不含），找不到时返回 limit
+     */
+    private static int findSentenceEnd(CharSequence text, int from, int limit) {
+        for (int i = from; i < limit; i++) {
+            if (isSentencePunctuation(text.charAt(i))) {
+                int end = i + 1;
+                while (end < limit && isSentencePunctuation(text.charAt(end))) {
+                    end++;
+                }
+                while (end < limit && isSpace(text.charAt(end))) {
+                    end++;
+                }
+                return end;
+            }
+        }
+        return limit;
+    }
+
+    private static boolean isSentencePunctuation(char c) {
+        return c == '.' || c == '!' || c == '?' || c == '。' || c == '！' || c == '？';
+    }
+
+    /**
+     * 与正则表达式 \s 相同的空白字符
+     */
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * 与 {@link String#trim()} 相同的规则去除区间首尾的控制字符与空格
+     */
+    private static long trimRange(CharSequence text, int start, int end) {
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return range(start, end);
+    }
+
+    /**
+     * 与 {@link StringUtils#isBlank(CharSequence)} 相同的判断规则
+     */
+    private static boolean isBlank(CharSequence text, long range) {
+        for (int i = rangeStart(range); i < rangeEnd(range); i++) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long range(int start, int end) {
+        return ((long) start << 32) | (end & 0xFFFFFFFFL);
+    }
+
+    private static int rangeStart(long range) {
+        return (int) (range >>> 32);
+    }
+
+    private static int rangeEnd(long range) {
+        return (int) range;
+    }
+
+    private static int rangeLength(long range) {
+        return rangeEnd(range) - rangeStart(range);
+    }
+
+    /**
+     * 分块迭代器的公共部分：按段落、段落内按句子推进的游标，以及待取出的块队列
+     */
+    private abstract static class AbstractChunkIterator implements Iterator<String> {
+
+        protected final CharSequence text;
+        protected final int length;
+        protected final ArrayDeque<String> ready = new ArrayDeque<>();
+
+        private int paragraphCursor;
+
+        /**
+         * 正在按句子推进的段落，未处于句子模式时为 -1
+         */
+        protected int sentenceCursor = -1;
+        private int sentenceLimit;
+
+        protected boolean finished;
+
+        AbstractChunkIterator(CharSequence text) {
+            this.text = text;
+            this.length = text == null ? 0 : text.length();
+            this.finished = text == null || StringUtils.isBlank(text);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (ready.isEmpty() && !finished) {
+                advance();
+            }
+            return !ready.isEmpty();
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return ready.poll();
+        }
+
+        /**
+         * 推进一步，生成的块放入 {@link #ready}，处理完全部文本后设置 {@link #finished}
+         */
+        protected abstract void advance();
+
+        protected void enterSentences(long paragraph) {
+            sentenceCursor = rangeStart(paragraph);
+            sentenceLimit = rangeEnd(paragraph);
+        }
+
+        protected long nextParagraph() {
+            while (paragraphCursor < length) {
+                long boundary = findParagraphBoundary(text, paragraphCursor, length);
+                int end = boundary == NOT_FOUND ? length : rangeStart(boundary);
+                long paragraph = trimRange(text, paragraphCursor, end);
+                paragraphCursor = boundary == NOT_FOUND ? length : rangeEnd(boundary);
+                if (!isBlank(text, paragraph)) {
+                    return paragraph;
+                }
+            }
+            return NOT_FOUND;
+        }
+
+        protected long nextSentence() {
+            while (sentenceCursor < sentenceLimit) {
+                int end = findSentenceEnd(text, sentenceCursor, sentenceLimit);
+                long sentence = trimRange(text, sentenceCursor, end);
+                sentenceCursor = end;
+                if (!isBlank(text, sentence)) {
+                    return sentence;
+                }
+            }
+            return NOT_FOUND;
+        }
+    }
+
+    /**
+     * 按字符数分块的状态机
+     * <p>
+     * 规则：段落依次追加到当前块（以空行连接），追加后超过块大小时先输出当前块，只保留末尾的重叠部分；
+     * 单个段落超过块大小时按句子分块（以空格连接），剩余部分并入当前块；
+     * 单个句子超过块大小时按字符截断，相邻片段重叠 chunkOverlap 个字符。
+     * 每次推进处理一个段落或一个句子
+     */
+    private static final class ChunkIterator extends AbstractChunkIterator {
+
+        private final int chunkSize;
+        private final int chunkOverlap;
+
+        private final ChunkBuffer current = new ChunkBuffer();
+        private final ChunkBuffer sentences = new ChunkBuffer();
+
+        ChunkIterator(CharSequence text, int chunkSize, int chunkOverlap) {
+            super(text);
+            this.chunkSize = chunkSize;
+            this.chunkOverlap = chunkOverlap;
+        }
+
+        @Override
+        protected void advance() {
+            if (sentenceCursor >= 0) {
+                long sentence = nextSentence();
+                if (sentence != NOT_FOUND) {
+                    addSentence(sentence);
+                } else {
+                    // 段落的句子处理完毕，剩余内容并入当前块
+                    sentenceCursor = -1;
+                    if (sentences.length() > 0) {
+                        current.append(sentences);
+                    }
+                }
+                return;
+            }
+
+            long paragraph = nextParagraph();
+            if (paragraph == NOT_FOUND) {
+                if (current.length() > 0) {
+                    ready.add(current.toTrimmedString());
+                }
+                finished = true;
+                return;
+            }
+            addParagraph(paragraph);
+        }
+
+        private void addParagraph(long paragraph) {
+            int paragraphLength = rangeLength(paragraph);
+            if (current.length() + paragraphLength > chunkSize) {
+                if (current.length() > 0) {
+                    ready.add(current.toTrimmedString());
+                    keepOverlap(current);
+                }
+                if (paragraphLength > chunkSize) {
+                    sentences.reset();
+                    enterSentences(paragraph);
+                    return;
+                }
+            }
+            current.append(text, rangeStart(paragraph), rangeEnd(paragraph)).append(PARAGRAPH_SEPARATOR);
+        }
+
+        private void addSentence(long sentence) {
+            int sentenceLength = rangeLength(sentence);
+            if (sentences.length() + sentenceLength > chunkSize && sentences.length() > 0) {
+                ready.add(sentences.toTrimmedString());
+                keepOverlap(sentences);
+            }
+
+            if (sentenceLength > chunkSize) {
+                int step = chunkSize - chunkOverlap;
+                if (step <= 0) {
+                    throw new IllegalStateException("块重叠大小必须小于块大小: chunkSize=" + chunkSize
+                            + ", chunkOverlap=" + chunkOverlap);
+                }
+                int start = rangeStart(sentence);
+                int end = rangeEnd(sentence);
+                for (int i = start; i < end; i += step) {
+                    long piece = trimRange(text, i, Math.min(i + chunkSize, end));
+                    ready.add(text.subSequence(rangeStart(piece), rangeEnd(piece)).toString());
+                }
+            } else {
+                sentences.append(text, rangeStart(sentence), rangeEnd(sentence)).append(SENTENCE_SEPARATOR);
+            }
+        }
+
+        private void keepOverlap(ChunkBuffer buffer) {
+            if (chunkOverlap > 0 && buffer.length() > chunkOverlap) {
+                buffer.keepLast(chunkOverlap);
+            } else {
+                buffer.reset();
+            }
+        }
+    }
+
+    /**
+     * 按 token 数分块的状态机
+     * <p>
+     * 以句子为单位装入当前块：同一段落内的句子以空格连接，跨段落以空行连接，
+     * 块的 token 数按句子 token 数之和估算，每个连接符计1个token。
+     * 装不下下一个句子时输出当前块，保留末尾 token 数之和不超过 chunkOverlapTokens 的若干句子作为重叠；
+     * 单个句子超过预算时，按 token 数二分查找截断位置，相邻片段按比例重叠约 chunkOverlapTokens 个token
+     */
+    private static final class TokenChunkIterator extends AbstractChunkIterator {
+
+        private final Tokenizer tokenizer;
+        private final int chunkTokens;
+        private final int chunkOverlapTokens;
+
+        /**
+         * 当前块中的句子，每个元素为 {起始下标, 结束下标, token数, 是否段落开头}
+         */
+        private final ArrayDeque<int[]> units = new ArrayDeque<>();
+        private int unitTokens;
+        private boolean paragraphStart;
+
+        TokenChunkIterator(CharSequence text, Tokenizer tokenizer, int chunkTokens, int chunkOverlapTokens) {
+            super(text);
+            if (chunkTokens <= 0 || chunkOverlapTokens < 0 || chunkOverlapTokens >= chunkTokens) {
+                throw new IllegalStateException("块token数必须大于0且大于重叠token数: chunkTokens=" + chunkTokens
+                        + ", chunkOverlapTokens=" + chunkOverlapTokens);
+            }
+            this.tokenizer = tokenizer;
+            this.chunkTokens = chunkTokens;
+            this.chunkOverlapTokens = chunkOverlapTokens;
+        }
+
+        @Override
+        protected void advance() {
+            long sentence = sentenceCursor >= 0 ? nextSentence() : NOT_FOUND;
+            if (sentence == NOT_FOUND) {
+                long paragraph = nextParagraph();
+                if (paragraph == NOT_FOUND) {
+                    emit();
+                    finished = true;
+                    return;
+                }
+                enterSentences(paragraph);
+                paragraphStart = true;
+                return;
+            }
+
+            int start = rangeStart(sentence);
+            int end = rangeEnd(sentence);
+            int tokens = tokenizer.countTokens(text.subSequence(start, end));
+            boolean newParagraph = paragraphStart;
+            paragraphStart = false;
+
+            if (tokens > chunkTokens) {
+                emit();
+                units.clear();
+                unitTokens = 0;
+                splitByTokens(start, end);
+                return;
+            }
+
+            if (!units.isEmpty() && unitTokens + 1 + tokens > chunkTokens) {
+                emit();
+                keepOverlap();
+                // 重叠部分与新句子仍装不下时，丢弃最早的重叠句子
+                while (!units.isEmpty() && unitTokens + 1 + tokens > chunkTokens) {
+                    removeFirst();
+                }
+            }
+            unitTokens += units.isEmpty() ? tokens : tokens + 1;
+            units.addLast(new int[]{start, end, tokens, newParagraph ? 1 : 0});
+        }
+
+        private void emit() {
+            if (units.isEmpty()) {
+                return;
+            }
+            StringBuilder chunk = new StringBuilder();
+            for (int[] unit : units) {
+                if (chunk.length() > 0) {
+                    chunk.append(unit[3] == 1 ? PARAGRAPH_SEPARATOR : SENTENCE_SEPARATOR);
+                }
+                chunk.append(text, unit[0], unit[1]);
+            }
+            ready.add(chunk.toString());
+        }
+
+        private void keepOverlap() {
+            int kept = 0;
+            int keptTokens = 0;
+            Iterator<int[]> tail = units.descendingIterator();
+            while (tail.hasNext()) {
+                int[] unit = tail.next();
+                int next = keptTokens + (kept == 0 ? unit[2] : unit[2] + 1);
+                if (next > chunkOverlapTokens || kept + 1 >= units.size()) {
+                    break;
+                }
+                keptTokens = next;
+                kept++;
+            }
+            while (units.size() > kept) {
+                units.removeFirst();
+            }
+            unitTokens = keptTokens;
+        }
+
+        private void removeFirst() {
+            int[] unit = units.removeFirst();
+            unitTokens -= units.isEmpty() ? unit[2] : unit[2] + 1;
+        }
+
+        /**
+         * 超过预算的句子按 token 数截断，每个片段取不超过预算的最长前缀
+         */
+        private void splitByTokens(int start, int end) {
+            int from = start;
+            while (from < end) {
+                int low = from + 1;
+                int high = end;
+                // 二分查找 token 数不超过预算的最长前缀，至少前进一个字符
+                while (low < high) {
+                    int mid = (low + high + 1) >>> 1;
+                    if (tokenizer.countTokens(text.subSequence(from, mid)) <= chunkTokens) {
+                        low = mid;
+                    } else {
+                        high = mid - 1;
+                    }
+                }
+                int to = alignToCodePoint(low, from + 1, end);
+                long piece = trimRange(text, from, to);
+                if (rangeLength(piece) > 0) {
+                    ready.add(text.subSequence(rangeStart(piece), rangeEnd(piece)).toString());
+                }
+                if (to >= end) {
+                    return;
+                }
+                int overlapChars = (int) ((long) (to - from) * chunkOverlapTokens / chunkTokens);
+                from = alignToCodePoint(Math.max(to - overlapChars, from + 1), from + 1, end);
+            }
+        }
+
+        /**
+         * 截断位置不落在代理对中间
+         */
+        private int alignToCodePoint(int index, int min, int max) {
+            if (index > min && index < max && Character.isLowSurrogate(text.charAt(index))
+                    && Character.isHighSurrogate(text.charAt(index - 1))) {
+                return index - 1;
+            }
+            return index;
+        }
+    }
+
+    /**
+     * 块缓冲区
+     * 有效内容为 [offset, builder.length())；保留重叠部分只移动 offset，
+     * 偏移超过已用空间一半时才整体前移，摊还后每个字符只移动常数次
+     */
+    private static final class ChunkBuffer {
+
+        private final StringBuilder builder = new StringBuilder();
+        private int offset;
+
+        int length() {
+            return builder.length() - offset;
+        }
+
+        ChunkBuffer append(CharSequence source, int start, int end) {
+            builder.append(source, start, end);
+            return this;
+        }
+
+        ChunkBuffer append(String value) {
+            builder.append(value);
+            return this;
+        }
+
+        void append(ChunkBuffer other) {
+            builder.append(other.builder, other.offset, other.builder.length());
+        }
+
+        void keepLast(int count) {
+            offset = builder.length() - count;
+            if (offset > builder.length() / 2) {
+                builder.delete(0, offset);
+                offset = 0;
+            }
+        }
+
+        void reset() {
+            builder.setLength(0);
+            offset = 0;
+        }
+
+        String toTrimmedString() {
+            long trimmed = trimRange(builder, offset, builder.length());
+            return builder.substring(rangeStart(trimmed), rangeEnd(trimmed));
+        }
+    }
+}
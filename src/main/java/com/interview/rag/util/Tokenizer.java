@@ -0,0 +1,16 @@
+package com.interview.rag.util;
+
+/**
+ * 嵌入模型的 token 计数器
+ * 分块与嵌入批次划分按 token 预算计算时使用，实现需线程安全
+ */
+public interface Tokenizer {
+
+    /**
+     * 统计文本的 token 数
+     *
+     * @param text 文本，为 null 或空时返回0
+     * @return token 数
+     */
+    int countTokens(CharSequence text);
+}
@@ -0,0 +1,226 @@
+package com.interview.rag.util;
+
+import java.util.Arrays;
+
+/**
+ * 基于容量为K的最小堆的前K个选择器
+ * <p>
+ * ID 与得分保存在基本类型数组中，堆顶为当前第K名，候选只需与堆顶比较一次，整个过程没有装箱。
+ * 得分相同时先加入的候选排名靠前，结果与对全部候选做稳定排序后截取前K个一致。
+ * <p>
+ * 提前终止：堆满后 {@link #isCompetitive(float)} 对得分上界返回 false，说明剩余候选不可能进入前K，
+ * 调用方可以停止扫描。按得分降序输入时，{@link #offer(long, float)} 返回 false 即可停止。
+ * <p>
+ * 调用 {@link #sort()} 后按名次读取结果；非线程安全，每次检索使用独立的实例
+ */
+public final class TopKSelector {
+
+    /**
+     * 数组初始长度，K 较大而候选较少时不必一次分配K个位置
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int capacity;
+    private long[] ids;
+    private float[] scores;
+    /**
+     * 加入顺序，得分相同时用于判定名次
+     */
+    private int[] sequences;
+    private int size;
+    private int nextSequence;
+    private boolean sorted;
+
+    /**
+     * @param capacity 保留的结果数K
+     */
+    public TopKSelector(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("topK不能为负数: " + capacity);
+        }
+        this.capacity = capacity;
+        int initial = Math.min(capacity, INITIAL_CAPACITY);
+        this.ids = new long[initial];
+        this.scores = new float[initial];
+        this.sequences = new int[initial];
+    }
+
+    /**
+     * 提交一个候选
+     *
+     * @param id 候选ID
+     * @param score 得分，NaN 视为无效
+     * @return 是否进入当前前K
+     */
+    public boolean offer(long id, float score) {
+        if (size == capacity) {
+            // 绝大多数候选在这里被拒绝；得分相同时已在堆中的候选先加入，名次更靠前；NaN 比较结果为 false
+            if (capacity == 0 || !(score > scores[0])) {
+                return false;
+            }
+            checkNotSorted();
+            ids[0] = id;
+            scores[0] = score;
+            sequences[0] = nextSequence++;
+            siftDown(0);
+            return true;
+        }
+        if (Float.isNaN(score)) {
+            return false;
+        }
+        checkNotSorted();
+        if (size == ids.length) {
+            grow();
+        }
+        ids[size] = id;
+        scores[size] = score;
+        sequences[size] = nextSequence++;
+        siftUp(size++);
+        return true;
+    }
+
+    /**
+     * 得分为 score 的候选能否进入前K
+     *
+     * @param score 候选得分或剩余候选的得分上界
+     * @return false 表示堆已满且 score 不高于第K名，得分不高于 score 的候选都可以跳过
+     */
+    public boolean isCompetitive(float score) {
+        return size < capacity || (capacity > 0 && score > scores[0]);
+    }
+
+    /**
+     * 当前第K名的得分，未满K个时为负无穷，K为0时为正无穷
+     */
+    public float threshold() {
+        if (capacity == 0) {
+            return Float.POSITIVE_INFINITY;
+        }
+        return size < capacity ? Float.NEGATIVE_INFINITY : scores[0];
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * 将堆中的结果原地排为得分降序，之后可用 {@link #id(int)}、{@link #score(int)} 按名次读取
+     */
+    public void sort() {
+        if (sorted) {
+            return;
+        }
+        // 堆排序：依次把堆顶（当前最差）换到末尾，结束时数组为降序
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+        sorted = true;
+    }
+
+    /**
+     * 第 rank 名的ID，rank 从0开始
+     */
+    public long id(int rank) {
+        checkSorted(rank);
+        return ids[rank];
+    }
+
+    /**
+     * 第 rank 名的得分，rank 从0开始
+     */
+    public float score(int rank) {
+        checkSorted(rank);
+        return scores[rank];
+    }
+
+    /**
+     * 清空结果，实例可复用
+     */
+    public void reset() {
+        size = 0;
+        nextSequence = 0;
+        sorted = false;
+    }
+
+    private void grow() {
+        int length = (int) Math.min(capacity, (long) ids.length * 2);
+        ids = Arrays.copyOf(ids, length);
+        scores = Arrays.copyOf(scores, length);
+        sequences = Arrays.copyOf(sequences, length);
+    }
+
+    private void checkNotSorted() {
+        if (sorted) {
+            throw new IllegalStateException("结果已排序，需调用 reset 后才能继续提交候选");
+        }
+    }
+
+    private void checkSorted(int rank) {
+        if (!sorted) {
+            throw new IllegalStateException("读取结果前需先调用 sort");
+        }
+        if (rank < 0 || rank >= size) {
+            throw new IndexOutOfBoundsException("名次越界: " + rank + ", size=" + size);
+        }
+    }
+
+    /**
+     * i 的名次是否排在 j 之后
+     */
+    private boolean worse(int i, int j) {
+        return scores[i] < scores[j] || (scores[i] == scores[j] && sequences[i] > sequences[j]);
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!worse(index, parent)) {
+                break;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        siftDown(index, size);
+    }
+
+    private void siftDown(int index, int end) {
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= end) {
+                return;
+            }
+            if (child + 1 < end && worse(child + 1, child)) {
+                child++;
+            }
+            if (!worse(child, index)) {
+                return;
+            }
+            swap(index, child);
+            index = child;
+        }
+    }
+
+    private void swap(int i, int j) {
+        long id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+        float score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+        int sequence = sequences[i];
+        sequences[i] = sequences[j];
+        sequences[j] = sequence;
+    }
+}
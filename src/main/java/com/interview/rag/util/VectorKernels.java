@@ -0,0 +1,42 @@
+package com.interview.rag.util;
+
+/**
+ * 向量计算内核
+ * 运行时检测到 jdk.incubator.vector 模块时使用 SIMD 实现，否则回退到标量实现
+ */
+public interface VectorKernels {
+
+    /**
+     * 计算点积
+     *
+     * @param a 向量a所在数组
+     * @param aOffset 向量a的起始下标
+     * @param b 向量b所在数组
+     * @param bOffset 向量b的起始下标
+     * @param length 向量维度
+     * @return 点积
+     */
+    float dotProduct(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    /**
+     * 计算欧氏距离的平方
+     */
+    float squaredDistance(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    /**
+     * 单次遍历计算余弦相似度，任一向量范数为0时返回0
+     */
+    float cosineSimilarity(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    /**
+     * 实现名称，用于日志与基准测试
+     */
+    String name();
+
+    /**
+     * 获取当前运行环境下最优的内核实现
+     */
+    static VectorKernels getInstance() {
+        return VectorKernelsLoader.INSTANCE;
+    }
+}
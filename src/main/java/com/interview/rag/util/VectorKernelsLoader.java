@@ -0,0 +1,37 @@
+package com.interview.rag.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 向量计算内核加载器
+ * SIMD 实现位于 src/main/java-simd，仅在 JDK 17+ 构建时编译，运行时还需
+ * --add-modules jdk.incubator.vector；可通过 -Drag.simd.enabled=false 强制使用标量实现
+ */
+@Slf4j
+final class VectorKernelsLoader {
+
+    private static final String SIMD_MODULE = "jdk.incubator.vector";
+    private static final String SIMD_KERNELS_CLASS = "com.interview.rag.util.PanamaVectorKernels";
+
+    static final VectorKernels INSTANCE = load();
+
+    private VectorKernelsLoader() {
+    }
+
+    private static VectorKernels load() {
+        if (Boolean.parseBoolean(System.getProperty("rag.simd.enabled", "true"))
+                && ModuleLayer.boot().findModule(SIMD_MODULE).isPresent()) {
+            try {
+                VectorKernels kernels = (VectorKernels) Class.forName(SIMD_KERNELS_CLASS)
+                        .getDeclaredConstructor()
+                        .newInstance();
+                log.info("向量计算使用SIMD内核: {}", kernels.name());
+                return kernels;
+            } catch (Throwable e) {
+                log.warn("加载SIMD向量内核失败，回退到标量实现", e);
+            }
+        }
+        log.info("向量计算使用标量内核");
+        return new ScalarVectorKernels();
+    }
+}
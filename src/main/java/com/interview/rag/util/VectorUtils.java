@@ -0,0 +1,72 @@
+package com.interview.rag.util;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * 向量表示转换工具
+ * 内部统一使用 float[] 存储向量，List&lt;Float&gt; 仅作为对外兼容的适配形式
+ */
+public final class VectorUtils {
+
+    private VectorUtils() {
+    }
+
+    /**
+     * 将装箱列表转换为基本类型数组
+     *
+     * @param vector 向量列表
+     * @return 向量数组，输入为 null 时返回 null
+     */
+    public static float[] toArray(List<Float> vector) {
+        if (vector == null) {
+            return null;
+        }
+        float[] array = new float[vector.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = vector.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * 将基本类型数组包装为列表视图，不复制数据
+     * 对视图的修改会写回原数组
+     *
+     * @param vector 向量数组
+     * @return 列表视图，输入为 null 时返回 null
+     */
+    public static List<Float> asList(float[] vector) {
+        if (vector == null) {
+            return null;
+        }
+        return new FloatArrayList(vector);
+    }
+
+    private static final class FloatArrayList extends AbstractList<Float> implements RandomAccess {
+
+        private final float[] array;
+
+        FloatArrayList(float[] array) {
+            this.array = array;
+        }
+
+        @Override
+        public Float get(int index) {
+            return array[index];
+        }
+
+        @Override
+        public Float set(int index, Float element) {
+            float previous = array[index];
+            array[index] = element;
+            return previous;
+        }
+
+        @Override
+        public int size() {
+            return array.length;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.interview.rag.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 段文件存储测试：重新打开、删除标记与未提交记录的丢弃
+ */
+class EmbeddingSegmentStoreTest {
+
+    private static final int DIMENSIONS = 4;
+    private static final int CAPACITY = 2;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void reopenRestoresCommittedVectorsAcrossSegments() throws IOException {
+        EmbeddingSegmentStore store = open();
+        for (long id = 1; id <= 5; id++) {
+            store.append(id, vector(id));
+        }
+        assertEquals(3, store.segmentCount());
+        store.close();
+
+        EmbeddingSegmentStore reopened = open();
+        assertEquals(5, reopened.size());
+        assertEquals(3, reopened.segmentCount());
+        for (long id = 1; id <= 5; id++) {
+            assertArrayEquals(vector(id), read(reopened, id));
+        }
+        reopened.close();
+    }
+
+    @Test
+    void tombstonesSurviveReopen() throws IOException {
+        EmbeddingSegmentStore store = open();
+        store.append(1, vector(1));
+        store.append(2, vector(2));
+        store.append(3, vector(3));
+        assertTrue(store.delete(2));
+        assertFalse(store.delete(2));
+        store.close();
+
+        EmbeddingSegmentStore reopened = open();
+        assertFalse(reopened.contains(2));
+        assertFalse(reopened.read(2, new float[DIMENSIONS]));
+        assertEquals(2, reopened.size());
+        assertEquals(2, visit(reopened).size());
+        assertFalse(visit(reopened).containsKey(2L));
+        reopened.close();
+    }
+
+    @Test
+    void reappendAfterDeleteIsVisibleAfterReopen() throws IOException {
+        EmbeddingSegmentStore store = open();
+        store.append(1, vector(1));
+        store.delete(1);
+        store.append(1, vector(10));
+        store.append(2, vector(2));
+        store.append(2, vector(20));
+        store.close();
+
+        EmbeddingSegmentStore reopened = open();
+        assertEquals(2, reopened.size());
+        assertArrayEquals(vector(10), read(reopened, 1));
+        assertArrayEquals(vector(20), read(reopened, 2));
+        assertEquals(2, visit(reopened).size());
+        reopened.close();
+    }
+
+    @Test
+    void uncommittedTailIsDiscardedOnReopen() throws IOException {
+        EmbeddingSegmentStore store = open();
+        store.append(1, vector(1));
+        store.flush();
+        // 未提交：同一段内的追加与新建的段，以及删除
+        store.append(2, vector(2));
+        store.append(3, vector(3));
+        store.delete(1);
+
+        // 不关闭，模拟进程崩溃后重新打开
+        EmbeddingSegmentStore reopened = open();
+        assertEquals(1, reopened.size());
+        assertEquals(1, reopened.segmentCount());
+        assertArrayEquals(vector(1), read(reopened, 1));
+        assertFalse(reopened.contains(2));
+        assertFalse(reopened.contains(3));
+
+        // 丢弃的位置可以重新写入
+        reopened.append(4, vector(4));
+        reopened.close();
+        EmbeddingSegmentStore again = open();
+        assertEquals(2, again.size());
+        assertArrayEquals(vector(4), read(again, 4));
+        again.close();
+    }
+
+    @Test
+    void rejectsMismatchedConfiguration() throws IOException {
+        EmbeddingSegmentStore store = open();
+        store.append(1, vector(1));
+        store.close();
+
+        assertThrows(IllegalStateException.class, () -> new EmbeddingSegmentStore(directory, DIMENSIONS + 1, CAPACITY));
+        assertThrows(IllegalArgumentException.class, () -> open().append(2, new float[DIMENSIONS + 1]));
+    }
+
+    @Test
+    void clearRemovesEverything() throws IOException {
+        EmbeddingSegmentStore store = open();
+        store.append(1, vector(1));
+        store.append(2, vector(2));
+        store.append(3, vector(3));
+        store.clear();
+        assertEquals(0, store.size());
+        store.close();
+
+        EmbeddingSegmentStore reopened = open();
+        assertEquals(0, reopened.size());
+        assertEquals(0, reopened.segmentCount());
+        reopened.close();
+    }
+
+    private EmbeddingSegmentStore open() throws IOException {
+        return new EmbeddingSegmentStore(directory, DIMENSIONS, CAPACITY);
+    }
+
+    private static float[] vector(long id) {
+        return new float[]{id, id + 0.5f, -id, 1f};
+    }
+
+    private static float[] read(EmbeddingSegmentStore store, long id) {
+        float[] target = new float[DIMENSIONS];
+        assertTrue(store.read(id, target), "id " + id);
+        return target;
+    }
+
+    private static Map<Long, float[]> visit(EmbeddingSegmentStore store) {
+        Map<Long, float[]> visited = new HashMap<>();
+        List<Long> order = new ArrayList<>();
+        store.forEach((id, vector) -> {
+            order.add(id);
+            visited.put(id, vector.clone());
+        });
+        assertEquals(order.size(), visited.size(), "重复访问: " + order);
+        return visited;
+    }
+}
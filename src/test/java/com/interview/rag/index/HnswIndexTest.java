@@ -0,0 +1,80 @@
+package com.interview.rag.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * HNSW 索引测试：大量删除后仍能返回 topK 个存活结果，已删除节点累积后被回收
+ */
+class HnswIndexTest {
+
+    private static final int DIMENSIONS = 16;
+
+    @Test
+    void searchReturnsTopKLiveResultsAfterDeletes() {
+        Random random = new Random(3);
+        HnswIndex index = new HnswIndex(DIMENSIONS, 8, 64, 16);
+        float[][] vectors = new float[300][];
+        for (int id = 0; id < vectors.length; id++) {
+            vectors[id] = randomVector(random);
+            index.add(id, vectors[id]);
+        }
+        // 删除查询向量附近的大部分节点，候选集中的前 ef 个几乎都是已删除节点
+        Set<Long> removed = new HashSet<>();
+        for (int id = 0; id < 270; id++) {
+            assertTrue(index.remove(id));
+            removed.add((long) id);
+        }
+        assertEquals(270, index.deletedCount());
+
+        for (int query = 0; query < 50; query++) {
+            List<ScoredId> results = index.search(vectors[random.nextInt(270)], 10);
+            assertEquals(10, results.size());
+            for (ScoredId result : results) {
+                assertFalse(removed.contains(result.getId()));
+            }
+        }
+    }
+
+    @Test
+    void deletesAndUpdatesAreCompacted() {
+        Random random = new Random(5);
+        HnswIndex index = new HnswIndex(DIMENSIONS, 8, 32, 32);
+        float[][] vectors = new float[2400][];
+        for (int id = 0; id < vectors.length; id++) {
+            vectors[id] = randomVector(random);
+            index.add(id, vectors[id]);
+        }
+        for (int id = 0; id < 1200; id++) {
+            index.remove(id);
+        }
+        // 覆盖写入同样产生已删除节点
+        for (int id = 1200; id < 1600; id++) {
+            vectors[id] = randomVector(random);
+            index.add(id, vectors[id]);
+        }
+
+        assertEquals(1200, index.size());
+        assertTrue(index.deletedCount() < 1024, "deleted " + index.deletedCount());
+        for (int id = 1200; id < vectors.length; id += 37) {
+            List<ScoredId> results = index.search(vectors[id], 1);
+            assertEquals(id, results.get(0).getId());
+        }
+    }
+
+    private static float[] randomVector(Random random) {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,222 @@
+package com.interview.rag.index;
+
+import com.interview.rag.model.ChunkMetadata;
+import com.interview.rag.model.VectorDocument;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 近重复块过滤测试：按集合与元数据分组、已删除块的指纹失效、引用计数、并发写入时的指纹预留
+ */
+class NearDuplicateFilterTest {
+
+    private static final String COLLECTION = "interview";
+
+    private static final String ANSWER = "问题：线程池的核心参数有哪些？参考答案：核心线程数、最大线程数、空闲线程存活时间、"
+            + "任务队列、线程工厂以及拒绝策略，任务提交时先用核心线程，核心线程满了进入队列，队列满了再创建非核心线程";
+
+    private final Set<String> live = new HashSet<>();
+    private final Function<Collection<String>, Collection<String>> liveIds = ids -> {
+        List<String> result = new ArrayList<>();
+        for (String id : ids) {
+            if (live.contains(id)) {
+                result.add(id);
+            }
+        }
+        return result;
+    };
+
+    private int nextId = 1;
+
+    @Test
+    void disabledFilterKeepsEverything() {
+        NearDuplicateFilter filter = new NearDuplicateFilter(false, 4, 50, "skip", scopeFields());
+        List<VectorDocument> chunks = Arrays.asList(chunk(ANSWER, "A"), chunk(ANSWER, "A"));
+
+        NearDuplicateFilter.Batch batch = filter.check(COLLECTION, chunks, liveIds);
+        assertEquals(0, batch.getDuplicateCount());
+        store(filter, batch, chunks);
+        assertEquals(0, filter.getIndexSize());
+    }
+
+    @Test
+    void sameContentAtDifferentCompaniesIsKept() {
+        NearDuplicateFilter filter = filter();
+        List<VectorDocument> first = Arrays.asList(chunk(ANSWER, "A"), chunk(ANSWER, "B"), chunk(ANSWER + "。", "A"));
+
+        NearDuplicateFilter.Batch batch = filter.check(COLLECTION, first, liveIds);
+        assertFalse(batch.isDuplicate(0));
+        assertFalse(batch.isDuplicate(1));
+        assertTrue(batch.isDuplicate(2));
+        store(filter, batch, first);
+        assertEquals(first.get(0).getId(), batch.canonicalId(2, first));
+
+        List<VectorDocument> second = Arrays.asList(chunk(ANSWER, "B"), chunk(ANSWER, "C"));
+        NearDuplicateFilter.Batch next = filter.check(COLLECTION, second, liveIds);
+        filter.abort(COLLECTION, next, second);
+        assertEquals(first.get(1).getId(), next.canonicalId(0, second));
+        assertFalse(next.isDuplicate(1));
+    }
+
+    @Test
+    void deletedCanonicalIsNotReused() {
+        NearDuplicateFilter filter = filter();
+        List<VectorDocument> first = Collections.singletonList(chunk(ANSWER, "A"));
+        store(filter, filter.check(COLLECTION, first, liveIds), first);
+
+        // 存储中的块被其他途径删除后，同样的内容重新写入
+        live.remove(first.get(0).getId());
+        List<VectorDocument> again = Collections.singletonList(chunk(ANSWER, "A"));
+        NearDuplicateFilter.Batch batch = filter.check(COLLECTION, again, liveIds);
+        assertFalse(batch.isDuplicate(0));
+        assertEquals(1, filter.getStaleCount());
+        assertEquals(0, filter.getIndexSize());
+
+        store(filter, batch, again);
+        assertEquals(again.get(0).getId(),
+                probe(filter, COLLECTION, chunk(ANSWER, "A")).canonicalId(0, null));
+    }
+
+    @Test
+    void clearAndRemoveMatchingDropFingerprints() {
+        NearDuplicateFilter filter = filter();
+        List<VectorDocument> chunks = Arrays.asList(chunk(ANSWER, "A"), chunk(ANSWER, "B"));
+        store(filter, filter.check(COLLECTION, chunks, liveIds), chunks);
+        assertEquals(2, filter.getIndexSize());
+
+        filter.removeMatching(COLLECTION, Collections.singletonMap(ChunkMetadata.COMPANY, "A"));
+        assertEquals(1, filter.getIndexSize());
+        assertFalse(probe(filter, COLLECTION, chunk(ANSWER, "A")).isDuplicate(0));
+        assertTrue(probe(filter, COLLECTION, chunk(ANSWER, "B")).isDuplicate(0));
+
+        // 条件中没有分组字段时无法判断删除了哪些块，整个集合的指纹都丢弃
+        filter.removeMatching(COLLECTION, Collections.singletonMap(ChunkMetadata.DOCUMENT_KEY, "x"));
+        assertEquals(0, filter.getIndexSize());
+
+        store(filter, filter.check(COLLECTION, chunks, liveIds), chunks);
+        filter.clear(COLLECTION);
+        assertEquals(0, filter.getIndexSize());
+        assertFalse(probe(filter, COLLECTION, chunk(ANSWER, "B")).isDuplicate(0));
+    }
+
+    @Test
+    void collectionsAreIndependent() {
+        NearDuplicateFilter filter = filter();
+        List<VectorDocument> chunks = Collections.singletonList(chunk(ANSWER, "A"));
+        store(filter, filter.check(COLLECTION, chunks, liveIds), chunks);
+
+        assertFalse(probe(filter, "other", chunk(ANSWER, "A")).isDuplicate(0));
+    }
+
+    @Test
+    void releaseCountsSkippedReferences() {
+        NearDuplicateFilter filter = filter();
+        List<VectorDocument> chunks = Arrays.asList(chunk(ANSWER, "A"), chunk(ANSWER, "A"));
+        store(filter, filter.check(COLLECTION, chunks, liveIds), chunks);
+        List<VectorDocument> later = Collections.singletonList(chunk(ANSWER, "A"));
+        store(filter, filter.check(COLLECTION, later, liveIds), later);
+
+        String canonicalId = chunks.get(0).getId();
+        assertTrue(filter.release(COLLECTION, canonicalId));
+        assertTrue(filter.release(COLLECTION, canonicalId));
+        assertFalse(filter.release(COLLECTION, canonicalId));
+
+        filter.remove(COLLECTION, canonicalId);
+        assertEquals(0, filter.getIndexSize());
+    }
+
+    @Test
+    void concurrentCheckWaitsForPendingWrite() throws Exception {
+        NearDuplicateFilter filter = filter();
+        List<VectorDocument> first = Collections.singletonList(chunk(ANSWER, "A"));
+        NearDuplicateFilter.Batch batch = filter.check(COLLECTION, first, liveIds);
+
+        // 第一批尚未写入完成时，相同内容的第二批等待其登记后再检查
+        List<VectorDocument> second = Collections.singletonList(chunk(ANSWER, "A"));
+        CompletableFuture<NearDuplicateFilter.Batch> next = CompletableFuture.supplyAsync(
+                () -> filter.check(COLLECTION, second, liveIds));
+        Thread.sleep(100);
+        assertFalse(next.isDone());
+
+        store(filter, batch, first);
+        NearDuplicateFilter.Batch checked = next.get(5, TimeUnit.SECONDS);
+        assertTrue(checked.isDuplicate(0));
+        assertEquals(first.get(0).getId(), checked.canonicalId(0, second));
+    }
+
+    @Test
+    void abortRegistersWrittenChunksAndReleasesTheRest() throws Exception {
+        NearDuplicateFilter filter = filter();
+        List<VectorDocument> chunks = Arrays.asList(chunk(ANSWER, "A"), chunk(ANSWER, "B"), chunk(ANSWER, "A"));
+        NearDuplicateFilter.Batch batch = filter.check(COLLECTION, chunks, liveIds);
+
+        // 只有第一个块写入成功
+        chunks.get(0).setId(String.valueOf(nextId++));
+        live.add(chunks.get(0).getId());
+        filter.abort(COLLECTION, batch, chunks);
+        assertEquals(1, filter.getIndexSize());
+        assertFalse(filter.release(COLLECTION, chunks.get(0).getId()));
+
+        // 未写入的块的预留已释放，重新检查不会等待
+        NearDuplicateFilter.Batch retry = CompletableFuture.supplyAsync(() -> filter.check(COLLECTION,
+                Arrays.asList(chunk(ANSWER, "A"), chunk(ANSWER, "B")), liveIds)).get(5, TimeUnit.SECONDS);
+        assertTrue(retry.isDuplicate(0));
+        assertFalse(retry.isDuplicate(1));
+    }
+
+    private NearDuplicateFilter filter() {
+        return new NearDuplicateFilter(true, 4, 50, "skip", scopeFields());
+    }
+
+    private static String[] scopeFields() {
+        return new String[]{"sourceType", "source", "company", "category"};
+    }
+
+    /**
+     * 只检查不写入，检查后释放预留的指纹
+     */
+    private NearDuplicateFilter.Batch probe(NearDuplicateFilter filter, String collection, VectorDocument chunk) {
+        List<VectorDocument> chunks = Collections.singletonList(chunk);
+        NearDuplicateFilter.Batch batch = filter.check(collection, chunks, liveIds);
+        filter.abort(collection, batch, chunks);
+        return batch;
+    }
+
+    /**
+     * 模拟写入：保留块分配ID并记为存在，再登记指纹
+     */
+    private void store(NearDuplicateFilter filter, NearDuplicateFilter.Batch batch, List<VectorDocument> chunks) {
+        for (int i = 0; i < chunks.size(); i++) {
+            if (!batch.isDuplicate(i)) {
+                String id = String.valueOf(nextId++);
+                chunks.get(i).setId(id);
+                live.add(id);
+            }
+        }
+        filter.register(COLLECTION, batch, chunks);
+    }
+
+    private static VectorDocument chunk(String content, String company) {
+        ChunkMetadata metadata = new ChunkMetadata();
+        metadata.put(ChunkMetadata.SOURCE_TYPE, "interview_question");
+        metadata.put(ChunkMetadata.COMPANY, company);
+        return VectorDocument.builder()
+                .content(content)
+                .metadata(metadata)
+                .build();
+    }
+}
@@ -0,0 +1,124 @@
+package com.interview.rag.index;
+
+import com.interview.rag.util.SimHash;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * SimHash 分段索引测试：查找结果与逐个计算汉明距离的结果一致，包括删除与覆盖之后
+ */
+class SimHashIndexTest {
+
+    @Test
+    void findNearestMatchesBruteForce() {
+        Random random = new Random(11);
+        for (int maxDistance = 0; maxDistance <= 6; maxDistance++) {
+            SimHashIndex<Integer> index = new SimHashIndex<>(maxDistance);
+            Map<Integer, Long> stored = new HashMap<>();
+            for (int value = 0; value < 400; value++) {
+                // 一半指纹由已有指纹翻转少数几位得到，制造距离相近的簇
+                long fingerprint = value > 0 && random.nextBoolean()
+                        ? flip(random, stored.get(random.nextInt(value)), random.nextInt(maxDistance + 3))
+                        : random.nextLong();
+                index.add(fingerprint, value);
+                stored.put(value, fingerprint);
+            }
+            assertEquals(stored.size(), index.size());
+
+            for (int query = 0; query < 2000; query++) {
+                long base = stored.get(random.nextInt(stored.size()));
+                long fingerprint = query % 5 == 0 ? random.nextLong() : flip(random, base, random.nextInt(maxDistance + 3));
+                assertNearest(stored, maxDistance, index, fingerprint, "maxDistance " + maxDistance + " query " + query);
+            }
+
+            // 删除一半后查找结果仍与逐个比较一致
+            for (int value = 0; value < 400; value += 2) {
+                assertTrue(index.remove(value));
+                stored.remove(value);
+            }
+            assertFalse(index.remove(0));
+            assertEquals(stored.size(), index.size());
+            for (int query = 0; query < 500; query++) {
+                long base = stored.get(1 + 2 * random.nextInt(stored.size()));
+                long fingerprint = flip(random, base, random.nextInt(maxDistance + 3));
+                assertNearest(stored, maxDistance, index, fingerprint, "after remove, maxDistance " + maxDistance);
+            }
+        }
+    }
+
+    @Test
+    void addReplacesFingerprintOfExistingValue() {
+        SimHashIndex<String> index = new SimHashIndex<>(3);
+        index.add(0L, "a");
+        index.add(-1L, "a");
+
+        assertEquals(1, index.size());
+        assertNull(index.findNearest(0L));
+        assertEquals("a", index.findNearest(-1L));
+    }
+
+    @Test
+    void boundaryDistanceIsIncluded() {
+        SimHashIndex<String> index = new SimHashIndex<>(4);
+        index.add(0L, "a");
+
+        assertEquals("a", index.findNearest(0b1111L));
+        assertNull(index.findNearest(0b11111L));
+        // 翻转的位分散在不同的段中
+        assertEquals("a", index.findNearest(1L | 1L << 20 | 1L << 40 | 1L << 63));
+    }
+
+    @Test
+    void clearRemovesEverything() {
+        SimHashIndex<String> index = new SimHashIndex<>(2);
+        index.add(5L, "a");
+        index.add(6L, "b");
+        index.clear();
+
+        assertEquals(0, index.size());
+        assertNull(index.findNearest(5L));
+        index.add(5L, "c");
+        assertEquals("c", index.findNearest(5L));
+    }
+
+    @Test
+    void rejectsUnsupportedDistance() {
+        assertThrows(IllegalArgumentException.class, () -> new SimHashIndex<String>(-1));
+        assertThrows(IllegalArgumentException.class, () -> new SimHashIndex<String>(16));
+        assertNotNull(new SimHashIndex<String>(15));
+    }
+
+    private static void assertNearest(Map<Integer, Long> stored, int maxDistance, SimHashIndex<Integer> index,
+                                      long fingerprint, String message) {
+        int expected = Integer.MAX_VALUE;
+        for (long candidate : stored.values()) {
+            expected = Math.min(expected, SimHash.distance(fingerprint, candidate));
+        }
+        Integer nearest = index.findNearest(fingerprint);
+        if (expected > maxDistance) {
+            assertNull(nearest, message);
+        } else {
+            assertNotNull(nearest, message);
+            // 距离相同的候选不止一个时返回任意一个均可，只比较距离
+            assertEquals(expected, SimHash.distance(fingerprint, stored.get(nearest)), message);
+        }
+    }
+
+    private static long flip(Random random, long fingerprint, int bits) {
+        long flipped = fingerprint;
+        while (SimHash.distance(flipped, fingerprint) < bits) {
+            flipped ^= 1L << random.nextInt(64);
+        }
+        return flipped;
+    }
+}
@@ -0,0 +1,174 @@
+package com.interview.rag.service.impl;
+
+import com.interview.rag.cache.QueryResultCache;
+import com.interview.rag.index.NearDuplicateFilter;
+import com.interview.rag.model.BulkWriteResult;
+import com.interview.rag.model.ChunkMetadata;
+import com.interview.rag.model.SourceRecord;
+import com.interview.rag.model.VectorDocument;
+import com.interview.rag.repository.ImportSourceRepository;
+import com.interview.rag.service.EmbeddingService;
+import com.interview.rag.service.VectorStoreService;
+import com.interview.rag.util.ContextPacker;
+import com.interview.rag.util.EmbeddingBatcher;
+import com.interview.rag.util.HeuristicTokenizer;
+import com.interview.rag.util.TextSplitter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 存量数据导入测试：嵌入批次中途失败后重新导入，每条记录的块完整且不重复
+ */
+class InterviewRagServiceImplTest {
+
+    private static final String COLLECTION = "interview";
+    private static final String TABLE = ImportSourceRepository.INTERVIEW_QUESTION;
+
+    private final Map<String, VectorDocument> rows = new LinkedHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final AtomicLong checkpoint = new AtomicLong();
+    private final AtomicInteger embeddingCalls = new AtomicInteger();
+    private int failOnCall = -1;
+
+    private TextSplitter textSplitter;
+    private List<SourceRecord> records;
+    private InterviewRagServiceImpl ragService;
+
+    @BeforeEach
+    void setUp() {
+        textSplitter = new TextSplitter();
+        textSplitter.setMode(TextSplitter.MODE_CHARACTERS);
+        textSplitter.setChunkSize(20);
+        textSplitter.setChunkOverlap(5);
+
+        records = Arrays.asList(
+                record(1, "线程池复用线程，减少创建与销毁的开销。核心参数有核心线程数、最大线程数。队列满了以后执行拒绝策略。"),
+                record(2, "HashMap 在容量超过阈值时扩容。扩容时重新计算每个元素的位置。链表过长时转为红黑树。"),
+                record(3, "索引失效的常见原因。"));
+
+        ragService = new InterviewRagServiceImpl(vectorStore(), embeddingService(), textSplitter,
+                new EmbeddingBatcher(text -> text == null ? 0 : text.length()),
+                new ContextPacker(textSplitter, new HeuristicTokenizer()),
+                new NearDuplicateFilter(false, 4, 50, NearDuplicateFilter.ACTION_SKIP, new String[0]),
+                new QueryResultCache(false, 10, 10), importSource(), Runnable::run, Runnable::run,
+                COLLECTION, Long.MAX_VALUE, false, 4, 60, false, 0.7, 4, 1);
+    }
+
+    @Test
+    void resumeAfterFailedBatchRewritesPartialRecords() {
+        // 未配置批次上限时每个块单独一批，第一条记录的块分在多个批次中
+        failOnCall = 2;
+        assertThrows(RuntimeException.class, () -> ragService.importExistingData(TABLE, 10));
+        assertEquals(1, rows.size());
+        assertEquals(0, checkpoint.get());
+
+        failOnCall = -1;
+        assertEquals(records.size(), ragService.importExistingData(TABLE, 10));
+
+        assertEquals(3, checkpoint.get());
+        Map<Long, List<VectorDocument>> bySource = rows.values().stream()
+                .collect(Collectors.groupingBy(VectorDocument::getSourceId));
+        assertEquals(records.size(), bySource.size());
+        for (SourceRecord record : records) {
+            int expected = textSplitter.splitIntoChunks(record.getContent()).size();
+            List<Integer> chunkIndexes = bySource.get(record.getId()).stream()
+                    .map(chunk -> ((ChunkMetadata) chunk.getMetadata()).getChunkIndex())
+                    .collect(Collectors.toList());
+            assertEquals(expected, chunkIndexes.size(), "source " + record.getId());
+            assertEquals(expected, new TreeSet<>(chunkIndexes).size(), "source " + record.getId());
+        }
+    }
+
+    @Test
+    void rerunAfterCompletedImportWritesNothing() {
+        int written = ragService.importExistingData(TABLE, 2);
+        int chunks = rows.size();
+        assertEquals(records.size(), written);
+
+        assertEquals(0, ragService.importExistingData(TABLE, 2));
+        assertEquals(chunks, rows.size());
+    }
+
+    private VectorStoreService vectorStore() {
+        VectorStoreService store = mock(VectorStoreService.class);
+        when(store.bulkAddDocuments(anyList())).thenAnswer(invocation -> {
+            List<VectorDocument> documents = invocation.getArgument(0);
+            List<String> ids = new ArrayList<>();
+            for (VectorDocument document : documents) {
+                String id = String.valueOf(nextId.getAndIncrement());
+                rows.put(id, document);
+                ids.add(id);
+            }
+            return BulkWriteResult.builder().ids(ids).succeeded(ids.size()).failed(0).build();
+        });
+        when(store.deleteDocument(anyString())).thenAnswer(invocation -> rows.remove(invocation.<String>getArgument(0)) != null);
+        return store;
+    }
+
+    private EmbeddingService embeddingService() {
+        EmbeddingService embeddingService = mock(EmbeddingService.class);
+        when(embeddingService.createEmbeddingVectors(anyList())).thenAnswer(invocation -> {
+            if (embeddingCalls.incrementAndGet() == failOnCall) {
+                throw new IllegalStateException("嵌入接口调用失败");
+            }
+            List<String> texts = invocation.getArgument(0);
+            return texts.stream().map(text -> new float[]{text.length()}).collect(Collectors.toList());
+        });
+        return embeddingService;
+    }
+
+    private ImportSourceRepository importSource() {
+        ImportSourceRepository repository = mock(ImportSourceRepository.class);
+        when(repository.loadCheckpoint(COLLECTION, TABLE)).thenAnswer(invocation -> checkpoint.get());
+        when(repository.countAfter(eq(TABLE), anyLong())).thenAnswer(invocation -> records.stream()
+                .filter(record -> record.getId() > invocation.<Long>getArgument(1))
+                .count());
+        when(repository.findAfter(eq(TABLE), anyLong(), anyInt())).thenAnswer(invocation -> records.stream()
+                .filter(record -> record.getId() > invocation.<Long>getArgument(1))
+                .limit(invocation.<Integer>getArgument(2))
+                .collect(Collectors.toList()));
+        when(repository.findChunkIdsBySourceIds(eq(COLLECTION), eq(TABLE), anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> sourceIds = invocation.getArgument(2);
+            return rows.entrySet().stream()
+                    .filter(entry -> sourceIds.contains(entry.getValue().getSourceId()))
+                    .map(entry -> Long.parseLong(entry.getKey()))
+                    .collect(Collectors.toList());
+        });
+        doAnswer(invocation -> {
+            checkpoint.set(invocation.getArgument(2));
+            return null;
+        }).when(repository).saveCheckpoint(eq(COLLECTION), eq(TABLE), anyLong(), anyLong(), anyLong());
+        return repository;
+    }
+
+    private static SourceRecord record(long id, String content) {
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put(ChunkMetadata.SOURCE_TYPE, TABLE);
+        metadata.put(ChunkMetadata.SOURCE_ID, id);
+        return new SourceRecord(id, content, metadata);
+    }
+}
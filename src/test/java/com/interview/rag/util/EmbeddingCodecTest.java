@@ -0,0 +1,132 @@
+package com.interview.rag.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 向量二进制编码测试，覆盖存储格式（格式标识、长度、字节序）与半精度舍入
+ */
+class EmbeddingCodecTest {
+
+    @Test
+    void float32RoundTripIsExact() {
+        float[] vector = randomVector(new Random(1), 1536);
+        byte[] data = EmbeddingCodec.encode(vector, EmbeddingCodec.Format.FLOAT32);
+
+        assertEquals(1 + 1536 * 4, data.length);
+        assertEquals(1, data[0]);
+        assertEquals(1536, EmbeddingCodec.dimensions(data));
+        assertArrayEquals(vector, EmbeddingCodec.decode(data));
+    }
+
+    @Test
+    void float32IsLittleEndian() {
+        byte[] data = EmbeddingCodec.encode(new float[]{1.0f}, EmbeddingCodec.Format.FLOAT32);
+
+        // 1.0f = 0x3f800000
+        assertArrayEquals(new byte[]{1, 0x00, 0x00, (byte) 0x80, 0x3f}, data);
+    }
+
+    @Test
+    void float16RoundTripWithinHalfPrecision() {
+        float[] vector = randomVector(new Random(2), 1536);
+        byte[] data = EmbeddingCodec.encode(vector, EmbeddingCodec.Format.FLOAT16);
+
+        assertEquals(1 + 1536 * 2, data.length);
+        assertEquals(2, data[0]);
+        assertEquals(1536, EmbeddingCodec.dimensions(data));
+        float[] decoded = EmbeddingCodec.decode(data);
+        for (int i = 0; i < vector.length; i++) {
+            // 规格化范围内相对误差不超过 2^-11，非规格化范围内绝对误差不超过 2^-25
+            float tolerance = Math.max(Math.abs(vector[i]) * 0x1p-11f, 0x1p-25f);
+            assertEquals(vector[i], decoded[i], tolerance, "index " + i);
+        }
+    }
+
+    @Test
+    void float16IsLittleEndian() {
+        byte[] data = EmbeddingCodec.encode(new float[]{1.0f}, EmbeddingCodec.Format.FLOAT16);
+
+        // 1.0 = 0x3c00
+        assertArrayEquals(new byte[]{2, 0x00, 0x3c}, data);
+    }
+
+    @Test
+    void float16RoundsToNearestEven() {
+        // 1 + 2^-11 恰在 1 与 1 + 2^-10 中间，舍入到尾数为偶数的 1
+        assertEquals(1.0f, roundTrip(1.0f + 0x1p-11f));
+        // 1 + 3 * 2^-11 在 1 + 2^-10 与 1 + 2^-9 中间，舍入到 1 + 2^-9
+        assertEquals(1.0f + 0x1p-9f, roundTrip(1.0f + 3 * 0x1p-11f));
+        // 略大于中点时向上舍入
+        assertEquals(1.0f + 0x1p-10f, roundTrip(1.0f + 0x1p-11f + 0x1p-20f));
+    }
+
+    @Test
+    void float16HandlesRangeLimits() {
+        assertEquals(65504f, roundTrip(65504f));
+        assertEquals(Float.POSITIVE_INFINITY, roundTrip(65520f));
+        assertEquals(Float.NEGATIVE_INFINITY, roundTrip(-1e9f));
+        assertEquals(Float.POSITIVE_INFINITY, roundTrip(Float.POSITIVE_INFINITY));
+        assertTrue(Float.isNaN(roundTrip(Float.NaN)));
+
+        // 最小的非规格化数 2^-24 可精确表示，2^-25 为中点舍入到0，稍大则舍入到 2^-24
+        assertEquals(0x1p-24f, roundTrip(0x1p-24f));
+        assertEquals(0f, roundTrip(0x1p-25f));
+        assertEquals(0x1p-24f, roundTrip(0x1.8p-25f));
+        assertEquals(0f, roundTrip(1e-10f));
+
+        assertEquals(Float.floatToRawIntBits(-0f), Float.floatToRawIntBits(roundTrip(-0f)));
+    }
+
+    @Test
+    void everyHalfValueSurvivesConversion() {
+        for (int bits = 0; bits <= 0xffff; bits++) {
+            short half = (short) bits;
+            float value = EmbeddingCodec.halfToFloat(half);
+            if (Float.isNaN(value)) {
+                continue;
+            }
+            assertEquals(half, EmbeddingCodec.floatToHalf(value), "half 0x" + Integer.toHexString(bits));
+        }
+    }
+
+    @Test
+    void rejectsUnknownFormatTag() {
+        byte[] data = EmbeddingCodec.encode(new float[]{1f, 2f}, EmbeddingCodec.Format.FLOAT32);
+        data[0] = 9;
+
+        assertThrows(IllegalArgumentException.class, () -> EmbeddingCodec.decode(data));
+    }
+
+    @Test
+    void decodesEmptyInputAsNull() {
+        assertNull(EmbeddingCodec.decode(null));
+        assertNull(EmbeddingCodec.decode(new byte[0]));
+    }
+
+    @Test
+    void parsesFormatNames() {
+        assertEquals(EmbeddingCodec.Format.FLOAT16, EmbeddingCodec.Format.parse(" float16 "));
+        assertEquals(EmbeddingCodec.Format.FLOAT32, EmbeddingCodec.Format.parse("FLOAT32"));
+        assertThrows(IllegalArgumentException.class, () -> EmbeddingCodec.Format.parse("bf16"));
+    }
+
+    private static float roundTrip(float value) {
+        return EmbeddingCodec.decode(EmbeddingCodec.encode(new float[]{value}, EmbeddingCodec.Format.FLOAT16))[0];
+    }
+
+    private static float[] randomVector(Random random, int dimensions) {
+        float[] vector = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = (float) random.nextGaussian() * 0.05f;
+        }
+        return vector;
+    }
+}
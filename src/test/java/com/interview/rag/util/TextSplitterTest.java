@@ -0,0 +1,170 @@
+package com.interview.rag.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 文本分割回归测试
+ * <p>
+ * 期望输出取自改为流式扫描之前基于正则的实现，用于保证分块结果（包括重叠的截取方式）保持不变
+ */
+class TextSplitterTest {
+
+    private static final String ENGLISH = "Retrieval augmented generation combines search with generation.\n\n"
+            + "The retriever finds relevant chunks. The generator writes the answer! Does it cite sources? Yes.\n\n"
+            + "Short one.";
+
+    private static final String CJK = "什么是线程池？线程池复用线程，减少创建与销毁的开销。核心参数有哪些！"
+            + "包括核心线程数、最大线程数、队列与拒绝策略。。还有空闲存活时间";
+
+    private static final String BLANK_PARAGRAPHS = "第一段\n\n   \n\n\n第二段\n \t\n第三段\n\n\n\n";
+
+    private static final String SHORT_PARAGRAPHS = "一二三四五\n\n六七八九十\n\n甲乙丙丁戊\n\nabcdefg";
+
+    private TextSplitter splitter;
+
+    @BeforeEach
+    void setUp() {
+        splitter = new TextSplitter();
+        splitter.setMode(TextSplitter.MODE_CHARACTERS);
+    }
+
+    @Test
+    void splitsEnglishSentences() {
+        assertEquals(Arrays.asList(
+                "Retrieval augmented generation combines search with generation.",
+                "The retriever finds relevant chunks.",
+                "The generator writes the answer!",
+                "Does it cite sources?",
+                "Yes.",
+                "Short one."
+        ), splitter.splitIntoSentences(ENGLISH));
+    }
+
+    @Test
+    void splitsCjkSentences() {
+        assertEquals(Arrays.asList(
+                "什么是线程池？",
+                "线程池复用线程，减少创建与销毁的开销。",
+                "核心参数有哪些！",
+                "包括核心线程数、最大线程数、队列与拒绝策略。。",
+                "还有空闲存活时间"
+        ), splitter.splitIntoSentences(CJK));
+    }
+
+    @Test
+    void keepsRepeatedPunctuationWithSentence() {
+        assertEquals(Arrays.asList("Hello!!!", "World??", "你好。。", "end"),
+                splitter.splitIntoSentences("Hello!!! World?? 你好。。  end"));
+    }
+
+    @Test
+    void splitsParagraphs() {
+        assertEquals(Arrays.asList(
+                "Retrieval augmented generation combines search with generation.",
+                "The retriever finds relevant chunks. The generator writes the answer! Does it cite sources? Yes.",
+                "Short one."
+        ), splitter.splitIntoParagraphs(ENGLISH));
+    }
+
+    @Test
+    void skipsBlankParagraphs() {
+        assertEquals(Arrays.asList("第一段", "第二段", "第三段"), splitter.splitIntoParagraphs(BLANK_PARAGRAPHS));
+    }
+
+    @Test
+    void blankInputProducesNothing() {
+        assertEquals(Collections.emptyList(), splitter.splitIntoSentences(null));
+        assertEquals(Collections.emptyList(), splitter.splitIntoParagraphs(" \n\n\t"));
+        assertEquals(Collections.emptyList(), splitter.splitIntoChunks(""));
+        assertEquals(Collections.emptyList(), splitter.splitIntoChunks(null));
+    }
+
+    @Test
+    void chunksParagraphsWithOverlap() {
+        splitter.setChunkSize(80);
+        splitter.setChunkOverlap(20);
+
+        assertEquals(Arrays.asList(
+                "Retrieval augmented generation combines search with generation.",
+                "The retriever finds relevant chunks. The generator writes the answer!",
+                "h with generation.\n\n writes the answer! Does it cite sources? Yes. Short one."
+        ), splitter.splitIntoChunks(ENGLISH));
+    }
+
+    @Test
+    void chunksLongCjkParagraphBySentence() {
+        splitter.setChunkSize(20);
+        splitter.setChunkOverlap(5);
+
+        assertEquals(Arrays.asList(
+                "什么是线程池？",
+                "线程池？ 线程池复用线程，减少创建与销毁的开销。",
+                "的开销。 核心参数有哪些！",
+                "包括核心线程数、最大线程数、队列与拒绝策",
+                "列与拒绝策略。。",
+                "有哪些！ 还有空闲存活时间"
+        ), splitter.splitIntoChunks(CJK));
+    }
+
+    @Test
+    void chunksAcrossBlankParagraphs() {
+        splitter.setChunkSize(8);
+        splitter.setChunkOverlap(2);
+
+        assertEquals(Arrays.asList("第一段\n\n第二段", "第三段"), splitter.splitIntoChunks(BLANK_PARAGRAPHS));
+    }
+
+    @Test
+    void cutsOversizedSentenceByCharacters() {
+        splitter.setChunkSize(10);
+        splitter.setChunkOverlap(3);
+
+        assertEquals(Arrays.asList(
+                "abcdefghij",
+                "hijklmnopq",
+                "opqrstuvwx",
+                "vwxyz01234",
+                "23456789",
+                "9"
+        ), splitter.splitIntoChunks("abcdefghijklmnopqrstuvwxyz0123456789"));
+    }
+
+    @Test
+    void overlapNotSmallerThanSizeDropsOverlapBetweenParagraphs() {
+        List<String> expected = Arrays.asList("一二三四五", "六七八九十", "甲乙丙丁戊", "abcdefg");
+
+        splitter.setChunkSize(10);
+        splitter.setChunkOverlap(10);
+        assertEquals(expected, splitter.splitIntoChunks(SHORT_PARAGRAPHS));
+
+        splitter.setChunkOverlap(15);
+        assertEquals(expected, splitter.splitIntoChunks(SHORT_PARAGRAPHS));
+    }
+
+    @Test
+    void overlapNotSmallerThanSizeRejectsCharacterCutting() {
+        // 原实现在这种配置下按字符截断时步长不为正，会陷入死循环
+        splitter.setChunkSize(10);
+        splitter.setChunkOverlap(10);
+
+        assertThrows(IllegalStateException.class,
+                () -> splitter.splitIntoChunks("abcdefghijklmnopqrstuvwxyz0123456789"));
+    }
+
+    @Test
+    void streamMatchesList() {
+        splitter.setChunkSize(20);
+        splitter.setChunkOverlap(5);
+
+        assertEquals(splitter.splitIntoChunks(CJK), splitter.streamChunks(CJK).collect(Collectors.toList()));
+    }
+}
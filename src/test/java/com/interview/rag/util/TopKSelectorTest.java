@@ -0,0 +1,155 @@
+package com.interview.rag.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 前K个选择器测试：名次与稳定排序一致、同分时先加入者优先、提前终止与 NaN 的处理
+ */
+class TopKSelectorTest {
+
+    @Test
+    void matchesStableSortOfAllCandidates() {
+        Random random = new Random(7);
+        for (int round = 0; round < 2000; round++) {
+            int count = random.nextInt(300);
+            int k = random.nextInt(80);
+            float[] scores = new float[count];
+            TopKSelector selector = new TopKSelector(k);
+            for (int i = 0; i < count; i++) {
+                // 取值范围很小，制造大量同分
+                scores[i] = random.nextInt(20) / 4f;
+                selector.offer(i, scores[i]);
+            }
+            selector.sort();
+
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                expected.add(i);
+            }
+            expected.sort(Comparator.comparingDouble((Integer i) -> scores[i]).reversed());
+            expected = expected.subList(0, Math.min(k, count));
+
+            assertEquals(expected.size(), selector.size());
+            for (int rank = 0; rank < expected.size(); rank++) {
+                assertEquals((long) expected.get(rank), selector.id(rank), "round " + round + " rank " + rank);
+                assertEquals(scores[expected.get(rank)], selector.score(rank));
+            }
+        }
+    }
+
+    @Test
+    void earlierCandidateWinsTies() {
+        TopKSelector selector = new TopKSelector(2);
+        assertTrue(selector.offer(10, 1f));
+        assertTrue(selector.offer(11, 1f));
+        // 同分的后来者不能挤掉已在堆中的候选
+        assertFalse(selector.offer(12, 1f));
+        assertTrue(selector.offer(13, 2f));
+        selector.sort();
+
+        assertEquals(13, selector.id(0));
+        assertEquals(10, selector.id(1));
+    }
+
+    @Test
+    void reportsWhenRemainingCandidatesCannotCompete() {
+        TopKSelector selector = new TopKSelector(3);
+        assertEquals(Float.NEGATIVE_INFINITY, selector.threshold());
+        assertTrue(selector.isCompetitive(-100f));
+
+        selector.offer(1, 0.9f);
+        selector.offer(2, 0.5f);
+        assertFalse(selector.isFull());
+        assertTrue(selector.isCompetitive(0.1f));
+
+        selector.offer(3, 0.7f);
+        assertTrue(selector.isFull());
+        assertEquals(0.5f, selector.threshold());
+        assertFalse(selector.isCompetitive(0.5f));
+        assertTrue(selector.isCompetitive(0.6f));
+    }
+
+    @Test
+    void offerReturnsFalseForDescendingInputOnceFull() {
+        float[] descending = {0.9f, 0.8f, 0.8f, 0.7f, 0.6f, 0.5f};
+        TopKSelector selector = new TopKSelector(3);
+        int consumed = 0;
+        for (float score : descending) {
+            consumed++;
+            if (!selector.offer(consumed, score)) {
+                break;
+            }
+        }
+
+        assertEquals(4, consumed);
+        selector.sort();
+        assertArrayEquals(new long[]{1, 2, 3}, new long[]{selector.id(0), selector.id(1), selector.id(2)});
+    }
+
+    @Test
+    void ignoresNaNScores() {
+        TopKSelector selector = new TopKSelector(2);
+        assertFalse(selector.offer(1, Float.NaN));
+        selector.offer(2, 0.1f);
+        selector.offer(3, 0.2f);
+        assertFalse(selector.offer(4, Float.NaN));
+        assertFalse(selector.isCompetitive(Float.NaN));
+        selector.sort();
+
+        assertEquals(2, selector.size());
+        assertEquals(3, selector.id(0));
+        assertEquals(2, selector.id(1));
+    }
+
+    @Test
+    void zeroCapacityKeepsNothing() {
+        TopKSelector selector = new TopKSelector(0);
+        assertFalse(selector.offer(1, 1f));
+        assertFalse(selector.isCompetitive(Float.MAX_VALUE));
+        assertEquals(Float.POSITIVE_INFINITY, selector.threshold());
+        selector.sort();
+        assertEquals(0, selector.size());
+        assertThrows(IllegalArgumentException.class, () -> new TopKSelector(-1));
+    }
+
+    @Test
+    void growsBeyondInitialArrays() {
+        TopKSelector selector = new TopKSelector(1000);
+        for (int i = 0; i < 500; i++) {
+            selector.offer(i, i);
+        }
+        selector.sort();
+
+        assertEquals(500, selector.size());
+        assertEquals(499, selector.id(0));
+        assertEquals(0, selector.id(499));
+    }
+
+    @Test
+    void requiresSortBeforeReadingAndResetBeforeReuse() {
+        TopKSelector selector = new TopKSelector(2);
+        selector.offer(1, 1f);
+        assertThrows(IllegalStateException.class, () -> selector.id(0));
+
+        selector.sort();
+        assertThrows(IndexOutOfBoundsException.class, () -> selector.id(1));
+        assertThrows(IllegalStateException.class, () -> selector.offer(2, 2f));
+
+        selector.reset();
+        selector.offer(3, 3f);
+        selector.sort();
+        assertEquals(1, selector.size());
+        assertEquals(3, selector.id(0));
+    }
+}